@@ -0,0 +1,131 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.NodeMap;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.PodWithAge;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TaskConfig;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeBuilder;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.PodSpec;
+import io.fabric8.kubernetes.api.model.Quantity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic workloads for the benchmarks, all generators are seeded to get comparable runs
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {}
+
+    static List<Vertex> processes( int numberOfProcesses ) {
+        final List<Vertex> processes = new ArrayList<>( numberOfProcesses );
+        for ( int i = 0; i < numberOfProcesses; i++ ) {
+            processes.add( new Process( "p" + i, i ) );
+        }
+        return processes;
+    }
+
+    /**
+     * Random edges that only point from lower to higher uids, so the graph stays acyclic
+     */
+    static List<InputEdge> edges( int numberOfProcesses, int edgesPerProcess, long seed ) {
+        final Random random = new Random( seed );
+        final List<InputEdge> edges = new ArrayList<>( numberOfProcesses * edgesPerProcess );
+        int uid = 0;
+        for ( int to = 1; to < numberOfProcesses; to++ ) {
+            for ( int i = 0; i < edgesPerProcess; i++ ) {
+                edges.add( new InputEdge( uid++, random.nextInt( to ), to ) );
+            }
+        }
+        return edges;
+    }
+
+    static DAG dag( int numberOfProcesses ) {
+        final DAG dag = new DAG();
+        dag.registerVertices( processes( numberOfProcesses ) );
+        dag.registerEdges( edges( numberOfProcesses, 2, 42 ) );
+        return dag;
+    }
+
+    static List<Task> tasks( int numberOfTasks, DAG dag, int numberOfProcesses, long seed ) {
+        final Random random = new Random( seed );
+        final List<Task> tasks = new ArrayList<>( numberOfTasks );
+        for ( int i = 0; i < numberOfTasks; i++ ) {
+            final Requirements requirements = new Requirements(
+                    BigDecimal.valueOf( 1 + random.nextInt( 4 ) ),
+                    BigDecimal.valueOf( ( 1L + random.nextInt( 16 ) ) << 30 )
+            );
+            final BenchmarkTask task = new BenchmarkTask( "p" + random.nextInt( numberOfProcesses ), dag,
+                    random.nextInt( 1 << 20 ), requirements );
+            final ObjectMeta metadata = new ObjectMeta();
+            metadata.setName( "pod-" + i );
+            metadata.setUid( "uid-" + i );
+            task.setPod( new PodWithAge( metadata, new PodSpec(), null ) );
+            tasks.add( task );
+        }
+        return tasks;
+    }
+
+    static List<NodeWithAlloc> nodes( int numberOfNodes ) {
+        final List<NodeWithAlloc> nodes = new ArrayList<>( numberOfNodes );
+        for ( int i = 0; i < numberOfNodes; i++ ) {
+            final Node node = new NodeBuilder()
+                    .withApiVersion( "v1" )
+                    .withKind( "Node" )
+                    .withNewMetadata().withName( "node-" + i ).endMetadata()
+                    .withNewSpec().endSpec()
+                    .withNewStatus()
+                        .addToAllocatable( "cpu", new Quantity( "32" ) )
+                        .addToAllocatable( "memory", new Quantity( "128Gi" ) )
+                        .addNewCondition().withType( "Ready" ).withStatus( "True" ).endCondition()
+                    .endStatus()
+                    .build();
+            nodes.add( new NodeWithAlloc( node, null ) );
+        }
+        return nodes;
+    }
+
+    static Map<NodeWithAlloc, Requirements> availableByNode( List<NodeWithAlloc> nodes ) {
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        for ( NodeWithAlloc node : nodes ) {
+            availableByNode.put( node, new Requirements().addToThis( node.getMaxResources() ) );
+        }
+        return availableByNode;
+    }
+
+    static class BenchmarkTask extends Task {
+
+        private final long inputSize;
+        private final Requirements requirements;
+
+        BenchmarkTask( String process, DAG dag, long inputSize, Requirements requirements ) {
+            super( new TaskConfig( process ), dag );
+            this.inputSize = inputSize;
+            this.requirements = requirements;
+        }
+
+        @Override
+        public long getInputSize() {
+            return inputSize;
+        }
+
+        @Override
+        public Requirements getPlanedRequirements() {
+            return requirements;
+        }
+
+    }
+
+}
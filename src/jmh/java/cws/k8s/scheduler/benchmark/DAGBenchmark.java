@@ -0,0 +1,49 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Vertex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers all edges of a random acyclic graph at once, as the workflow engine does at the start of a run
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DAGBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int processes;
+
+    @Param({ "1", "4" })
+    int edgesPerProcess;
+
+    private List<InputEdge> edges;
+    private DAG dag;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        edges = BenchmarkData.edges( processes, edgesPerProcess, 42 );
+    }
+
+    @Setup(Level.Invocation)
+    public void registerVertices() {
+        final List<Vertex> vertices = BenchmarkData.processes( processes );
+        dag = new DAG();
+        dag.registerVertices( vertices );
+    }
+
+    @Benchmark
+    public DAG registerEdges() {
+        dag.registerEdges( edges );
+        return dag;
+    }
+
+}
@@ -0,0 +1,74 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import cws.k8s.scheduler.scheduler.nodeassign.FairAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.RandomNodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.RoundRobinAssign;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aligns one round of tasks to the nodes, the scheduler is only needed for the feasibility checks
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NodeAssignBenchmark {
+
+    @Param({ "10", "100", "1000", "10000" })
+    int nodes;
+
+    @Param({ "1000", "10000" })
+    int tasks;
+
+    @Param({ "fair", "roundrobin", "random" })
+    String assign;
+
+    private NodeAssign nodeAssign;
+    private List<NodeWithAlloc> cluster;
+    private List<Task> unscheduledTasks;
+    private Map<NodeWithAlloc, Requirements> availableByNode;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final int numberOfProcesses = 100;
+        final DAG dag = BenchmarkData.dag( numberOfProcesses );
+        unscheduledTasks = BenchmarkData.tasks( tasks, dag, numberOfProcesses, 42 );
+        cluster = BenchmarkData.nodes( nodes );
+        nodeAssign = switch ( assign ) {
+            case "fair" -> new FairAssign();
+            case "roundrobin" -> new RoundRobinAssign();
+            case "random" -> new RandomNodeAssign();
+            default -> throw new IllegalArgumentException( "Unknown assign: " + assign );
+        };
+        nodeAssign.registerScheduler( Mockito.mock( Scheduler.class, Mockito.CALLS_REAL_METHODS ) );
+    }
+
+    /**
+     * Every invocation is a new round with fresh resources, so no task class is still parked from the last one
+     */
+    @Setup(Level.Invocation)
+    public void resetResources() {
+        availableByNode = BenchmarkData.availableByNode( cluster );
+        NodeWithAlloc.advanceCapacityEpoch();
+    }
+
+    @Benchmark
+    public List<NodeTaskAlignment> getTaskNodeAlignment() {
+        return nodeAssign.getTaskNodeAlignment( unscheduledTasks, availableByNode, NodeWithAlloc.getCapacityEpoch() );
+    }
+
+}
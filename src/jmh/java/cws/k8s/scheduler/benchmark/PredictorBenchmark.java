@@ -0,0 +1,79 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.extractor.VariableExtractor;
+import cws.k8s.scheduler.prediction.offset.PercentileOffset;
+import cws.k8s.scheduler.prediction.offset.VarianceOffset;
+import cws.k8s.scheduler.prediction.predictor.LinearPredictorCustomLoss;
+import cws.k8s.scheduler.prediction.predictor.LinearPredictorSquaredLoss;
+import cws.k8s.scheduler.prediction.predictor.MeanPredictor;
+import cws.k8s.scheduler.prediction.predictor.PolynomialPredictor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one observation and one query on top of a predictor that already learned history tasks
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PredictorBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    int history;
+
+    @Param({ "linear", "linear_custom", "polynomial", "mean", "linear_variance", "linear_percentile" })
+    String predictor;
+
+    private static final VariableExtractor input = Task::getInputSize;
+    private static final VariableExtractor output = t -> 3d * t.getInputSize() + ( t.getId() % 17 ) * 1024d;
+
+    private Predictor model;
+    private List<Task> tasks;
+    private int index = 0;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        final DAG dag = BenchmarkData.dag( 1 );
+        tasks = BenchmarkData.tasks( history + 1024, dag, 1, 42 );
+        model = switch ( predictor ) {
+            case "linear" -> new LinearPredictorSquaredLoss( input, output );
+            case "linear_custom" -> new LinearPredictorCustomLoss( input, output );
+            case "polynomial" -> new PolynomialPredictor( input, output, 2 );
+            case "mean" -> new MeanPredictor( output );
+            case "linear_variance" -> new VarianceOffset( new LinearPredictorSquaredLoss( input, output ) );
+            case "linear_percentile" -> new PercentileOffset( new LinearPredictorSquaredLoss( input, output ), 95 );
+            default -> throw new IllegalArgumentException( "Unknown predictor: " + predictor );
+        };
+        for ( int i = 0; i < history; i++ ) {
+            model.addTask( tasks.get( i ) );
+        }
+        index = history;
+    }
+
+    private Task next() {
+        final Task task = tasks.get( index );
+        index = index + 1 == tasks.size() ? history : index + 1;
+        return task;
+    }
+
+    @Benchmark
+    public Double addTaskAndQuery() {
+        final Task task = next();
+        model.addTask( task );
+        return model.queryPrediction( task );
+    }
+
+    @Benchmark
+    public Double queryPrediction() {
+        return model.queryPrediction( next() );
+    }
+
+}
@@ -0,0 +1,62 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.prioritize.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrioritizeBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    int tasks;
+
+    @Param({ "fifo", "rank", "rank_min", "rank_max", "lff", "lff_max", "gs", "gsm", "max", "min", "random" })
+    String prioritize;
+
+    private Prioritize sorter;
+    private List<Task> unsortedTasks;
+    private List<Task> toSort;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final int numberOfProcesses = 100;
+        final DAG dag = BenchmarkData.dag( numberOfProcesses );
+        unsortedTasks = BenchmarkData.tasks( tasks, dag, numberOfProcesses, 42 );
+        sorter = switch ( prioritize ) {
+            case "fifo" -> new FifoPrioritize();
+            case "rank" -> new RankPrioritize();
+            case "rank_min" -> new RankMinPrioritize();
+            case "rank_max" -> new RankMaxPrioritize();
+            case "lff" -> new LeastFinishedFirstPrioritize();
+            case "lff_max" -> new LeastFinishedFirstMaxPrioritize();
+            case "gs" -> new GetSamplesMinPrioritize();
+            case "gsm" -> new GetSamplesMaxPrioritize();
+            case "max" -> new MaxInputPrioritize();
+            case "min" -> new MinInputPrioritize();
+            case "random" -> new RandomPrioritize();
+            default -> throw new IllegalArgumentException( "Unknown prioritize: " + prioritize );
+        };
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        toSort = new ArrayList<>( unsortedTasks );
+    }
+
+    @Benchmark
+    public List<Task> sortTasks() {
+        sorter.sortTasks( toSort );
+        return toSort;
+    }
+
+}
@@ -0,0 +1,58 @@
+package cws.k8s.scheduler.benchmark;
+
+import cws.k8s.scheduler.model.Requirements;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequirementsBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final Requirements[] requests = new Requirements[SIZE];
+    private Requirements available;
+    private int index = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random( 42 );
+        for ( int i = 0; i < SIZE; i++ ) {
+            requests[i] = new Requirements(
+                    BigDecimal.valueOf( random.nextInt( 8000 ), 3 ),
+                    BigDecimal.valueOf( ( 1L + random.nextInt( 16 ) ) << 30 )
+            );
+        }
+        available = new Requirements( BigDecimal.valueOf( 64 ), BigDecimal.valueOf( 256L << 30 ) );
+    }
+
+    private Requirements next() {
+        index = ( index + 1 ) & ( SIZE - 1 );
+        return requests[index];
+    }
+
+    @Benchmark
+    public Requirements addAndSub() {
+        final Requirements request = next();
+        available.addToThis( request );
+        return available.subFromThis( request );
+    }
+
+    @Benchmark
+    public Requirements sub() {
+        return available.sub( next() );
+    }
+
+    @Benchmark
+    public boolean higherOrEquals() {
+        return available.higherOrEquals( next() );
+    }
+
+}
@@ -1,5 +1,7 @@
 package cws.k8s.scheduler.client;
 
+import cws.k8s.scheduler.metrics.SchedulingMetrics;
+import cws.k8s.scheduler.model.CapacityArbiter;
 import cws.k8s.scheduler.model.NodeWithAlloc;
 import cws.k8s.scheduler.model.PodWithAge;
 import cws.k8s.scheduler.model.Task;
@@ -13,11 +15,13 @@ import io.fabric8.kubernetes.client.dsl.MixedOperation;
 import io.fabric8.kubernetes.client.dsl.NonNamespaceOperation;
 import io.fabric8.kubernetes.client.dsl.PodResource;
 import io.fabric8.kubernetes.client.dsl.Resource;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 @Slf4j
 public class CWSKubernetesClient {
@@ -25,7 +29,14 @@ public class CWSKubernetesClient {
     private final KubernetesClient client;
 
     private final Map<String, NodeWithAlloc> nodeHolder = new HashMap<>();
-    private final List<Informable> informables = new LinkedList<>();
+    private final List<Informable> informables = new CopyOnWriteArrayList<>();
+    private final NodeWatcher nodeWatcher = new NodeWatcher( this );
+    private final PodWatcher podWatcher = new PodWatcher( this );
+    /**
+     * Shared by all executions that schedule onto the nodes of this client
+     */
+    @Getter
+    private final CapacityArbiter capacityArbiter = new CapacityArbiter();
 
     public CWSKubernetesClient() {
         KubernetesClientBuilder builder = new KubernetesClientBuilder();
@@ -33,8 +44,32 @@ public class CWSKubernetesClient {
         for( Node node : this.nodes().list().getItems() ){
             nodeHolder.put( node.getMetadata().getName(), new NodeWithAlloc(node,this) );
         }
-        this.pods().inAnyNamespace().watch( new PodWatcher( this ) );
-        this.nodes().watch( new NodeWatcher( this ) );
+        this.pods().inAnyNamespace().watch( podWatcher );
+        this.nodes().watch( nodeWatcher );
+    }
+
+    /**
+     * For clients that are not connected to a cluster, e.g., the simulation.
+     * Such a client has to override all methods that access the cluster
+     * and passes node and pod events via {@link #nodeEventReceived} and {@link #podEventReceived}.
+     */
+    protected CWSKubernetesClient( KubernetesClient client ) {
+        this.client = client;
+    }
+
+    protected void nodeEventReceived( Watcher.Action action, Node node ) {
+        nodeWatcher.eventReceived( action, node );
+    }
+
+    protected void podEventReceived( Watcher.Action action, Pod pod ) {
+        podWatcher.eventReceived( action, pod );
+    }
+
+    /**
+     * Watch all pods in a namespace
+     */
+    public Watch watchPods( String namespace, Watcher<Pod> watcher ) {
+        return pods().inNamespace( namespace ).watch( watcher );
     }
 
     public NonNamespaceOperation<Node, NodeList, Resource<Node>> nodes() {
@@ -50,38 +85,32 @@ public class CWSKubernetesClient {
     }
 
     public void addInformable( Informable informable ){
-        synchronized ( informables ){
-            informables.add( informable );
-        }
+        informables.add( informable );
     }
 
     public void removeInformable( Informable informable ){
-        synchronized ( informables ){
-            informables.remove( informable );
-        }
+        informables.remove( informable );
     }
 
-    private void informAllInformable(){
-        synchronized ( informables ){
-            for (Informable informable : informables ) {
-                informable.informResourceChange();
-            }
+    /**
+     * Informs all informables that resources on the node were released.
+     * Iterates over a snapshot, so no lock is held while calling into the schedulers.
+     */
+    private void informAllInformable( NodeWithAlloc node ){
+        for (Informable informable : informables ) {
+            informable.informResourceChange( node );
         }
     }
 
     private void informAllNewNode( NodeWithAlloc node ){
-        synchronized ( informables ){
-            for (Informable informable : informables ) {
-                informable.newNode( node );
-            }
+        for (Informable informable : informables ) {
+            informable.newNode( node );
         }
     }
 
     private void informAllRemovedNode( NodeWithAlloc node ){
-        synchronized ( informables ){
-            for (Informable informable : informables ) {
-                informable.removedNode( node );
-            }
+        for (Informable informable : informables ) {
+            informable.removedNode( node );
         }
     }
 
@@ -90,6 +119,7 @@ public class CWSKubernetesClient {
     }
 
     public void assignPodToNode( PodWithAge pod, String node ) {
+        final long start = System.nanoTime();
         for ( int i = 0; i < 5; i++ ) {
             try {
                 Thread.sleep( 1000L * (int) (Math.pow( 2, i ) - 1) );
@@ -109,14 +139,17 @@ public class CWSKubernetesClient {
                         .inNamespace( pod.getMetadata().getNamespace() )
                         .resource( build )
                         .create();
+                SchedulingMetrics.recordBind( System.nanoTime() - start, i );
                 return;
             } catch ( KubernetesClientException e ) {
                 if ( e.getStatus().getMessage().toLowerCase().contains( "is already assigned to node" ) ) {
                     // If node is already assigned, ignore (happens if binding timeouts)
+                    SchedulingMetrics.recordBind( System.nanoTime() - start, i );
                     return;
                 }
                 e.printStackTrace();
                 if ( i == 4 ) {
+                    SchedulingMetrics.recordBind( System.nanoTime() - start, i );
                     throw e;
                 }
             }
@@ -153,7 +186,10 @@ public class CWSKubernetesClient {
                 case MODIFIED:
                     final NodeWithAlloc nodeWithAlloc = kubernetesClient.nodeHolder.get( node.getMetadata().getName() );
                     if ( nodeWithAlloc != null ){
-                        nodeWithAlloc.update( node );
+                        // most updates are heartbeats that change nothing scheduling depends on
+                        if ( nodeWithAlloc.update( node ) ) {
+                            kubernetesClient.informAllInformable( nodeWithAlloc );
+                        }
                         break;
                     }
                     // If the node is not in the nodeHolder, it is a new node
@@ -180,6 +216,7 @@ public class CWSKubernetesClient {
                     }
                     if ( change ) {
                         kubernetesClient.informAllRemovedNode( processedNode );
+                        NodeWithAlloc.releaseId( processedNode );
                     }
                     break;
                 case ERROR:
@@ -226,7 +263,7 @@ public class CWSKubernetesClient {
                         //Delete Pod in any case
                         if ( node.removePod( pod ) ){
                             log.info("Pod has released its resources: {}", pod.getMetadata().getName());
-                            kubernetesClient.informAllInformable();
+                            kubernetesClient.informAllInformable( node );
                         }
                         break;
                     default: log.warn("No implementation for {}", action);
@@ -274,35 +311,16 @@ public class CWSKubernetesClient {
      * @return false if patching failed because of InPlacePodVerticalScaling
      */
     public boolean patchTaskMemory( Task t ) {
+        final long start = System.nanoTime();
         try {
-            final String valueAsString = t.getPlanedRequirements().getRam()
-                    .divide( BigDecimal.valueOf( 1024L * 1024L ) )
-                    .setScale( 0, RoundingMode.CEILING ).toPlainString() + "Mi";
+            final String valueAsString = plannedMemoryOf( t );
             final PodWithAge pod = t.getPod();
             String namespace = pod.getMetadata().getNamespace();
             String podname = pod.getName();
             Resource<Pod> podResource = pods()
                     .inNamespace( namespace )
                     .withName( podname );
-            Container container = podResource.get().getSpec().getContainers().get(0); // Assuming only one container
-            Container modifiedContainer = new ContainerBuilder(container)
-                    .editOrNewResources()
-                    .removeFromLimits( "memory" )
-                    .removeFromRequests( "memory" )
-                    .addToLimits("memory", new Quantity(valueAsString))
-                    .addToRequests("memory", new Quantity(valueAsString))
-                    .endResources()
-                    .build();
-
-            Pod modifiedPod = new PodBuilder( podResource.get() )
-                    .editOrNewSpec()
-                    .removeFromContainers( container )
-                    .addToContainers(modifiedContainer)
-                    .endSpec()
-                    .editOrNewMetadata()
-                    .addToLabels( "commonworkflowscheduler/memoryscaled", "true" )
-                    .endMetadata()
-                    .build();
+            Pod modifiedPod = withMemory( podResource.get(), valueAsString );
 
             t.setPod( new PodWithAge( modifiedPod ) );
 
@@ -316,8 +334,44 @@ public class CWSKubernetesClient {
                 log.error("Could not patch task: {}", t.getConfig().getName(), e);
             }
             throw new CannotPatchException( e.getMessage() );
+        } finally {
+            SchedulingMetrics.recordPatch( System.nanoTime() - start );
         }
         return true;
     }
 
+    /**
+     * @return the planned memory of the task in Mi
+     */
+    protected static String plannedMemoryOf( Task t ) {
+        return t.getPlanedRequirements().getRam()
+                .divide( BigDecimal.valueOf( 1024L * 1024L ) )
+                .setScale( 0, RoundingMode.CEILING ).toPlainString() + "Mi";
+    }
+
+    /**
+     * @return a copy of the pod, whose memory request and limit are set to the given value
+     */
+    protected static Pod withMemory( Pod pod, String memory ) {
+        Container container = pod.getSpec().getContainers().get(0); // Assuming only one container
+        Container modifiedContainer = new ContainerBuilder(container)
+                .editOrNewResources()
+                .removeFromLimits( "memory" )
+                .removeFromRequests( "memory" )
+                .addToLimits("memory", new Quantity(memory))
+                .addToRequests("memory", new Quantity(memory))
+                .endResources()
+                .build();
+
+        return new PodBuilder( pod )
+                .editOrNewSpec()
+                .removeFromContainers( container )
+                .addToContainers(modifiedContainer)
+                .endSpec()
+                .editOrNewMetadata()
+                .addToLabels( "commonworkflowscheduler/memoryscaled", "true" )
+                .endMetadata()
+                .build();
+    }
+
 }
@@ -5,6 +5,16 @@ import cws.k8s.scheduler.model.NodeWithAlloc;
 public interface Informable {
 
     void informResourceChange();
+
+    /**
+     * Resources on the given node were released.
+     * Implementations may ignore the event if they cannot use the node.
+     * By default, this is handled like an untargeted resource change.
+     */
+    default void informResourceChange( NodeWithAlloc node ) {
+        informResourceChange();
+    }
+
     void newNode( NodeWithAlloc node );
     void removedNode( NodeWithAlloc node );
 
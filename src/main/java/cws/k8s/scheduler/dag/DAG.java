@@ -1,8 +1,11 @@
 package cws.k8s.scheduler.dag;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToDoubleFunction;
 
 public class DAG {
 
@@ -90,4 +93,67 @@ public class DAG {
         }
     }
 
+    /**
+     * Computes the upward rank of all processes, like HEFT does: the weight of the process plus the largest upward rank of all succeeding processes.
+     * Vertices that are not processes have no weight.
+     * The vertices are visited in reverse topological order, so deep DAGs do not need a deep call stack.
+     * @param weight the expected runtime of a process
+     * @return the upward rank of each process, i.e., the length of the longest path to an exit of the DAG
+     */
+    public Map<Process, Double> upwardRanks( ToDoubleFunction<Process> weight ){
+        synchronized ( this.vertices ) {
+            final Map<Vertex, Double> ranks = new HashMap<>();
+            final Map<Vertex, Integer> unrankedSuccessors = new HashMap<>();
+            final Deque<Vertex> ready = new ArrayDeque<>();
+            for ( Vertex vertex : vertices.values() ) {
+                int successors = 0;
+                for ( Edge edge : vertex.getOut() ) {
+                    if ( isRegistered( edge.getTo() ) ) {
+                        successors++;
+                    }
+                }
+                unrankedSuccessors.put( vertex, successors );
+                if ( successors == 0 ) {
+                    ready.add( vertex );
+                }
+            }
+            final Map<Process, Double> result = new HashMap<>();
+            while ( ranks.size() < vertices.size() ) {
+                if ( ready.isEmpty() ) {
+                    // a cycle, rank one of its vertices with the successors ranked so far
+                    for ( Vertex vertex : vertices.values() ) {
+                        if ( !ranks.containsKey( vertex ) ) {
+                            ready.add( vertex );
+                            break;
+                        }
+                    }
+                }
+                final Vertex vertex = ready.poll();
+                if ( ranks.containsKey( vertex ) ) {
+                    continue;
+                }
+                double maxSuccessor = 0;
+                for ( Edge edge : vertex.getOut() ) {
+                    maxSuccessor = Math.max( maxSuccessor, ranks.getOrDefault( edge.getTo(), 0d ) );
+                }
+                final double rank = ( vertex.getType() == Type.PROCESS ? weight.applyAsDouble( (Process) vertex ) : 0 ) + maxSuccessor;
+                ranks.put( vertex, rank );
+                if ( vertex.getType() == Type.PROCESS ) {
+                    result.put( (Process) vertex, rank );
+                }
+                for ( Edge edge : vertex.getIn() ) {
+                    final Vertex predecessor = edge.getFrom();
+                    if ( isRegistered( predecessor ) && unrankedSuccessors.merge( predecessor, -1, Integer::sum ) == 0 ) {
+                        ready.add( predecessor );
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+    private boolean isRegistered( Vertex vertex ){
+        return vertices.get( vertex.getUid() ) == vertex;
+    }
+
 }
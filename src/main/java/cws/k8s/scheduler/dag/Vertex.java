@@ -24,6 +24,23 @@ public abstract class Vertex {
 
     public abstract Type getType();
 
+    /**
+     * Creates a vertex of the given type
+     */
+    public static Vertex of( Type type, String label, int uid ) {
+        if ( Type.PROCESS == type ) {
+           return new Process( label, uid );
+        } else if ( Type.OPERATOR == type ) {
+            return new Operator( label, uid );
+        } else if ( Type.ORIGIN == type ) {
+            return new Origin( label, uid );
+        }  else if ( Type.NODE == type ) {
+            return new Node( label, uid );
+        } else {
+            throw new IllegalArgumentException( "No implementation for type: " + type );
+        }
+    }
+
     public abstract void addInbound( Edge e );
 
     public void removeInbound( Edge e ) {
@@ -24,17 +24,7 @@ public class VertexDeserializer extends JsonDeserializer<Vertex> {
         final String label = labelNode instanceof NullNode ? null : ((TextNode) labelNode).asText();
         final int uid =  ((IntNode) treeNode.get("uid")).asInt();
 
-        if ( Type.PROCESS == type ) {
-           return new Process( label, uid );
-        } else if ( Type.OPERATOR == type ) {
-            return new Operator( label, uid );
-        } else if ( Type.ORIGIN == type ) {
-            return new Origin( label, uid );
-        }  else if ( Type.NODE == type ) {
-            return new Node( label, uid );
-        } else {
-            throw new IllegalArgumentException( "No implementation for type: " + type + "(" + treeNode + ")" );
-        }
+        return Vertex.of( type, label, uid );
 
     }
 
@@ -0,0 +1,105 @@
+package cws.k8s.scheduler.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Live metrics of the scheduling loop.
+ * Meters are registered in Micrometer's global registry, Spring Boot adds its registries to it,
+ * so all values are exported via /actuator/prometheus.
+ * One instance exists per execution; binding and patching are measured cluster-wide.
+ */
+public class SchedulingMetrics {
+
+    private static final MeterRegistry registry = Metrics.globalRegistry;
+
+    private static final Timer bindTimer = Timer.builder( "cws.scheduler.bind" )
+            .description( "Time to bind a pod to a node, including all retries" )
+            .publishPercentileHistogram()
+            .register( registry );
+
+    private static final DistributionSummary bindRetries = DistributionSummary.builder( "cws.scheduler.bind.retries" )
+            .description( "Number of retries needed to bind a pod" )
+            .publishPercentileHistogram()
+            .register( registry );
+
+    private static final Timer patchTimer = Timer.builder( "cws.scheduler.patch" )
+            .description( "Time to patch the memory of a pod" )
+            .publishPercentileHistogram()
+            .register( registry );
+
+    private final String execution;
+    private final List<Meter> meters = new LinkedList<>();
+    private final Timer roundTimer;
+    private final Timer availableByNodeTimer;
+    private final Timer assignmentTimer;
+
+    public SchedulingMetrics( String execution ) {
+        this.execution = execution;
+        roundTimer = timer( "cws.scheduler.round", "Time of one scheduling round" );
+        availableByNodeTimer = timer( "cws.scheduler.available", "Time to determine the available resources per node" );
+        assignmentTimer = timer( "cws.scheduler.assignment", "Time to align the unscheduled tasks to nodes" );
+    }
+
+    private Timer timer( String name, String description ) {
+        final Timer timer = Timer.builder( name )
+                .description( description )
+                .tag( "execution", execution )
+                .publishPercentileHistogram()
+                .register( registry );
+        meters.add( timer );
+        return timer;
+    }
+
+    /**
+     * Registers a gauge for the number of tasks in a queue of this execution
+     * @param queue name of the queue, used as tag
+     * @param size supplies the current number of tasks in the queue
+     */
+    public void registerQueue( String queue, Supplier<Number> size ) {
+        meters.add( Gauge.builder( "cws.scheduler.queue", size )
+                .description( "Number of tasks in a queue of the scheduler" )
+                .tag( "execution", execution )
+                .tag( "queue", queue )
+                .register( registry ) );
+    }
+
+    public void recordRound( long nanos ) {
+        roundTimer.record( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    public void recordAvailableByNode( long nanos ) {
+        availableByNodeTimer.record( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    public void recordAssignment( long nanos ) {
+        assignmentTimer.record( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    public static void recordBind( long nanos, int retries ) {
+        bindTimer.record( nanos, TimeUnit.NANOSECONDS );
+        bindRetries.record( retries );
+    }
+
+    public static void recordPatch( long nanos ) {
+        patchTimer.record( nanos, TimeUnit.NANOSECONDS );
+    }
+
+    /**
+     * Removes all meters of this execution
+     */
+    public void close() {
+        meters.forEach( registry::remove );
+        meters.clear();
+    }
+
+}
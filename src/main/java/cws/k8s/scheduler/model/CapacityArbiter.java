@@ -0,0 +1,196 @@
+package cws.k8s.scheduler.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shares the cluster between all executions that use the same client, using dominant resource fairness (DRF).
+ * The dominant share of an execution is the larger of its cpu and ram share of the cluster, divided by its weight.
+ * A reservation is only admitted if no other waiting execution has a smaller dominant share and a pending task that fits
+ * the resources currently free on the node, so capacity that no waiting execution can use is never held back.
+ * The free resources already exclude the reservations of the current scheduling rounds.
+ * Admission and the reservation on the node are atomic, so the accounting always matches the nodes.
+ */
+@Slf4j
+public class CapacityArbiter {
+
+    /**
+     * The requirements and node selector of pending tasks, tasks with equal demands use the same nodes
+     */
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Demand {
+        private final BigDecimal cpu;
+        private final BigDecimal ram;
+        private final Map<String, String> nodeSelector;
+
+        private static Demand of( Task task ) {
+            final Requirements requirements = task.getPlanedRequirements();
+            return new Demand( requirements.getCpu(), requirements.getRam(), task.getPod().getSpec().getNodeSelector() );
+        }
+
+        private boolean canUse( NodeWithAlloc node, Requirements free ) {
+            if ( free.getCpu().compareTo( cpu ) < 0 || free.getRam().compareTo( ram ) < 0 ) {
+                return false;
+            }
+            if ( nodeSelector == null || nodeSelector.isEmpty() ) {
+                return true;
+            }
+            final Map<String, String> labels = node.getMetadata().getLabels();
+            return labels != null && labels.entrySet().containsAll( nodeSelector.entrySet() );
+        }
+    }
+
+    private static final class Account {
+        private final double weight;
+        private final Map<String, Requirements> byPod = new HashMap<>();
+        private final Requirements used = new Requirements();
+        /**
+         * Demands of the tasks that could not be placed in the execution's last scheduling round
+         */
+        private final Set<Demand> waiting = new HashSet<>();
+
+        private Account( double weight ) {
+            this.weight = weight;
+        }
+
+        /**
+         * @return true if a waiting task could use the free resources of the node
+         */
+        private boolean waitsFor( NodeWithAlloc node, Requirements free ) {
+            for ( Demand demand : waiting ) {
+                if ( demand.canUse( node, free ) ) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final Map<String, Account> accounts = new HashMap<>();
+    private double capacityCpu = 0;
+    private double capacityRam = 0;
+
+    /**
+     * @param weight an execution gets a share of the cluster proportional to its weight
+     */
+    public synchronized void register( String execution, double weight ) {
+        if ( !( weight > 0 ) ) {
+            throw new IllegalArgumentException( "The fair share weight has to be positive, but was " + weight );
+        }
+        accounts.putIfAbsent( execution, new Account( weight ) );
+    }
+
+    public synchronized void unregister( String execution ) {
+        accounts.remove( execution );
+    }
+
+    /**
+     * Has to be called at the beginning of each scheduling round
+     * @param nodes the nodes that can be used at the moment
+     */
+    public synchronized void updateCapacity( Collection<NodeWithAlloc> nodes ) {
+        double cpu = 0;
+        double ram = 0;
+        for ( NodeWithAlloc node : nodes ) {
+            final Requirements max = node.getMaxResources();
+            cpu += max.getCpu().doubleValue();
+            ram += max.getRam().doubleValue();
+        }
+        capacityCpu = cpu;
+        capacityRam = ram;
+    }
+
+    /**
+     * Reserves the resources for a task's pod on the node if the node has enough resources left
+     * and the execution does not exceed its fair share while others wait for this node.
+     * A denial advances the capacity epoch: the assignment had counted the resources as used, tasks that were skipped because of them can use them now.
+     * @return true if the resources were reserved
+     */
+    public synchronized boolean reserve( String execution, NodeWithAlloc node, Task task ) {
+        final String podUid = task.getPod().getMetadata().getUid();
+        final Requirements request = task.getPlanedRequirements();
+        final Account account = accounts.get( execution );
+        if ( account == null ) {
+            return node.reserve( podUid, request );
+        }
+        final double share = dominantShare( account );
+        Requirements free = null;
+        for ( Map.Entry<String, Account> entry : accounts.entrySet() ) {
+            final Account other = entry.getValue();
+            if ( other == account || other.waiting.isEmpty() || dominantShare( other ) >= share ) {
+                continue;
+            }
+            if ( free == null ) {
+                free = node.getAvailableResources();
+            }
+            if ( other.waitsFor( node, free ) ) {
+                log.debug( "Execution {} has a dominant share of {}, {} is waiting with {}",
+                        execution, share, entry.getKey(), dominantShare( other ) );
+                account.waiting.add( Demand.of( task ) );
+                NodeWithAlloc.advanceCapacityEpoch();
+                return false;
+            }
+        }
+        if ( !node.reserve( podUid, request ) ) {
+            return false;
+        }
+        final Requirements replaced = account.byPod.put( podUid, request );
+        if ( replaced != null ) {
+            account.used.subFromThis( replaced );
+        }
+        account.used.addToThis( request );
+        return true;
+    }
+
+    /**
+     * Removes a pod from the execution's share, the node's reservation is released separately
+     */
+    public synchronized void release( String execution, String podUid ) {
+        final Account account = accounts.get( execution );
+        if ( account == null ) {
+            return;
+        }
+        final Requirements removed = account.byPod.remove( podUid );
+        if ( removed != null ) {
+            account.used.subFromThis( removed );
+        }
+    }
+
+    /**
+     * Has to be called at the end of each scheduling round
+     * @param waitingTasks all tasks the execution could not place yet, in all of its shards
+     */
+    public synchronized void setWaiting( String execution, Collection<Task> waitingTasks ) {
+        final Account account = accounts.get( execution );
+        if ( account != null ) {
+            account.waiting.clear();
+            for ( Task task : waitingTasks ) {
+                account.waiting.add( Demand.of( task ) );
+            }
+        }
+    }
+
+    /**
+     * @return the weighted dominant share of the execution, NaN if it is not registered
+     */
+    public synchronized double getDominantShare( String execution ) {
+        final Account account = accounts.get( execution );
+        return account == null ? Double.NaN : dominantShare( account );
+    }
+
+    private double dominantShare( Account account ) {
+        final double cpu = capacityCpu <= 0 ? 0 : account.used.getCpu().doubleValue() / capacityCpu;
+        final double ram = capacityRam <= 0 ? 0 : account.used.getRam().doubleValue() / capacityRam;
+        return Math.max( cpu, ram ) / account.weight;
+    }
+
+}
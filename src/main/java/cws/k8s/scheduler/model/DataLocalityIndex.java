@@ -0,0 +1,53 @@
+package cws.k8s.scheduler.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers on which node each finished task ran. A task writes its outputs into its working directory,
+ * therefore, a file belongs to the node of the working directory that is the longest prefix of its path.
+ */
+public class DataLocalityIndex {
+
+    private final Map<String, NodeWithAlloc> nodeByWorkDir = new ConcurrentHashMap<>();
+
+    /**
+     * Call after a task finished successfully
+     */
+    public void taskFinished( Task task ) {
+        final String workDir = task.getWorkingDir();
+        final NodeWithAlloc node = task.getNode();
+        if ( workDir != null && node != null ) {
+            nodeByWorkDir.put( stripTrailingSlash( workDir ), node );
+        }
+    }
+
+    /**
+     * Looks up the parent directories of the path, the cost grows with the depth of the path, not with the number of tasks
+     * @return the node that produced the file, or null if it is unknown
+     */
+    public NodeWithAlloc getNode( String path ) {
+        String prefix = stripTrailingSlash( path );
+        while ( !prefix.isEmpty() ) {
+            final NodeWithAlloc node = nodeByWorkDir.get( prefix );
+            if ( node != null ) {
+                return node;
+            }
+            final int slash = prefix.lastIndexOf( '/' );
+            if ( slash < 0 ) {
+                return null;
+            }
+            prefix = prefix.substring( 0, slash );
+        }
+        return null;
+    }
+
+    public int size() {
+        return nodeByWorkDir.size();
+    }
+
+    private static String stripTrailingSlash( String path ) {
+        return path.endsWith( "/" ) ? path.substring( 0, path.length() - 1 ) : path;
+    }
+
+}
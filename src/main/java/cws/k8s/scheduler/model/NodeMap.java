@@ -0,0 +1,152 @@
+package cws.k8s.scheduler.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map from nodes to values, stored in arrays indexed by {@link NodeWithAlloc#getId()}.
+ * Lookups neither hash nor allocate. Not thread safe, meant for the state of one scheduling round.
+ * Iteration follows the node ids.
+ */
+public class NodeMap<V> extends AbstractMap<NodeWithAlloc, V> {
+
+    private NodeWithAlloc[] nodes;
+    private Object[] values;
+    private int size = 0;
+
+    public NodeMap() {
+        final int length = Math.max( 16, NodeWithAlloc.getNumberOfIds() );
+        nodes = new NodeWithAlloc[length];
+        values = new Object[length];
+    }
+
+    @Override
+    public V put( NodeWithAlloc node, V value ) {
+        final int id = node.getId();
+        if ( id >= nodes.length ) {
+            final int length = Math.max( id + 1, nodes.length * 2 );
+            nodes = Arrays.copyOf( nodes, length );
+            values = Arrays.copyOf( values, length );
+        }
+        // a removed node whose id was reused is replaced
+        final V old = node.equals( nodes[id] ) ? valueAt( id ) : null;
+        if ( nodes[id] == null ) {
+            size++;
+        }
+        nodes[id] = node;
+        values[id] = value;
+        return old;
+    }
+
+    @Override
+    public V get( Object key ) {
+        final int id = indexOf( key );
+        return id < 0 ? null : valueAt( id );
+    }
+
+    @Override
+    public boolean containsKey( Object key ) {
+        return indexOf( key ) >= 0;
+    }
+
+    @Override
+    public V remove( Object key ) {
+        final int id = indexOf( key );
+        if ( id < 0 ) {
+            return null;
+        }
+        final V old = valueAt( id );
+        nodes[id] = null;
+        values[id] = null;
+        size--;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill( nodes, null );
+        Arrays.fill( values, null );
+        size = 0;
+    }
+
+    private int indexOf( Object key ) {
+        if ( !(key instanceof NodeWithAlloc) ) {
+            return -1;
+        }
+        final int id = ((NodeWithAlloc) key).getId();
+        return id < nodes.length && nodes[id] != null && nodes[id].equals( key ) ? id : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt( int id ) {
+        return (V) values[id];
+    }
+
+    @Override
+    public Set<Entry<NodeWithAlloc, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<NodeWithAlloc, V>> iterator() {
+                return new Iterator<>() {
+                    private int next = advance( 0 );
+                    private int last = -1;
+
+                    private int advance( int from ) {
+                        while ( from < nodes.length && nodes[from] == null ) {
+                            from++;
+                        }
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < nodes.length;
+                    }
+
+                    @Override
+                    public Entry<NodeWithAlloc, V> next() {
+                        if ( !hasNext() ) {
+                            throw new NoSuchElementException();
+                        }
+                        last = next;
+                        next = advance( next + 1 );
+                        final int id = last;
+                        return new SimpleEntry<>( nodes[id], valueAt( id ) ) {
+                            @Override
+                            public V setValue( V value ) {
+                                values[id] = value;
+                                return super.setValue( value );
+                            }
+                        };
+                    }
+
+                    @Override
+                    public void remove() {
+                        if ( last < 0 ) {
+                            throw new IllegalStateException();
+                        }
+                        nodes[last] = null;
+                        values[last] = null;
+                        size--;
+                        last = -1;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+}
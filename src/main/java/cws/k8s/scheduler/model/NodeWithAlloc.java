@@ -1,17 +1,26 @@
 package cws.k8s.scheduler.model;
 
 import cws.k8s.scheduler.client.CWSKubernetesClient;
+import io.fabric8.kubernetes.api.model.ContainerImage;
 import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeCondition;
+import io.fabric8.kubernetes.api.model.NodeSpecBuilder;
+import io.fabric8.kubernetes.api.model.NodeStatusBuilder;
 import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.Quantity;
-import io.fabric8.kubernetes.client.readiness.Readiness;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.math.BigDecimal;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 @Getter
 @Slf4j
@@ -21,16 +30,70 @@ public class NodeWithAlloc extends Node implements Comparable<NodeWithAlloc> {
 
     private static final long serialVersionUID = 1L;
 
-    private Requirements maxResources;
+    private static final Map<String, Integer> ID_BY_NAME = new HashMap<>();
+
+    /**
+     * Ids of removed nodes, they are handed out again lowest first, see {@link #releaseId(NodeWithAlloc)}
+     */
+    private static final BitSet FREE_IDS = new BitSet();
+
+    private static int numberOfIds = 0;
+
+    /**
+     * Incremented whenever resources may have become available on any node
+     */
+    private static final AtomicLong CAPACITY_EPOCH = new AtomicLong( 0 );
+
+    /**
+     * Dense id of this node, nodes with the same name share the id, ids are in [0, {@link #getNumberOfIds()}).
+     * The id of a removed node is reused, so nodes are only equal if their ids and names are equal.
+     */
+    private final int id;
+
+    /**
+     * Hash of the node name, nodes are identified by their name
+     */
+    @Getter(AccessLevel.NONE)
+    private final int nameHash;
+
+    private volatile Requirements maxResources;
+
+    @Getter(AccessLevel.NONE)
+    private volatile boolean ready;
+
+    /**
+     * Images present on the node by their normalized name, see {@link #normalizeImage(String)}, with their size in bytes
+     */
+    private volatile Map<String, Long> images = Map.of();
+
+    /**
+     * Incremented whenever the images on the node change
+     */
+    private volatile int imagesVersion = 0;
+
+    /**
+     * Images as last reported by the node, {@link #images} is only rebuilt if they differ
+     */
+    @Getter(AccessLevel.NONE)
+    private transient List<ContainerImage> reportedImages = null;
 
     private final Map<String, Requirements> assignedPods;
 
+    /**
+     * Sum of the requests of all assigned pods, guarded by assignedPods
+     */
+    @Getter(AccessLevel.NONE)
+    private final Requirements requestedByPods;
+
     public NodeWithAlloc( String name ) {
         this.kubernetesClient = null;
         this.maxResources = null;
         this.assignedPods = null;
+        this.requestedByPods = null;
         this.setMetadata( new ObjectMeta() );
         this.getMetadata().setName( name );
+        this.id = idOf( name );
+        this.nameHash = name.hashCode();
     }
 
     public NodeWithAlloc( Node node, CWSKubernetesClient kubernetesClient ) {
@@ -39,75 +102,294 @@ public class NodeWithAlloc extends Node implements Comparable<NodeWithAlloc> {
 
         setNodeData( node, true );
 
+        this.id = idOf( getName() );
+        this.nameHash = getName().hashCode();
         assignedPods = new HashMap<>();
+        requestedByPods = new Requirements();
 
     }
 
 
-    public void update( Node node ) {
-        setNodeData( node, false );
+    private static synchronized int idOf( String name ) {
+        return ID_BY_NAME.computeIfAbsent( name, n -> {
+            final int free = FREE_IDS.nextSetBit( 0 );
+            if ( free < 0 ) {
+                return numberOfIds++;
+            }
+            FREE_IDS.clear( free );
+            return free;
+        } );
+    }
+
+    /**
+     * Frees the id of a removed node, a node added later can get it.
+     * Call after all informables were told that the node was removed.
+     */
+    public static synchronized void releaseId( NodeWithAlloc node ) {
+        if ( ID_BY_NAME.remove( node.getName(), node.id ) ) {
+            FREE_IDS.set( node.id );
+        }
+    }
+
+    /**
+     * @return an upper bound of the ids of all nodes, to size arrays indexed by {@link #getId()}.
+     * As ids are reused, it is bounded by the largest number of nodes that existed at the same time.
+     */
+    public static synchronized int getNumberOfIds() {
+        return numberOfIds;
+    }
+
+    /**
+     * A task that did not fit on any node cannot fit before the capacity epoch changed:
+     * it changes if a pod is released, a node is added, a node's resources, readiness or labels change, or an alignment is withdrawn.
+     * @return the current capacity epoch
+     */
+    public static long getCapacityEpoch() {
+        return CAPACITY_EPOCH.get();
+    }
+
+    /**
+     * Call if resources that a scheduling round counted as used stay free, e.g., because an alignment was withdrawn
+     */
+    public static void advanceCapacityEpoch() {
+        CAPACITY_EPOCH.incrementAndGet();
     }
 
     /**
      * Update the node with the new data
      * @param node the new node data
+     * @return true if anything scheduling depends on changed
+     */
+    public boolean update( Node node ) {
+        return setNodeData( node, false );
+    }
+
+    /**
+     * Only allocatable resources, readiness, unschedulable, labels and images are kept, other fields of the node are dropped.
+     * Updates with an unchanged resourceVersion are skipped.
+     * The raw allocatable amounts, the Ready status, and the reported images are compared before anything is parsed or rebuilt.
+     * @param node the new node data
      * @param isCreate if the node is an update, false if it is a new node
+     * @return true if anything scheduling depends on changed
      */
-    private void setNodeData( Node node, boolean isCreate ) {
+    private boolean setNodeData( Node node, boolean isCreate ) {
         if ( node == null ) {
-            return;
+            return false;
         }
-        if ( isCreate || !node.getApiVersion().equals( this.getApiVersion() ) ) {
-            if ( !isCreate) log.info( "Updating apiVersion for node {} from {} to {}", this.getName(), this.getApiVersion(), node.getApiVersion());
-            this.setApiVersion( node.getApiVersion() );
+        final String resourceVersion = node.getMetadata().getResourceVersion();
+        if ( !isCreate && resourceVersion != null && resourceVersion.equals( getMetadata().getResourceVersion() ) ) {
+            return false;
         }
-        if ( isCreate || !node.getKind().equals( this.getKind() ) ) {
-            if ( !isCreate) log.info( "Updating kind for node {} from {} to {}", this.getName(), this.getKind(), node.getKind());
-            this.setKind( node.getKind() );
+        final Map<String, Quantity> allocatable = node.getStatus().getAllocatable();
+        final Requirements newMaxResources;
+        if ( isCreate || !sameAmount( allocatable, "cpu" ) || !sameAmount( allocatable, "memory" ) ) {
+            newMaxResources = new Requirements(
+                    Quantity.getAmountInBytes( allocatable.get( "cpu" ) ),
+                    Quantity.getAmountInBytes( allocatable.get( "memory" ) ) );
+        } else {
+            newMaxResources = maxResources;
         }
-        if ( isCreate || !node.getMetadata().equals( this.getMetadata() ) ) {
-            if ( !isCreate) log.debug( "Updating metadata for node {} from {} to {}", this.getName(), this.getMetadata(), node.getMetadata());
-            this.setMetadata( node.getMetadata() );
+        boolean newReady = false;
+        if ( node.getStatus().getConditions() != null ) {
+            for ( NodeCondition condition : node.getStatus().getConditions() ) {
+                if ( "Ready".equals( condition.getType() ) && "True".equals( condition.getStatus() ) ) {
+                    newReady = true;
+                    break;
+                }
+            }
         }
-        if ( isCreate || !node.getSpec().equals( this.getSpec() ) ) {
-            if ( !isCreate) log.info( "Updating spec for node {} from {} to {}", this.getName(), this.getSpec(), node.getSpec());
-            this.setSpec( node.getSpec() );
+        final Boolean newUnschedulable = node.getSpec() == null ? null : node.getSpec().getUnschedulable();
+        final Map<String, String> newLabels = node.getMetadata().getLabels();
+
+        boolean changed = isCreate;
+        if ( !isCreate ) {
+            if ( newMaxResources != maxResources
+                    && ( newMaxResources.getCpu().compareTo( maxResources.getCpu() ) != 0
+                        || newMaxResources.getRam().compareTo( maxResources.getRam() ) != 0 ) ) {
+                log.info( "Updating max resources for node {} from {} to {}", this.getName(), maxResources, newMaxResources );
+                changed = true;
+            }
+            if ( newReady != ready ) {
+                log.info( "Node {} is {}", this.getName(), newReady ? "ready" : "not ready" );
+                changed = true;
+            }
+            if ( Boolean.TRUE.equals( newUnschedulable ) != Boolean.TRUE.equals( getSpec().getUnschedulable() ) ) {
+                log.info( "Node {} is {}", this.getName(), Boolean.TRUE.equals( newUnschedulable ) ? "unschedulable" : "schedulable" );
+                changed = true;
+            }
+            if ( !Objects.equals( newLabels, getMetadata().getLabels() ) ) {
+                log.debug( "Updating labels for node {} from {} to {}", this.getName(), getMetadata().getLabels(), newLabels );
+                changed = true;
+            }
+        }
+        boolean imagesChanged = false;
+        final List<ContainerImage> newReportedImages = node.getStatus().getImages();
+        if ( isCreate || !Objects.equals( newReportedImages, reportedImages ) ) {
+            reportedImages = newReportedImages;
+            final Map<String, Long> newImages = imagesOf( node );
+            imagesChanged = !newImages.equals( images );
+            if ( imagesChanged ) {
+                images = newImages;
+                imagesVersion++;
+            }
+        }
+        if ( !changed ) {
+            getMetadata().setResourceVersion( resourceVersion );
+            return imagesChanged;
+        }
+        this.setApiVersion( node.getApiVersion() );
+        this.setKind( node.getKind() );
+        this.setMetadata( new ObjectMetaBuilder()
+                .withName( node.getMetadata().getName() )
+                .withUid( node.getMetadata().getUid() )
+                .withResourceVersion( resourceVersion )
+                .withLabels( newLabels )
+                .build() );
+        this.setSpec( new NodeSpecBuilder().withUnschedulable( newUnschedulable ).build() );
+        this.setStatus( new NodeStatusBuilder()
+                .withAllocatable( allocatable )
+                .withConditions( readyConditions( node ) )
+                .build() );
+        maxResources = newMaxResources;
+        ready = newReady;
+        CAPACITY_EPOCH.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Compares the raw amount and format, without parsing the quantity
+     */
+    private boolean sameAmount( Map<String, Quantity> allocatable, String resource ) {
+        final Quantity current = getStatus().getAllocatable().get( resource );
+        final Quantity reported = allocatable.get( resource );
+        if ( current == null || reported == null ) {
+            return current == reported;
         }
-        if ( isCreate || !node.getStatus().equals( this.getStatus() ) ) {
-            if ( !isCreate) log.debug( "Updating status for node {} from {} to {}", this.getName(), this.getStatus(), node.getStatus());
-            this.setStatus( node.getStatus() );
+        return Objects.equals( current.getAmount(), reported.getAmount() )
+                && Objects.equals( current.getFormat(), reported.getFormat() );
+    }
+
+    private static List<NodeCondition> readyConditions( Node node ) {
+        if ( node.getStatus().getConditions() == null ) {
+            return List.of();
         }
-        for (Map.Entry<String, Object> e : node.getAdditionalProperties().entrySet()) {
-            if ( this.getAdditionalProperties().containsKey( e.getKey() )) {
+        return node.getStatus().getConditions().stream()
+                .filter( condition -> "Ready".equals( condition.getType() ) )
+                .collect( Collectors.toList() );
+    }
+
+    private static Map<String, Long> imagesOf( Node node ) {
+        if ( node.getStatus().getImages() == null ) {
+            return Map.of();
+        }
+        final Map<String, Long> result = new HashMap<>();
+        for ( ContainerImage image : node.getStatus().getImages() ) {
+            if ( image.getNames() == null ) {
                 continue;
             }
-            if ( !isCreate) log.info( "Updating additional property {} for node {} from {} to {}", e.getKey(), this.getName(), this.getAdditionalProperties().get( e.getKey() ), e.getValue());
-            this.setAdditionalProperty( e.getKey(), e.getValue() );
+            final long size = image.getSizeBytes() == null ? 0 : image.getSizeBytes();
+            for ( String name : image.getNames() ) {
+                result.put( normalizeImage( name ), size );
+            }
         }
+        return result;
+    }
 
-        if ( isCreate
-                || !Quantity.getAmountInBytes(node.getStatus().getAllocatable().get("cpu")).equals(  maxResources.getCpu() )
-                || !Quantity.getAmountInBytes(node.getStatus().getAllocatable().get("memory")).equals(  maxResources.getRam() ) ) {
-            if ( !isCreate) log.info( "Updating max resources for node {} from {} to {}", this.getName(), maxResources, node.getStatus().getAllocatable());
-            BigDecimal maxCpu = Quantity.getAmountInBytes( this.getStatus().getAllocatable().get( "cpu" ) );
-            BigDecimal maxRam = Quantity.getAmountInBytes( this.getStatus().getAllocatable().get( "memory" ) );
-            maxResources = new Requirements( maxCpu, maxRam );
+    /**
+     * Normalizes an image reference, such that the names reported by a node and used by a pod match:
+     * the default registry and library prefixes are removed and the tag latest is added if neither tag nor digest are given
+     */
+    public static String normalizeImage( String image ) {
+        String name = image;
+        if ( name.startsWith( "docker.io/" ) ) {
+            name = name.substring( "docker.io/".length() );
         }
+        if ( name.startsWith( "library/" ) ) {
+            name = name.substring( "library/".length() );
+        }
+        if ( !name.contains( "@" ) && name.lastIndexOf( ':' ) <= name.lastIndexOf( '/' ) ) {
+            name = name + ":latest";
+        }
+        return name;
     }
 
+    /**
+     * Registers a pod observed in the cluster, only ADDED events of the pod watch end up here.
+     * If the pod is already known, e.g., because this scheduler reserved resources for it,
+     * its requests are not parsed again: the watch creates a new {@link PodWithAge} for every event,
+     * so the request cached by the pod would not help.
+     */
     public void addPod( PodWithAge pod ) {
-        Requirements request = pod.getRequest();
+        final String uid = pod.getMetadata().getUid();
+        synchronized (assignedPods) {
+            if ( assignedPods.containsKey( uid ) ) {
+                return;
+            }
+        }
+        final Requirements request = pod.getRequest();
         synchronized (assignedPods) {
-            assignedPods.put( pod.getMetadata().getUid(), request );
+            if ( !assignedPods.containsKey( uid ) ) {
+                putPod( uid, request );
+            }
         }
     }
 
-    public boolean removePod( Pod pod ){
+    /**
+     * Reserves the resources for a pod if they are still available on this node.
+     * Checking and reserving is atomic, therefore, concurrent scheduling rounds cannot double-book this node.
+     * The reservation is kept until the pod is removed or {@link #release(String)} is called.
+     * @param podUid uid of the pod to reserve resources for
+     * @param request the resources to reserve
+     * @return true if the resources were reserved
+     */
+    public boolean reserve( String podUid, Requirements request ) {
         synchronized (assignedPods) {
-            return assignedPods.remove( pod.getMetadata().getUid() ) != null;
+            final Requirements available = maxResources.sub( requestedByPods );
+            final Requirements alreadyReserved = assignedPods.get( podUid );
+            if ( alreadyReserved != null ) {
+                available.addToThis( alreadyReserved );
+            }
+            if ( !available.higherOrEquals( request ) ) {
+                return false;
+            }
+            putPod( podUid, request );
+            return true;
         }
     }
 
+    /**
+     * Releases the resources reserved for a pod
+     * @param podUid uid of the pod
+     * @return true if resources were reserved for this pod
+     */
+    public boolean release( String podUid ){
+        synchronized (assignedPods) {
+            final Requirements removed = assignedPods.remove( podUid );
+            if ( removed == null ) {
+                return false;
+            }
+            requestedByPods.subFromThis( removed );
+            CAPACITY_EPOCH.incrementAndGet();
+            return true;
+        }
+    }
+
+    public boolean removePod( Pod pod ){
+        return release( pod.getMetadata().getUid() );
+    }
+
+    /**
+     * Call only while holding the lock of assignedPods
+     */
+    private void putPod( String uid, Requirements request ) {
+        final Requirements replaced = assignedPods.put( uid, request );
+        if ( replaced != null ) {
+            requestedByPods.subFromThis( replaced );
+            CAPACITY_EPOCH.incrementAndGet();
+        }
+        requestedByPods.addToThis( request );
+    }
+
     public int getRunningPods(){
         return assignedPods.size();
     }
@@ -116,12 +398,9 @@ public class NodeWithAlloc extends Node implements Comparable<NodeWithAlloc> {
      * @return max(Requested by all and currently used )
      */
     public Requirements getRequestedResources(){
-        final Requirements requestedByPods;
         synchronized (assignedPods) {
-            requestedByPods = assignedPods.values().stream()
-                    .reduce(new Requirements(), Requirements::addToThis);
+            return new Requirements( requestedByPods.getCpu(), requestedByPods.getRam() );
         }
-        return requestedByPods;
     }
 
     public Requirements getAvailableResources(){
@@ -155,22 +434,16 @@ public class NodeWithAlloc extends Node implements Comparable<NodeWithAlloc> {
         if (!(o instanceof NodeWithAlloc)) {
             return false;
         }
-        if (!super.equals(o)) {
-            return false;
-        }
         NodeWithAlloc that = (NodeWithAlloc) o;
-        return getMetadata().getName() != null ? getMetadata().getName().equals(that.getMetadata().getName()) : that.getMetadata().getName() == null;
+        return id == that.id && nameHash == that.nameHash && getName().equals( that.getName() );
     }
 
     @Override
     public int hashCode() {
-        int result = super.hashCode();
-        result = 31 * result + (getMaxResources() != null ? getMaxResources().hashCode() : 0);
-        result = 31 * result + (getAssignedPods() != null ? getAssignedPods().hashCode() : 0);
-        return result;
+        return nameHash;
     }
 
     public boolean isReady(){
-        return Readiness.isNodeReady(this);
+        return ready;
     }
 }
@@ -13,6 +13,11 @@ public class PodWithAge extends Pod {
     @Setter
     private BigDecimal age;
 
+    /**
+     * Parsed requests of all containers, computed on first access
+     */
+    private transient Requirements request = null;
+
     public PodWithAge(ObjectMeta metadata, PodSpec spec, PodStatus status) {
         super("v1", "Pod",  metadata, spec, status);
         this.age = BigDecimal.ZERO;
@@ -26,7 +31,19 @@ public class PodWithAge extends Pod {
         this.age = BigDecimal.ZERO;
     }
 
+    /**
+     * The result is cached by this instance, as parsing the quantities is expensive. Do not modify the returned object.
+     * The pod watch creates a new instance for every event, see {@link NodeWithAlloc#addPod(PodWithAge)} for how known pods are skipped.
+     * @return the sum of the requests of all containers
+     */
     public Requirements getRequest(){
+        if ( request == null ) {
+            request = parseRequest();
+        }
+        return request;
+    }
+
+    private Requirements parseRequest(){
         return this
                 .getSpec().getContainers().stream()
                 .filter( x -> x.getResources() != null
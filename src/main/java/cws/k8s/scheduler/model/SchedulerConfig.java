@@ -16,6 +16,15 @@ public class SchedulerConfig {
     public final String workDir;
     public final String dns;
     public final boolean traceEnabled;
+    /**
+     * Where traces are written if tracing is enabled:
+     * aggregate (default) - one compressed file per execution, file - one file per task, both
+     */
+    public final String traceMode;
+    /**
+     * Record all inputs of the scheduler into a binary log to replay the workflow offline
+     */
+    public final boolean recordWorkflow;
     public final String namespace;
     public final String costFunction;
     public final String strategy;
@@ -23,6 +32,18 @@ public class SchedulerConfig {
     public final String memoryPredictor;
     public final Long maxMemory;
     public final Long minMemory;
+    /**
+     * Number of independent scheduling threads for this execution, tasks are partitioned by process
+     */
+    public final Integer schedulingShards;
+    /**
+     * Weight of this execution when the cluster is shared with other executions, default 1
+     */
+    public final Double fairShareWeight;
+    /**
+     * Number of registered tasks without a pod that are planned onto nodes ahead of time, disabled if not set
+     */
+    public final Integer lookahead;
 
     @ToString
     @NoArgsConstructor(access = AccessLevel.PRIVATE,force = true)
@@ -58,6 +58,15 @@ public class Task {
     @Getter
     private long cpuPredictionVersion = -1;
 
+    /**
+     * Predicted runtime in milliseconds, negative if there is no prediction
+     */
+    @Getter
+    private double predictedRuntime = -1;
+
+    @Getter
+    private long runtimePredictionVersion = -1;
+
     public Task( TaskConfig config, DAG dag ) {
         this.config = config;
         oldRequirements = new Requirements( BigDecimal.valueOf(config.getCpus()), BigDecimal.valueOf(config.getMemoryInBytes()) );
@@ -152,6 +161,11 @@ public class Task {
         cpuPredictionVersion = version;
     }
 
+    public void setPredictedRuntime( double runtime, long version ){
+        predictedRuntime = runtime;
+        runtimePredictionVersion = version;
+    }
+
     public boolean requirementsChanged(){
         return !oldRequirements.equals( planedRequirements );
     }
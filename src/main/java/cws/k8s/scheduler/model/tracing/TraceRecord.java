@@ -108,13 +108,58 @@ public class TraceRecord {
 
     private void writeValue( String name, List<Double> value, BufferedWriter bw ) throws IOException {
         if ( value != null ) {
-            final String collect = value.stream()
-                    .map( x -> x==null ? "null" : x.toString() )
-                    .collect(Collectors.joining(";"));
-            bw.write( name + "=\"" + collect + "\"\n" );
+            bw.write( name + "=\"" + joinCosts( value ) + "\"\n" );
         }
     }
 
+    static String joinCosts( List<Double> value ) {
+        return value.stream()
+                .map( x -> x==null ? "null" : x.toString() )
+                .collect(Collectors.joining(";"));
+    }
+
+    /**
+     * Names of the values returned by {@link #numbers()}
+     */
+    static final String[] NUMBER_COLUMNS = {
+            "scheduler_depending_task",
+            "scheduler_time_in_queue",
+            "scheduler_place_in_queue",
+            "scheduler_nodes_tried",
+            "scheduler_could_stop_fetching",
+            "scheduler_tried_to_schedule",
+            "scheduler_time_to_schedule",
+            "scheduler_delta_schedule_submitted",
+            "scheduler_delta_schedule_alignment",
+            "scheduler_batch_id",
+            "scheduler_delta_batch_start_submitted",
+            "scheduler_delta_batch_start_received",
+            "scheduler_delta_batch_closed_batch_end",
+            "scheduler_delta_submitted_batch_end"
+    };
+
+    /**
+     * @return all integral values in the order of {@link #NUMBER_COLUMNS}, null if not set
+     */
+    Number[] numbers() {
+        return new Number[]{
+                schedulerDependingTask,
+                schedulerTimeInQueue,
+                schedulerPlaceInQueue,
+                schedulerNodesTried,
+                schedulerCouldStopFetching,
+                schedulerTriedToSchedule,
+                schedulerTimeToSchedule,
+                schedulerDeltaScheduleSubmitted,
+                schedulerDeltaScheduleAlignment,
+                schedulerBatchId,
+                schedulerDeltaBatchStartSubmitted,
+                schedulerDeltaBatchStartReceived,
+                schedulerDeltaBatchClosedBatchEnd,
+                schedulerDeltaSubmittedBatchEnd
+        };
+    }
+
     private long startSchedule = 0;
 
     /**
@@ -0,0 +1,233 @@
+package cws.k8s.scheduler.model.tracing;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Collects the trace records of one execution in memory, column by column,
+ * and appends them to a single gzip compressed TSV file.
+ * Every write appends a new gzip member, the file can be read with zcat or a GZIPInputStream.
+ * Full buffers are written by a background thread, so {@link #add} never waits for the file.
+ * Records are only dropped from memory once they were written, a failed write is repeated with the next one.
+ */
+@Slf4j
+public class TraceSink {
+
+    /**
+     * Buffered records that trigger a write on add
+     */
+    static final int FLUSH_THRESHOLD = 4096;
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    @Getter
+    private final File file;
+
+    /**
+     * Guarded by this
+     */
+    private Batch buffer = new Batch( 256 );
+
+    /**
+     * Full buffers in the order they were filled, removed after they were written
+     */
+    private final Queue<Batch> unwritten = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor( r -> {
+        final Thread thread = new Thread( r, "TraceSink-writer" );
+        thread.setDaemon( true );
+        return thread;
+    } );
+
+    public TraceSink( File file ) {
+        this.file = file;
+    }
+
+    /**
+     * Buffer the record of a task, hands the buffer to the writer thread if too many records are buffered
+     * @param name name of the task
+     * @param workDir working directory of the task, used to join with the workflow engine's trace
+     * @param record the record, it is copied and can be modified afterwards
+     */
+    public void add( String name, String workDir, TraceRecord record ) {
+        synchronized ( this ) {
+            buffer.add( name, workDir, record );
+            if ( buffer.size < FLUSH_THRESHOLD ) {
+                return;
+            }
+            unwritten.add( buffer );
+            buffer = new Batch( 256 );
+        }
+        try {
+            writer.execute( this::writeUnwritten );
+        } catch ( RejectedExecutionException e ) {
+            log.debug( "TraceSink was closed, records are written with the next flush" );
+        }
+    }
+
+    /**
+     * Append all buffered records to the file, waits until they were written
+     */
+    public void flush() {
+        synchronized ( this ) {
+            if ( buffer.size > 0 ) {
+                unwritten.add( buffer );
+                buffer = new Batch( 256 );
+            }
+        }
+        writeUnwritten();
+    }
+
+    /**
+     * Writes the remaining records and stops the writer thread
+     */
+    public void close() {
+        writer.shutdown();
+        flush();
+    }
+
+    /**
+     * Writes all unwritten batches as one gzip member and removes them once the member is complete.
+     * Locks the queue, not this, so add does not wait for the file.
+     */
+    private void writeUnwritten() {
+        synchronized ( unwritten ) {
+            final List<Batch> batches = new ArrayList<>( unwritten );
+            if ( batches.isEmpty() ) {
+                return;
+            }
+            if ( write( batches ) ) {
+                for ( int i = 0; i < batches.size(); i++ ) {
+                    unwritten.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return true if the batches were written, otherwise the file is cut back to its previous length
+     */
+    private boolean write( List<Batch> batches ) {
+        final long length = file.length();
+        final boolean writeHeader = length == 0;
+        try ( Writer out = new BufferedWriter( new OutputStreamWriter(
+                new GZIPOutputStream( new FileOutputStream( file, true ) ), StandardCharsets.UTF_8 ) ) ) {
+            if ( writeHeader ) {
+                writeHeader( out );
+            }
+            for ( Batch batch : batches ) {
+                batch.write( out );
+            }
+        } catch ( IOException e ) {
+            log.warn( "Cannot write trace records to " + file + ", retrying with the next write", e );
+            if ( file.exists() ) {
+                try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE ) ) {
+                    channel.truncate( length );
+                } catch ( IOException truncateException ) {
+                    log.warn( "Cannot remove the incomplete trace records from " + file, truncateException );
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    private static void writeHeader( Writer writer ) throws IOException {
+        writer.write( "name\twork_dir" );
+        for ( String column : TraceRecord.NUMBER_COLUMNS ) {
+            writer.write( '\t' );
+            writer.write( column );
+        }
+        writer.write( "\tscheduler_best_cost\tscheduler_nodes_cost\n" );
+    }
+
+    /**
+     * Records in columns, filled by {@link #add} and immutable once they were handed to the writer
+     */
+    private static class Batch {
+
+        private int size = 0;
+        private String[] names;
+        private String[] workDirs;
+        private final long[][] numbers = new long[TraceRecord.NUMBER_COLUMNS.length][];
+        private double[] bestCost;
+        private String[] nodesCost;
+
+        private Batch( int capacity ) {
+            allocate( capacity );
+        }
+
+        private void allocate( int capacity ) {
+            names = names == null ? new String[capacity] : Arrays.copyOf( names, capacity );
+            workDirs = workDirs == null ? new String[capacity] : Arrays.copyOf( workDirs, capacity );
+            for ( int i = 0; i < numbers.length; i++ ) {
+                numbers[i] = numbers[i] == null ? new long[capacity] : Arrays.copyOf( numbers[i], capacity );
+            }
+            bestCost = bestCost == null ? new double[capacity] : Arrays.copyOf( bestCost, capacity );
+            nodesCost = nodesCost == null ? new String[capacity] : Arrays.copyOf( nodesCost, capacity );
+        }
+
+        private void add( String name, String workDir, TraceRecord record ) {
+            if ( size == names.length ) {
+                allocate( size * 2 );
+            }
+            names[size] = name;
+            workDirs[size] = workDir;
+            final Number[] values = record.numbers();
+            for ( int i = 0; i < values.length; i++ ) {
+                numbers[i][size] = values[i] == null ? MISSING : values[i].longValue();
+            }
+            bestCost[size] = record.getSchedulerBestCost() == null ? Double.NaN : record.getSchedulerBestCost();
+            nodesCost[size] = record.getSchedulerNodesCost() == null ? null : TraceRecord.joinCosts( record.getSchedulerNodesCost() );
+            size++;
+        }
+
+        private void write( Writer writer ) throws IOException {
+            for ( int row = 0; row < size; row++ ) {
+                writeRow( writer, row );
+            }
+        }
+
+        private void writeRow( Writer writer, int row ) throws IOException {
+            writer.write( String.valueOf( names[row] ) );
+            writer.write( '\t' );
+            writer.write( String.valueOf( workDirs[row] ) );
+            for ( long[] column : numbers ) {
+                writer.write( '\t' );
+                if ( column[row] != MISSING ) {
+                    writer.write( Long.toString( column[row] ) );
+                }
+            }
+            writer.write( '\t' );
+            if ( !Double.isNaN( bestCost[row] ) ) {
+                writer.write( Double.toString( bestCost[row] ) );
+            }
+            writer.write( '\t' );
+            if ( nodesCost[row] != null ) {
+                writer.write( nodesCost[row] );
+            }
+            writer.write( '\n' );
+        }
+
+    }
+
+}
@@ -0,0 +1,202 @@
+package cws.k8s.scheduler.model.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Type;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.TaskMetrics;
+import io.fabric8.kubernetes.client.Watcher;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static cws.k8s.scheduler.model.tracing.WorkflowRecorder.*;
+
+/**
+ * Reads a log written by {@link WorkflowRecorder} and passes each record to a {@link Listener}
+ */
+public class WorkflowLogReader {
+
+    /**
+     * All methods get the time of the record in microseconds since the log was started
+     */
+    public interface Listener {
+        default void config( long time, JsonNode config ) {}
+        default void node( long time, String name, BigDecimal cpus, BigDecimal memory, Map<String, String> labels ) {}
+        default void verticesAdded( long time, List<Vertex> vertices ) {}
+        default void verticesRemoved( long time, int[] uids ) {}
+        default void edgesAdded( long time, List<InputEdge> edges ) {}
+        default void edgesRemoved( long time, int[] uids ) {}
+        default void taskAdded( long time, int id, JsonNode config ) {}
+        default void taskRemoved( long time, int id ) {}
+        default void batchStarted( long time ) {}
+        default void batchEnded( long time, int tasksInBatch ) {}
+        default void podEvent( long time, PodRecord pod ) {}
+        default void taskMetrics( long time, int id, TaskMetrics metrics ) {}
+    }
+
+    public static class PodRecord {
+
+        public final Watcher.Action action;
+        public final String name;
+        public final Map<String, String> nodeSelector;
+        public final BigDecimal cpus;
+        public final BigDecimal memory;
+        public final String nodeName;
+        public final String phase;
+        /**
+         * -1 if the pod has not terminated
+         */
+        public final int exitCode;
+
+        PodRecord( Watcher.Action action, String name, Map<String, String> nodeSelector, BigDecimal cpus,
+                   BigDecimal memory, String nodeName, String phase, int exitCode ) {
+            this.action = action;
+            this.name = name;
+            this.nodeSelector = nodeSelector;
+            this.cpus = cpus;
+            this.memory = memory;
+            this.nodeName = nodeName;
+            this.phase = phase;
+            this.exitCode = exitCode;
+        }
+
+    }
+
+    private WorkflowLogReader() {}
+
+    /**
+     * Reads the whole log. A truncated log, e.g., of a crashed scheduler, is read up to the last complete record.
+     */
+    public static void read( File file, Listener listener ) throws IOException {
+        final ObjectMapper mapper = new ObjectMapper();
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream(
+                new GZIPInputStream( new FileInputStream( file ), 1 << 16 ), 1 << 16 ) ) ) {
+            if ( in.readInt() != MAGIC ) {
+                throw new IOException( file + " is not a workflow log" );
+            }
+            final int version = in.readInt();
+            if ( version != VERSION ) {
+                throw new IOException( "Unsupported version of workflow log: " + version );
+            }
+            long time = 0;
+            while ( true ) {
+                final int type = in.read();
+                if ( type == -1 ) {
+                    return;
+                }
+                try {
+                    time += readVarLong( in );
+                    readRecord( (byte) type, time, in, mapper, listener );
+                } catch ( EOFException e ) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static void readRecord( byte type, long time, DataInputStream in, ObjectMapper mapper, Listener listener ) throws IOException {
+        switch ( type ) {
+            case CONFIG -> listener.config( time, mapper.readTree( readBytes( in ) ) );
+            case NODES -> {
+                final int size = in.readInt();
+                for ( int i = 0; i < size; i++ ) {
+                    final String name = in.readUTF();
+                    final BigDecimal cpus = new BigDecimal( in.readUTF() );
+                    final BigDecimal memory = new BigDecimal( in.readUTF() );
+                    listener.node( time, name, cpus, memory, readMap( in ) );
+                }
+            }
+            case VERTICES_ADDED -> {
+                final int size = in.readInt();
+                final List<Vertex> vertices = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    final Type vertexType = Type.values()[in.readByte()];
+                    final String label = in.readBoolean() ? in.readUTF() : null;
+                    vertices.add( Vertex.of( vertexType, label, in.readInt() ) );
+                }
+                listener.verticesAdded( time, vertices );
+            }
+            case VERTICES_REMOVED -> listener.verticesRemoved( time, readInts( in ) );
+            case EDGES_ADDED -> {
+                final int size = in.readInt();
+                final List<InputEdge> edges = new ArrayList<>( size );
+                for ( int i = 0; i < size; i++ ) {
+                    edges.add( new InputEdge( in.readInt(), in.readInt(), in.readInt() ) );
+                }
+                listener.edgesAdded( time, edges );
+            }
+            case EDGES_REMOVED -> listener.edgesRemoved( time, readInts( in ) );
+            case TASK_ADDED -> {
+                final int id = in.readInt();
+                listener.taskAdded( time, id, mapper.readTree( readBytes( in ) ) );
+            }
+            case TASK_REMOVED -> listener.taskRemoved( time, in.readInt() );
+            case BATCH_STARTED -> listener.batchStarted( time );
+            case BATCH_ENDED -> listener.batchEnded( time, in.readInt() );
+            case POD_EVENT -> {
+                final Watcher.Action action = Watcher.Action.values()[in.readByte()];
+                final String name = in.readUTF();
+                final Map<String, String> nodeSelector = readMap( in );
+                final BigDecimal cpus = new BigDecimal( in.readUTF() );
+                final BigDecimal memory = new BigDecimal( in.readUTF() );
+                final String nodeName = in.readBoolean() ? in.readUTF() : null;
+                final String phase = in.readBoolean() ? in.readUTF() : null;
+                final int exitCode = in.readInt();
+                listener.podEvent( time, new PodRecord( action, name, nodeSelector, cpus, memory, nodeName, phase, exitCode ) );
+            }
+            case TASK_METRICS -> {
+                final int id = in.readInt();
+                listener.taskMetrics( time, id, new TaskMetrics( in.readLong(), in.readLong(), in.readLong(), in.readLong() ) );
+            }
+            default -> throw new IOException( "Unknown record type: " + type );
+        }
+    }
+
+    private static long readVarLong( DataInputStream in ) throws IOException {
+        long value = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = in.readUnsignedByte();
+            value |= (long) ( b & 0x7F ) << shift;
+            shift += 7;
+        } while ( ( b & 0x80 ) != 0 );
+        return value;
+    }
+
+    private static byte[] readBytes( DataInputStream in ) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+    private static int[] readInts( DataInputStream in ) throws IOException {
+        final int[] values = new int[in.readInt()];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static Map<String, String> readMap( DataInputStream in ) throws IOException {
+        final int size = in.readInt();
+        final Map<String, String> map = new HashMap<>( size );
+        for ( int i = 0; i < size; i++ ) {
+            map.put( in.readUTF(), in.readUTF() );
+        }
+        return map;
+    }
+
+}
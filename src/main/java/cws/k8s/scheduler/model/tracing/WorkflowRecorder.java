@@ -0,0 +1,267 @@
+package cws.k8s.scheduler.model.tracing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.PodWithAge;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.SchedulerConfig;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.model.TaskMetrics;
+import io.fabric8.kubernetes.api.model.ContainerStatus;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.Watcher;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records everything a scheduler receives into a gzip compressed binary log,
+ * so that a workflow can be replayed against other strategies, see {@link WorkflowLogReader}.
+ * Every record starts with its type and the microseconds since the previous record.
+ * If writing fails once, recording stops for this execution.
+ */
+@Slf4j
+public class WorkflowRecorder {
+
+    static final int MAGIC = 0x43575352; // CWSR
+    static final int VERSION = 1;
+
+    static final byte CONFIG = 1;
+    static final byte NODES = 2;
+    static final byte VERTICES_ADDED = 3;
+    static final byte VERTICES_REMOVED = 4;
+    static final byte EDGES_ADDED = 5;
+    static final byte EDGES_REMOVED = 6;
+    static final byte TASK_ADDED = 7;
+    static final byte TASK_REMOVED = 8;
+    static final byte BATCH_STARTED = 9;
+    static final byte BATCH_ENDED = 10;
+    static final byte POD_EVENT = 11;
+    static final byte TASK_METRICS = 12;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Getter
+    private final File file;
+    private DataOutputStream out;
+    private long lastRecord = System.nanoTime() / 1000;
+
+    public WorkflowRecorder( File file ) {
+        this.file = file;
+        try {
+            out = new DataOutputStream( new BufferedOutputStream(
+                    new GZIPOutputStream( new FileOutputStream( file ), 1 << 16, true ), 1 << 16 ) );
+            out.writeInt( MAGIC );
+            out.writeInt( VERSION );
+        } catch ( IOException e ) {
+            log.error( "Cannot record workflow to " + file, e );
+            out = null;
+        }
+    }
+
+    private interface Write {
+        void write( DataOutputStream out ) throws IOException;
+    }
+
+    private synchronized void record( byte type, Write write ) {
+        if ( out == null ) {
+            return;
+        }
+        try {
+            final long now = System.nanoTime() / 1000;
+            out.writeByte( type );
+            writeVarLong( out, Math.max( 0, now - lastRecord ) );
+            lastRecord = now;
+            write.write( out );
+        } catch ( IOException e ) {
+            log.error( "Cannot record workflow to " + file + ", recording stopped", e );
+            close();
+        }
+    }
+
+    static void writeVarLong( DataOutputStream out, long value ) throws IOException {
+        while ( ( value & ~0x7FL ) != 0 ) {
+            out.writeByte( (int) ( ( value & 0x7F ) | 0x80 ) );
+            value >>>= 7;
+        }
+        out.writeByte( (int) value );
+    }
+
+    private static void writeNullableString( DataOutputStream out, String value ) throws IOException {
+        out.writeBoolean( value != null );
+        if ( value != null ) {
+            out.writeUTF( value );
+        }
+    }
+
+    private void writeJson( DataOutputStream out, Object value ) throws IOException {
+        final byte[] bytes = mapper.writeValueAsBytes( value );
+        out.writeInt( bytes.length );
+        out.write( bytes );
+    }
+
+    public void config( SchedulerConfig config ) {
+        record( CONFIG, o -> writeJson( o, config ) );
+    }
+
+    public void nodes( List<NodeWithAlloc> nodes ) {
+        record( NODES, o -> {
+            o.writeInt( nodes.size() );
+            for ( NodeWithAlloc node : nodes ) {
+                o.writeUTF( node.getName() );
+                o.writeUTF( node.getMaxResources().getCpu().toPlainString() );
+                o.writeUTF( node.getMaxResources().getRam().toPlainString() );
+                final Map<String, String> labels = node.getMetadata().getLabels();
+                o.writeInt( labels == null ? 0 : labels.size() );
+                if ( labels != null ) {
+                    for ( Map.Entry<String, String> label : labels.entrySet() ) {
+                        o.writeUTF( label.getKey() );
+                        o.writeUTF( label.getValue() );
+                    }
+                }
+            }
+        } );
+    }
+
+    public void verticesAdded( List<Vertex> vertices ) {
+        record( VERTICES_ADDED, o -> {
+            o.writeInt( vertices.size() );
+            for ( Vertex vertex : vertices ) {
+                o.writeByte( vertex.getType().ordinal() );
+                writeNullableString( o, vertex.getLabel() );
+                o.writeInt( vertex.getUid() );
+            }
+        } );
+    }
+
+    public void verticesRemoved( int[] uids ) {
+        record( VERTICES_REMOVED, o -> writeInts( o, uids ) );
+    }
+
+    public void edgesAdded( List<InputEdge> edges ) {
+        record( EDGES_ADDED, o -> {
+            o.writeInt( edges.size() );
+            for ( InputEdge edge : edges ) {
+                o.writeInt( edge.getUid() );
+                o.writeInt( edge.getFrom() );
+                o.writeInt( edge.getTo() );
+            }
+        } );
+    }
+
+    public void edgesRemoved( int[] uids ) {
+        record( EDGES_REMOVED, o -> writeInts( o, uids ) );
+    }
+
+    private static void writeInts( DataOutputStream out, int[] values ) throws IOException {
+        out.writeInt( values.length );
+        for ( int value : values ) {
+            out.writeInt( value );
+        }
+    }
+
+    /**
+     * @param inputSize the input size is recorded, as the input files will not be available during replay
+     */
+    public void taskAdded( int id, TaskConfig config, long inputSize ) {
+        record( TASK_ADDED, o -> {
+            o.writeInt( id );
+            final ObjectNode json = mapper.valueToTree( config );
+            json.put( "inputSize", inputSize );
+            writeJson( o, json );
+        } );
+    }
+
+    public void taskRemoved( int id ) {
+        record( TASK_REMOVED, o -> o.writeInt( id ) );
+    }
+
+    public void batchStarted() {
+        record( BATCH_STARTED, o -> {} );
+    }
+
+    public void batchEnded( int tasksInBatch ) {
+        record( BATCH_ENDED, o -> o.writeInt( tasksInBatch ) );
+    }
+
+    /**
+     * Records only what is needed to recreate the pod: name, node selector, requests, node, phase and exit code
+     */
+    public void podEvent( Watcher.Action action, Pod pod ) {
+        record( POD_EVENT, o -> {
+            o.writeByte( action.ordinal() );
+            o.writeUTF( pod.getMetadata().getName() );
+            final Map<String, String> nodeSelector = pod.getSpec().getNodeSelector();
+            o.writeInt( nodeSelector == null ? 0 : nodeSelector.size() );
+            if ( nodeSelector != null ) {
+                for ( Map.Entry<String, String> entry : nodeSelector.entrySet() ) {
+                    o.writeUTF( entry.getKey() );
+                    o.writeUTF( entry.getValue() );
+                }
+            }
+            final Requirements request = new PodWithAge( pod ).getRequest();
+            o.writeUTF( request.getCpu().toPlainString() );
+            o.writeUTF( request.getRam().toPlainString() );
+            writeNullableString( o, pod.getSpec().getNodeName() );
+            writeNullableString( o, pod.getStatus() == null ? null : pod.getStatus().getPhase() );
+            o.writeInt( exitCode( pod ) );
+        } );
+    }
+
+    private static int exitCode( Pod pod ) {
+        if ( pod.getStatus() == null || pod.getStatus().getContainerStatuses() == null ) {
+            return -1;
+        }
+        for ( ContainerStatus status : pod.getStatus().getContainerStatuses() ) {
+            if ( status.getState() != null && status.getState().getTerminated() != null ) {
+                return status.getState().getTerminated().getExitCode();
+            }
+        }
+        return -1;
+    }
+
+    public void taskMetrics( int id, TaskMetrics metrics ) {
+        record( TASK_METRICS, o -> {
+            o.writeInt( id );
+            o.writeLong( metrics.getRamRequest() );
+            o.writeLong( metrics.getPeakVmem() );
+            o.writeLong( metrics.getPeakRss() );
+            o.writeLong( metrics.getRealtime() );
+        } );
+    }
+
+    public synchronized void flush() {
+        if ( out == null ) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch ( IOException e ) {
+            log.warn( "Cannot flush workflow record " + file, e );
+        }
+    }
+
+    public synchronized void close() {
+        if ( out == null ) {
+            return;
+        }
+        try {
+            out.close();
+        } catch ( IOException e ) {
+            log.warn( "Cannot close workflow record " + file, e );
+        }
+        out = null;
+    }
+
+}
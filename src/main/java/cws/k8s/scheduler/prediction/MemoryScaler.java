@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.math.BigDecimal;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static cws.k8s.scheduler.util.Formater.formatBytes;
 
@@ -35,6 +36,9 @@ public class MemoryScaler extends TaskScaler {
      * 2) if (1) is set to "default", use the environment variable
      * MEMORY_PREDICTOR_DEFAULT
      *
+     * The parameters history (number of observations kept per task, 0 for all)
+     * and sampling (window or reservoir) bound the memory of the predictors.
+     *
      * @param config the SchedulerConfig for the execution
      */
     public MemoryScaler( SchedulerConfig config ) {
@@ -51,9 +55,12 @@ public class MemoryScaler extends TaskScaler {
         }
         memoryPredictorParameter = parsePredictorParams( parameterString );
 
-        Builder<Predictor> cBuilder = applyPredictor( predictorString );
+        final Supplier<ObservationStore> observations = observationStore(
+                memoryPredictorParameter.remove( "history" ), memoryPredictorParameter.remove( "sampling" ) );
+
+        Builder<Predictor> cBuilder = applyPredictor( predictorString, observations );
 
-        cBuilder = applyOffset( cBuilder, memoryPredictorParameter.remove( "offset" ) );
+        cBuilder = applyOffset( cBuilder, memoryPredictorParameter.remove( "offset" ), observations );
 
         this.predictorBuilder = cBuilder;
 
@@ -66,36 +73,49 @@ public class MemoryScaler extends TaskScaler {
         log.info( "MemoryScaler initialized with minMemory: {}, maxMemory: {}", formatBytes(LOWEST_MEMORY_REQUEST), formatBytes(MAXIMUM_MEMORY_REQUEST) );
     }
 
-    private Builder<Predictor> applyOffset( final Builder<Predictor> builder, final String offsetValue ) {
+    private Supplier<ObservationStore> observationStore( final String history, final String sampling ) {
+        final int capacity = history == null ? ObservationStore.DEFAULT_CAPACITY : Integer.parseInt( history );
+        final ObservationStore.Sampling mode;
+        if ( sampling == null || sampling.equals( "window" ) ) {
+            mode = ObservationStore.Sampling.WINDOW;
+        } else if ( sampling.equals( "reservoir" ) ) {
+            mode = ObservationStore.Sampling.RESERVOIR;
+        } else {
+            throw new IllegalArgumentException("unrecognized sampling parameter: " + sampling );
+        }
+        return () -> new ObservationStore( capacity, mode );
+    }
+
+    private Builder<Predictor> applyOffset( final Builder<Predictor> builder, final String offsetValue, final Supplier<ObservationStore> observations ) {
         if ( offsetValue != null ) {
             if ( offsetValue.endsWith( "percentile" ) ) {
                 final String substring = offsetValue.substring( 0, offsetValue.length() - "percentile".length() );
                 int percentile = Integer.parseInt( substring );
-                return () -> new PercentileOffset( builder.build(), percentile );
+                return () -> new PercentileOffset( builder.build(), percentile, observations.get() );
             } else if ( offsetValue.equals( "max" ) ) {
-                return () -> new MaxOffset( builder.build() );
+                return () -> new MaxOffset( builder.build(), observations.get() );
             } else if ( offsetValue.equals( "none" ) ) {
                 return builder;
             } else if ( offsetValue.equals( "var" ) ) {
-                return () -> new VarianceOffset( builder.build() );
+                return () -> new VarianceOffset( builder.build(), observations.get() );
             } else if ( offsetValue.endsWith( "std" ) ) {
                 final String substring = offsetValue.substring( 0, offsetValue.length() - "std".length() );
                 double factor = substring.isEmpty() ? 1 : Double.parseDouble( substring );
-                return () -> new StandardDeviationOffset( factor, builder.build() );
+                return () -> new StandardDeviationOffset( factor, builder.build(), observations.get() );
             } else {
                 throw new IllegalArgumentException("unrecognized offset parameter: " + offsetValue );
             }
         } else {
-            return () -> new MaxOffset( builder.build() );
+            return () -> new MaxOffset( builder.build(), observations.get() );
         }
     }
 
-    private Builder<Predictor> applyPredictor( String predictorString ) {
+    private Builder<Predictor> applyPredictor( String predictorString, Supplier<ObservationStore> observations ) {
         final InputExtractor inputExtractor = new InputExtractor();
         final MemoryExtractor outputExtractor = new MemoryExtractor();
         if ( predictorString.equalsIgnoreCase( "linear2" ) || predictorString.equalsIgnoreCase( "lr2" ) ) {
             log.debug( "using LinearPredictor2" );
-            return () -> new LinearPredictorCustomLoss( inputExtractor, outputExtractor );
+            return () -> new LinearPredictorCustomLoss( inputExtractor, outputExtractor, observations.get() );
         } if ( predictorString.equalsIgnoreCase( "linear" ) || predictorString.equalsIgnoreCase( "lr" ) ) {
             log.debug( "using LinearPredictor" );
             return () -> new LinearPredictorSquaredLoss( inputExtractor, outputExtractor );
@@ -106,9 +126,11 @@ public class MemoryScaler extends TaskScaler {
             log.debug( "using Ponder" );
             if( predictorString.charAt( predictorString.length() - 1 ) == ')' && predictorString.charAt( 6 ) == '(' ) {
                 final String substring = predictorString.substring( 7, predictorString.length() - 1 );
-                return () -> new PonderPredictor( new LinearPredictorCustomLoss( inputExtractor, outputExtractor ), Integer.parseInt( substring ));
+                return () -> new PonderPredictor( new LinearPredictorCustomLoss( inputExtractor, outputExtractor, observations.get() ),
+                        Integer.parseInt( substring ), observations.get() );
             } else {
-                return () -> new PonderPredictor( new LinearPredictorCustomLoss( inputExtractor, outputExtractor ) );
+                return () -> new PonderPredictor( new LinearPredictorCustomLoss( inputExtractor, outputExtractor, observations.get() ),
+                        5, observations.get() );
             }
         } else if ( predictorString.toLowerCase().startsWith( "const" ) ) {
             final String substring = predictorString.substring( "const".length() );
@@ -119,7 +141,7 @@ public class MemoryScaler extends TaskScaler {
             final String substring = predictorString.substring( "poly".length() );
             final int value = substring.isEmpty() ? 2 : Integer.parseInt( substring );
             log.debug( "using PolyPredictor with value: {}", value );
-            return () -> new PolynomialPredictor( inputExtractor, outputExtractor, value );
+            return () -> new PolynomialPredictor( inputExtractor, outputExtractor, value, observations.get() );
         } else {
             throw new IllegalArgumentException("unrecognized memoryPredictorString: " + predictorString);
         }
@@ -0,0 +1,110 @@
+package cws.k8s.scheduler.prediction;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Observations of a predictor as pairs of independent (x) and dependent (y) values in primitive arrays.
+ * If the capacity is reached, either the oldest observation is replaced (window),
+ * or a uniform sample of all observations is kept (reservoir).
+ * The order of the observations is not defined.
+ */
+public class ObservationStore {
+
+    public enum Sampling { WINDOW, RESERVOIR }
+
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    /**
+     * Called before an observation is replaced
+     */
+    public interface RemovalListener {
+        /**
+         * @param index the index of the observation, the new observation is stored at the same index
+         */
+        void removed( int index, double x, double y );
+    }
+
+    private final int capacity;
+    private final Sampling sampling;
+    private final Random random = new Random( 42 );
+    private double[] x = new double[16];
+    private double[] y = new double[16];
+    private int size = 0;
+    private int oldest = 0;
+    private long seen = 0;
+    private RemovalListener removalListener = ( index, x, y ) -> {};
+
+    public ObservationStore() {
+        this( DEFAULT_CAPACITY, Sampling.WINDOW );
+    }
+
+    /**
+     * @param capacity maximum number of observations, 0 or less to keep all
+     */
+    public ObservationStore( int capacity, Sampling sampling ) {
+        this.capacity = capacity;
+        this.sampling = sampling;
+    }
+
+    public void setRemovalListener( RemovalListener removalListener ) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * @return the index of the stored observation, or -1 if it was dropped, a reservoir drops observations once it is full
+     */
+    public int add( double x, double y ) {
+        seen++;
+        if ( capacity <= 0 || size < capacity ) {
+            if ( size == this.x.length ) {
+                final int newLength = capacity <= 0 ? size * 2 : Math.min( size * 2, capacity );
+                this.x = Arrays.copyOf( this.x, newLength );
+                this.y = Arrays.copyOf( this.y, newLength );
+            }
+            this.x[size] = x;
+            this.y[size] = y;
+            return size++;
+        }
+        final int slot;
+        if ( sampling == Sampling.WINDOW ) {
+            slot = oldest;
+            oldest = ( oldest + 1 ) % capacity;
+        } else {
+            final long index = random.nextLong( seen );
+            if ( index >= capacity ) {
+                return -1;
+            }
+            slot = (int) index;
+        }
+        removalListener.removed( slot, this.x[slot], this.y[slot] );
+        this.x[slot] = x;
+        this.y[slot] = y;
+        return slot;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of observations added, including the ones that were dropped or replaced
+     */
+    public long getSeen() {
+        return seen;
+    }
+
+    public double getX( int i ) {
+        return x[i];
+    }
+
+    public double getY( int i ) {
+        return y[i];
+    }
+
+    @Override
+    public String toString() {
+        return "x = " + Arrays.toString( Arrays.copyOf( x, size ) ) + "\n" + "y = " + Arrays.toString( Arrays.copyOf( y, size ) ) + "\n";
+    }
+
+}
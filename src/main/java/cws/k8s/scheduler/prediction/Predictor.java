@@ -58,10 +58,31 @@ public interface Predictor {
      */
     Double queryPrediction( Task task );
 
+    /**
+     * ask the Predictor for a suggestion for a task with the given independent
+     * value, this allows to predict for stored observations without their task.
+     *
+     * @param independentValue as returned by getIndependentValue
+     * @return null, if no suggestion possible, otherwise the value to be used
+     */
+    Double queryPrediction( double independentValue );
+
     double getDependentValue( Task task );
 
     double getIndependentValue( Task task );
 
     long getVersion();
 
+    /**
+     * train on all tasks added so far, this is called by the background
+     * training of the TaskScaler and not while scheduling.
+     *
+     * @return a predictor that answers queries with the trained state, later
+     *         calls of addTask must not change it. By default, the predictor
+     *         itself is returned and is queried under its own synchronization.
+     */
+    default Predictor train() {
+        return this;
+    }
+
 }
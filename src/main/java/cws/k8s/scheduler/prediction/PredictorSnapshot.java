@@ -0,0 +1,56 @@
+package cws.k8s.scheduler.prediction;
+
+import cws.k8s.scheduler.model.Task;
+
+import java.util.function.DoubleFunction;
+
+/**
+ * The state of a trained predictor at one version. It only answers queries, it does not learn.
+ * Dependent and independent values are taken from the predictor the snapshot was created from.
+ */
+public final class PredictorSnapshot implements Predictor {
+
+    private final Predictor source;
+    private final long version;
+    private final DoubleFunction<Double> prediction;
+
+    /**
+     * @param prediction prediction for an independent value
+     */
+    public PredictorSnapshot( Predictor source, long version, DoubleFunction<Double> prediction ) {
+        this.source = source;
+        this.version = version;
+        this.prediction = prediction;
+    }
+
+    @Override
+    public void addTask( Task t ) {
+        throw new UnsupportedOperationException( "A snapshot does not learn, add tasks to the predictor it was created from" );
+    }
+
+    @Override
+    public Double queryPrediction( Task task ) {
+        return prediction.apply( source.getIndependentValue( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
+        return prediction.apply( independentValue );
+    }
+
+    @Override
+    public double getDependentValue( Task task ) {
+        return source.getDependentValue( task );
+    }
+
+    @Override
+    public double getIndependentValue( Task task ) {
+        return source.getIndependentValue( task );
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+}
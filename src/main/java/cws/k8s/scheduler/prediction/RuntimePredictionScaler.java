@@ -0,0 +1,82 @@
+package cws.k8s.scheduler.prediction;
+
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TaskMetrics;
+import cws.k8s.scheduler.prediction.extractor.InputExtractor;
+import cws.k8s.scheduler.prediction.extractor.RuntimeExtractor;
+import cws.k8s.scheduler.prediction.predictor.LinearPredictorSquaredLoss;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Predicts the runtime of tasks from their input size, using a linear regression per process.
+ * It does not change the tasks' requests, the prediction is stored in {@link Task#getPredictedRuntime()}.
+ * As long as the regression cannot predict, e.g., after only one observation, the mean runtime of the process is used.
+ */
+@Slf4j
+public class RuntimePredictionScaler extends TaskScaler {
+
+    private static final class MeanRuntime {
+        private long count = 0;
+        private double sum = 0;
+
+        synchronized void add( double runtime ) {
+            count++;
+            sum += runtime;
+        }
+
+        synchronized double get() {
+            return count == 0 ? Double.NaN : sum / count;
+        }
+    }
+
+    private final Map<String, MeanRuntime> meanRuntimes = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterTaskFinished( Task task ) {
+        if ( active && isValid( task ) ) {
+            meanRuntimes.computeIfAbsent( task.getConfig().getTask(), k -> new MeanRuntime() )
+                    .add( task.getTaskMetrics().getRealtime() );
+        }
+        super.afterTaskFinished( task );
+    }
+
+    /**
+     * @return the mean runtime of the finished tasks of the process in milliseconds, NaN if none finished yet
+     */
+    public double getMeanRuntime( String process ) {
+        final MeanRuntime meanRuntime = meanRuntimes.get( process );
+        return meanRuntime == null ? Double.NaN : meanRuntime.get();
+    }
+
+    @Override
+    protected boolean isValid( Task task ) {
+        final TaskMetrics taskMetrics = task.getTaskMetrics();
+        return taskMetrics != null && taskMetrics.getRealtime() > 0;
+    }
+
+    @Override
+    protected void scaleTask( Task task, Double prediction, long predictorVersion ) {
+        double runtime = prediction == null ? getMeanRuntime( task.getConfig().getTask() ) : prediction;
+        if ( Double.isNaN( runtime ) ) {
+            return;
+        }
+        // a regression can predict negative values for small inputs
+        runtime = Math.max( 0, runtime );
+        log.trace( "predicted runtime of {} is {} ms", task.getConfig().getName(), runtime );
+        task.setPredictedRuntime( runtime, predictorVersion );
+    }
+
+    @Override
+    protected Predictor createPredictor( String taskName ) {
+        return new LinearPredictorSquaredLoss( new InputExtractor(), new RuntimeExtractor() );
+    }
+
+    @Override
+    protected long getTaskVersionForPredictor( Task task ) {
+        return task.getRuntimePredictionVersion();
+    }
+
+}
@@ -20,9 +20,20 @@ package cws.k8s.scheduler.prediction;
 import cws.k8s.scheduler.model.Task;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
 
 import static cws.k8s.scheduler.util.Formater.formatBytes;
 
@@ -30,14 +41,30 @@ import static cws.k8s.scheduler.util.Formater.formatBytes;
  * The TaskScaler offers the interfaces that are used by the Scheduler
  * 
  * It will collect the resource usage results of tasks and change future tasks.
+ * Finished tasks are queued and learned by a background thread, which publishes
+ * a trained snapshot of each predictor. Scheduling only reads these snapshots,
+ * it groups the tasks by process and predicts once per distinct input.
  * 
  * @author Florian Friederici
  */
 @Slf4j
 public abstract class TaskScaler {
 
-    protected boolean active = true;
-    protected final Map<String, Predictor> predictors = new HashMap<>();
+    /**
+     * Read by the scheduling threads and the watch, cleared by {@link #close()}
+     */
+    protected volatile boolean active = true;
+    /**
+     * Only modified by the training thread
+     */
+    protected final Map<String, Predictor> predictors = new ConcurrentHashMap<>();
+    private final BlockingQueue<Task> observations = new LinkedBlockingQueue<>();
+    private final Map<String, Predictor> snapshots = new ConcurrentHashMap<>();
+    private final ExecutorService trainer = Executors.newSingleThreadExecutor( r -> {
+        final Thread thread = new Thread( r, "TaskScaler-training" );
+        thread.setDaemon( true );
+        return thread;
+    } );
 
     /**
      * After a task was finished, this method shall be called to collect the tasks
@@ -52,9 +79,59 @@ public abstract class TaskScaler {
         if ( !isValid( task ) ) {
             return;
         }
-        synchronized ( predictors ) {
-            final Predictor predictor = predictors.computeIfAbsent( task.getConfig().getTask(), this::createPredictor );
-            predictor.addTask( task );
+        observations.add( task );
+        submitTraining();
+    }
+
+    /**
+     * The trainer rejects new runs once the scaler was closed, the queued tasks are not learned anymore
+     */
+    private void submitTraining() {
+        if ( !active ) {
+            return;
+        }
+        try {
+            trainer.execute( this::train );
+        } catch ( RejectedExecutionException e ) {
+            log.debug( "TaskScaler was closed, finished task is not learned" );
+        }
+    }
+
+    /**
+     * Learns all queued tasks, trains the predictors that changed and publishes their snapshots.
+     * Runs on the training thread only, if tasks arrive faster than they are learned, one run learns all of them.
+     */
+    private void train() {
+        final List<Task> tasks = new ArrayList<>();
+        observations.drainTo( tasks );
+        if ( tasks.isEmpty() ) {
+            return;
+        }
+        final Set<String> changed = new HashSet<>();
+        for ( Task task : tasks ) {
+            final String taskName = task.getConfig().getTask();
+            predictors.computeIfAbsent( taskName, this::createPredictor ).addTask( task );
+            changed.add( taskName );
+        }
+        for ( String taskName : changed ) {
+            try {
+                snapshots.put( taskName, predictors.get( taskName ).train() );
+            } catch ( Exception e ) {
+                log.error( "Cannot train predictor for {}", taskName, e );
+            }
+        }
+    }
+
+    /**
+     * Waits until all tasks finished before this call were learned, returns immediately if the scaler was closed
+     */
+    public void awaitTraining() throws InterruptedException {
+        try {
+            trainer.submit( () -> {} ).get();
+        } catch ( RejectedExecutionException e ) {
+            log.debug( "TaskScaler was closed, nothing to await" );
+        } catch ( ExecutionException e ) {
+            throw new IllegalStateException( e );
         }
     }
 
@@ -73,35 +150,51 @@ public abstract class TaskScaler {
 
     protected abstract Predictor createPredictor( String taskName );
 
-    private void scaleTaskIntern( Task task ) {
-        log.debug("1 unscheduledTask: {} {} {}", task.getConfig().getTask(), task.getConfig().getName(),
-                formatBytes(task.getOriginalMemoryRequest().longValue()));
-
-        final Predictor predictor = predictors.get( task.getConfig().getTask() );
-
-        final long predictorVersion;
-        //Do not predict if the predictor is not set or if the task was already predicted with the same version
-        if ( predictor == null || (predictorVersion = predictor.getVersion()) == getTaskVersionForPredictor(task) ) {
+    /**
+     * Scales all unscheduled tasks of one process, tasks with the same input share one prediction
+     */
+    private void scaleProcess( String taskName, List<Task> tasks ) {
+        final Predictor predictor = snapshots.get( taskName );
+        //Do not predict if the predictor is not set
+        if ( predictor == null ) {
             return;
         }
-
-        // query suggestion
-        Double prediction = predictor.queryPrediction(task);
-
-        scaleTask( task, prediction, predictorVersion );
+        final long predictorVersion = predictor.getVersion();
+        final Map<Double, Double> predictions = new HashMap<>();
+        for ( Task task : tasks ) {
+            log.debug("1 unscheduledTask: {} {} {}", taskName, task.getConfig().getName(),
+                    formatBytes(task.getOriginalMemoryRequest().longValue()));
+            //Do not predict if the task was already predicted with the same version
+            if ( predictorVersion == getTaskVersionForPredictor( task ) ) {
+                continue;
+            }
+            final double input = predictor.getIndependentValue( task );
+            final Double prediction;
+            if ( predictions.containsKey( input ) ) {
+                prediction = predictions.get( input );
+            } else {
+                // query suggestion
+                prediction = predictor.queryPrediction( input );
+                predictions.put( input, prediction );
+            }
+            scaleTask( task, prediction, predictorVersion );
+        }
     }
 
 
-    public synchronized void beforeTasksScheduled( final List<Task> unscheduledTasks ) {
+    public void beforeTasksScheduled( final List<Task> unscheduledTasks ) {
         if (!active) {
             return;
         }
         log.debug( unscheduledTasks.size() + " unscheduledTasks" );
         log.debug("--- unscheduledTasks BEGIN ---");
         unscheduledTasks
-                .parallelStream()
+                .stream()
                 .filter( this::applyToThisTask )
-                .forEach( this::scaleTaskIntern );
+                .collect( Collectors.groupingBy( task -> task.getConfig().getTask() ) )
+                .entrySet()
+                .parallelStream()
+                .forEach( entry -> scaleProcess( entry.getKey(), entry.getValue() ) );
         log.debug("--- unscheduledTasks END ---");
     }
 
@@ -111,6 +204,11 @@ public abstract class TaskScaler {
         active = false;
     }
 
+    public void close(){
+        active = false;
+        trainer.shutdownNow();
+    }
+
     protected Map<String,String> parsePredictorParams( String predictorParams ) {
         final Map<String,String> params = new HashMap<>();
         if ( predictorParams == null ) {
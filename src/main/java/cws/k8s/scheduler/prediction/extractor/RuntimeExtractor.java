@@ -0,0 +1,15 @@
+package cws.k8s.scheduler.prediction.extractor;
+
+import cws.k8s.scheduler.model.Task;
+
+public class RuntimeExtractor implements VariableExtractor {
+
+    /**
+     * @return the runtime of the task in milliseconds
+     */
+    @Override
+    public double extractVariable( Task task ) {
+        return task.getTaskMetrics().getRealtime();
+    }
+
+}
@@ -1,29 +1,34 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
 
-import java.util.List;
-
 public class MaxOffset extends OffsetApplier {
 
+    private double maxDiff = 0;
+
     public MaxOffset( Predictor predictor ) {
         super( predictor );
     }
 
+    public MaxOffset( Predictor predictor, ObservationStore observations ) {
+        super( predictor, observations );
+    }
+
+    @Override
+    protected void clearResiduals() {
+        maxDiff = 0;
+    }
+
     @Override
-    protected double getOffset( List<Task> observedTasks ) {
-        double maxDiff = 0;
-        for ( Task observedTask : observedTasks ) {
-            final Double v = getPredictor().queryPrediction( observedTask );
-            if (v == null) {
-                continue;
-            }
-            double diff = getDependentValue( observedTask ) - v;
-            if (diff > maxDiff) {
-                maxDiff = diff;
-            }
+    protected void addResidual( double residual ) {
+        if ( residual > maxDiff ) {
+            maxDiff = residual;
         }
+    }
+
+    @Override
+    protected double getOffsetOfResiduals() {
         return maxDiff;
     }
 }
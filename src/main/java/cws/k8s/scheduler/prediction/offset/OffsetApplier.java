@@ -1,41 +1,82 @@
 package cws.k8s.scheduler.prediction.offset;
 
 import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.PredictorSnapshot;
 import lombok.AccessLevel;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
-import java.util.LinkedList;
-import java.util.List;
-
-@RequiredArgsConstructor
+/**
+ * Adds an offset, computed from the residuals of the observed tasks, to the predictions of another predictor.
+ * The residuals are kept as streaming statistics: the residual of a new task is added to them in O(1).
+ * As the residuals of older tasks change with the model, all residuals are recomputed,
+ * but only if the model version changed and the number of observations grew by an eighth since the last recomputation.
+ * Only the independent and dependent values of the observed tasks are kept, see {@link ObservationStore}.
+ */
 public abstract class OffsetApplier implements Predictor {
 
     @Getter(AccessLevel.PROTECTED)
     private final Predictor predictor;
-    @Getter(AccessLevel.PROTECTED)
-    private final List<Task> observedTasks = new LinkedList<>();
+    private final ObservationStore observations;
     private Double recentOffset = null;
+    private long observationsAtRefresh = 0;
+    private long versionAtRefresh = -1;
+
+    protected OffsetApplier( Predictor predictor ) {
+        this( predictor, new ObservationStore() );
+    }
 
+    protected OffsetApplier( Predictor predictor, ObservationStore observations ) {
+        this.predictor = predictor;
+        this.observations = observations;
+    }
 
     @Override
     public void addTask( Task t ) {
-        synchronized ( observedTasks ) {
+        synchronized ( observations ) {
             predictor.addTask( t );
-            observedTasks.add( t );
+            final double x = getIndependentValue( t );
+            final double y = getDependentValue( t );
+            observations.add( x, y );
+            final Double prediction = predictor.queryPrediction( x );
+            if ( prediction != null ) {
+                addResidual( y - prediction );
+            }
             recentOffset = null;
         }
     }
 
     @Override
     public Double queryPrediction( Task task ) {
-        synchronized ( observedTasks ) {
-            final Double prediction = predictor.queryPrediction( task );
+        return queryPrediction( getIndependentValue( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
+        synchronized ( observations ) {
+            final Double prediction = predictor.queryPrediction( independentValue );
             return prediction == null ? null : applyOffset( prediction, determineOffset() );
         }
     }
 
+    /**
+     * Trains the wrapped predictor and determines the offset once for the snapshot
+     */
+    @Override
+    public Predictor train() {
+        final Predictor trained;
+        final double offset;
+        synchronized ( observations ) {
+            trained = predictor.train();
+            offset = determineOffset();
+        }
+        return new PredictorSnapshot( this, trained.getVersion(), x -> {
+            final Double prediction = trained.queryPrediction( x );
+            return prediction == null ? null : applyOffset( prediction, offset );
+        } );
+    }
+
     @Override
     public double getDependentValue( Task task ) {
         return predictor.getDependentValue( task );
@@ -43,11 +84,46 @@ public abstract class OffsetApplier implements Predictor {
 
     protected double determineOffset() {
         if ( recentOffset == null ) {
-            recentOffset = getOffset( observedTasks );
+            if ( predictor.getVersion() != versionAtRefresh
+                    && observations.getSeen() - observationsAtRefresh >= Math.max( 1, observations.size() / 8 ) ) {
+                refreshResiduals();
+            }
+            recentOffset = getOffsetOfResiduals();
         }
         return recentOffset;
     }
 
+    /**
+     * Recomputes the residuals of all observed tasks with the current model
+     */
+    private void refreshResiduals() {
+        clearResiduals();
+        for ( int i = 0; i < observations.size(); i++ ) {
+            final Double v = predictor.queryPrediction( observations.getX( i ) );
+            if ( v != null ) {
+                addResidual( observations.getY( i ) - v );
+            }
+        }
+        observationsAtRefresh = observations.getSeen();
+        versionAtRefresh = predictor.getVersion();
+    }
+
+    /**
+     * Forget all residuals, they are added again with the current model
+     */
+    protected abstract void clearResiduals();
+
+    /**
+     * Add the difference between the observed value and the prediction of one task
+     */
+    protected abstract void addResidual( double residual );
+
+    /**
+     * Get the offset to be applied to the prediction from the residuals added since the last clear
+     * @return the offset
+     */
+    protected abstract double getOffsetOfResiduals();
+
     /**
      * Apply the offset to the prediction, by default the offset is added to the prediction
      * @param prediction the prediction to be offset
@@ -57,35 +133,11 @@ public abstract class OffsetApplier implements Predictor {
         return prediction + offset;
     }
 
-    /**
-     * Get the offset to be applied to the prediction
-     * @return the offset
-     */
-    protected abstract double getOffset( List<Task> observedTasks );
-
     @Override
     public long getVersion() {
         return predictor.getVersion();
     }
 
-    /**
-     * Convert the observed tasks to an array of differences between the observed value and the prediction
-     * @param observedTasks the observed tasks
-     * @param array the array to be filled with the differences
-     * @return the number of differences added to the array
-     */
-    protected int observationsToDifferenceArray( List<Task> observedTasks, double[] array ){
-        int n = 0;
-        for ( Task observedTask : observedTasks ) {
-            final Double v = getPredictor().queryPrediction( observedTask );
-            if ( v == null ) {
-                continue;
-            }
-            array[n++] = getDependentValue( observedTask ) - v;
-        }
-        return n;
-    }
-
     @Override
     public double getIndependentValue( Task task ) {
         return predictor.getIndependentValue( task );
@@ -1,18 +1,19 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
-
-import java.util.List;
 
 public class PercentileOffset extends OffsetApplier {
 
-    private final Percentile percentile = new Percentile();
     private final double percentileValue;
+    private final QuantileSketch residuals = new QuantileSketch();
 
     public PercentileOffset( Predictor predictor, double percentileValue ) {
-        super( predictor );
+        this( predictor, percentileValue, new ObservationStore() );
+    }
+
+    public PercentileOffset( Predictor predictor, double percentileValue, ObservationStore observations ) {
+        super( predictor, observations );
         if ( percentileValue < 0 ) {
             throw new AssertionError( "Percentile value must be greater than 0" );
         }
@@ -23,9 +24,20 @@ public class PercentileOffset extends OffsetApplier {
     }
 
     @Override
-    protected double getOffset( List<Task> observedTasks ) {
-        double[] observedValues = new double[observedTasks.size()];
-        int n = observationsToDifferenceArray( observedTasks, observedValues );
-        return Math.max( 0, percentile.evaluate( observedValues, 0, n, percentileValue ) );
+    protected void clearResiduals() {
+        residuals.clear();
+    }
+
+    @Override
+    protected void addResidual( double residual ) {
+        residuals.add( residual );
+    }
+
+    /**
+     * Estimated from a {@link QuantileSketch}, so it can differ slightly from the exact percentile
+     */
+    @Override
+    protected double getOffsetOfResiduals() {
+        return residuals.size() == 0 ? 0 : Math.max( 0, residuals.quantile( percentileValue / 100 ) );
     }
 }
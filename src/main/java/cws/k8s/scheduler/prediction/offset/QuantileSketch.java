@@ -0,0 +1,162 @@
+package cws.k8s.scheduler.prediction.offset;
+
+import java.util.Arrays;
+
+/**
+ * A merging t-digest: values are buffered and merged into centroids that are small at the tails and large around the median.
+ * The sketch keeps at most about 2 * compression centroids, adding a value costs amortized O(1).
+ * Quantiles are interpolated between centroids, the minimum and the maximum are exact.
+ */
+public class QuantileSketch {
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids = 0;
+    private final double[] buffer;
+    private int buffered = 0;
+    private long count = 0;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this( 100 );
+    }
+
+    public QuantileSketch( double compression ) {
+        this.compression = compression;
+        final int capacity = (int) Math.ceil( 2 * compression ) + 10;
+        means = new double[capacity];
+        weights = new double[capacity];
+        buffer = new double[capacity * 5];
+    }
+
+    public void add( double value ) {
+        if ( buffered == buffer.length ) {
+            compress();
+        }
+        buffer[buffered++] = value;
+        count++;
+        min = Math.min( min, value );
+        max = Math.max( max, value );
+    }
+
+    public void merge( QuantileSketch other ) {
+        other.compress();
+        compress();
+        final int size = centroids + other.centroids;
+        final double[] mergedMeans = new double[Math.max( size, means.length )];
+        final double[] mergedWeights = new double[mergedMeans.length];
+        for ( int i = 0, c = 0, o = 0; i < size; i++ ) {
+            if ( o == other.centroids || c < centroids && means[c] <= other.means[o] ) {
+                mergedMeans[i] = means[c];
+                mergedWeights[i] = weights[c++];
+            } else {
+                mergedMeans[i] = other.means[o];
+                mergedWeights[i] = other.weights[o++];
+            }
+        }
+        means = mergedMeans;
+        weights = mergedWeights;
+        centroids = size;
+        count += other.count;
+        min = Math.min( min, other.min );
+        max = Math.max( max, other.max );
+        compress();
+    }
+
+    public long size() {
+        return count;
+    }
+
+    public void clear() {
+        centroids = 0;
+        buffered = 0;
+        count = 0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Centroids are kept sorted by mean, the sorted buffer is merged into them and neighbours are combined while they are below the size limit
+     */
+    private void compress() {
+        if ( buffered == 0 && centroids <= 2 * compression ) {
+            return;
+        }
+        Arrays.sort( buffer, 0, buffered );
+        final int size = centroids + buffered;
+        final double[] sortedMeans = new double[size];
+        final double[] sortedWeights = new double[size];
+        double total = 0;
+        for ( int i = 0, c = 0, b = 0; i < size; i++ ) {
+            if ( b == buffered || c < centroids && means[c] <= buffer[b] ) {
+                sortedMeans[i] = means[c];
+                sortedWeights[i] = weights[c++];
+            } else {
+                sortedMeans[i] = buffer[b++];
+                sortedWeights[i] = 1;
+            }
+            total += sortedWeights[i];
+        }
+        buffered = 0;
+        int merged = 0;
+        double weightSoFar = 0;
+        double currentMean = sortedMeans[0];
+        double currentWeight = sortedWeights[0];
+        for ( int i = 1; i < size; i++ ) {
+            final double mean = sortedMeans[i];
+            final double weight = sortedWeights[i];
+            final double q = ( weightSoFar + ( currentWeight + weight ) / 2 ) / total;
+            final double limit = 4 * total * q * ( 1 - q ) / compression;
+            if ( currentWeight + weight <= limit ) {
+                currentMean += ( mean - currentMean ) * weight / ( currentWeight + weight );
+                currentWeight += weight;
+            } else {
+                weightSoFar += currentWeight;
+                sortedMeans[merged] = currentMean;
+                sortedWeights[merged++] = currentWeight;
+                currentMean = mean;
+                currentWeight = weight;
+            }
+        }
+        sortedMeans[merged] = currentMean;
+        sortedWeights[merged++] = currentWeight;
+        means = sortedMeans;
+        weights = sortedWeights;
+        centroids = merged;
+    }
+
+    /**
+     * @param q quantile between 0 and 1
+     * @return the estimated quantile or NaN if no value was added
+     */
+    public double quantile( double q ) {
+        if ( count == 0 ) {
+            return Double.NaN;
+        }
+        compress();
+        if ( centroids == 1 || q <= 0 ) {
+            return q <= 0 ? min : means[0];
+        }
+        if ( q >= 1 ) {
+            return max;
+        }
+        final double index = q * count;
+        // the first and the last centroid are interpolated towards min and max
+        if ( index < weights[0] / 2 ) {
+            return min + ( means[0] - min ) * index / ( weights[0] / 2 );
+        }
+        double weightSoFar = weights[0] / 2;
+        for ( int i = 0; i < centroids - 1; i++ ) {
+            final double step = ( weights[i] + weights[i + 1] ) / 2;
+            if ( weightSoFar + step > index ) {
+                return means[i] + ( means[i + 1] - means[i] ) * ( index - weightSoFar ) / step;
+            }
+            weightSoFar += step;
+        }
+        final double last = weights[centroids - 1] / 2;
+        return means[centroids - 1] + ( max - means[centroids - 1] ) * Math.min( 1, ( index - weightSoFar ) / last );
+    }
+
+}
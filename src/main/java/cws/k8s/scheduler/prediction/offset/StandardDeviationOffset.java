@@ -1,23 +1,24 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
 
-import java.util.List;
-
 public class StandardDeviationOffset extends VarianceOffset {
 
     private final double factor;
 
     public StandardDeviationOffset( double factor, Predictor predictor ) {
-        super( predictor );
+        this( factor, predictor, new ObservationStore() );
+    }
+
+    public StandardDeviationOffset( double factor, Predictor predictor, ObservationStore observations ) {
+        super( predictor, observations );
         this.factor = factor;
     }
 
     @Override
-    public double getOffset( List<Task> observedTasks ) {
-        final double offset = super.getOffset( observedTasks );
-        return factor * Math.sqrt( offset );
+    protected double getOffsetOfResiduals() {
+        return factor * Math.sqrt( super.getOffsetOfResiduals() );
     }
 
 }
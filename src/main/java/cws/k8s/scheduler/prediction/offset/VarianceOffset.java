@@ -1,50 +1,42 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
-import org.apache.commons.math3.stat.descriptive.moment.Variance;
-import org.apache.commons.math3.stat.descriptive.rank.Percentile;
-
-import java.util.List;
 
 public class VarianceOffset extends OffsetApplier {
 
+    private long n = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
     public VarianceOffset( Predictor predictor ) {
         super( predictor );
     }
 
+    public VarianceOffset( Predictor predictor, ObservationStore observations ) {
+        super( predictor, observations );
+    }
+
     @Override
-    protected double getOffset( List<Task> observedTasks ) {
-        double[] observedValues = new double[observedTasks.size()];
-        int n = observationsToDifferenceArray( observedTasks, observedValues );
-        return calculateVariance( observedValues, n );
+    protected void clearResiduals() {
+        n = 0;
+        mean = 0;
+        m2 = 0;
     }
 
     /**
-     * Calculate the variance of an array of values
-     * The variance is calculated for the first n elements of the array
-     * @param values the array of values
-     * @param n the number of elements to consider
-     * @return the variance of the first n elements of the array
+     * Welford's online algorithm
      */
-    protected double calculateVariance( double[] values, int n ) {
-        if ( n <= 1 ) {
-            return 0;
-        }
-        if ( n > values.length ) {
-            throw new IllegalArgumentException( "n cannot be greater than the length of the array" );
-        }
-        double mean = 0;
-        for (int i = 0; i < n; i++) {
-            mean += values[i];
-        }
-        mean /= n;
-        double variance = 0;
-        for (int i = 0; i < n; i++) {
-            final double diff = values[i] - mean;
-            variance += diff * diff;
-        }
-        variance /= n - 1;
-        return variance;
+    @Override
+    protected void addResidual( double residual ) {
+        n++;
+        final double delta = residual - mean;
+        mean += delta / n;
+        m2 += delta * ( residual - mean );
+    }
+
+    @Override
+    protected double getOffsetOfResiduals() {
+        return n <= 1 ? 0 : m2 / ( n - 1 );
     }
 }
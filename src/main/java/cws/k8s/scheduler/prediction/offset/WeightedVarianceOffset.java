@@ -1,11 +1,10 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Arrays;
-import java.util.List;
 
 @Slf4j
 public class WeightedVarianceOffset {
@@ -18,14 +17,14 @@ public class WeightedVarianceOffset {
 
     /**
      * Get the offset for the given value
-     * @param observedTasks
+     * @param observations
      * @param value, values further away from the value will have a lower weight
      * @return
      */
-    protected double getOffset( List<Task> observedTasks, double value ) {
-        double[] diffs = new double[observedTasks.size()];
-        double[] independentValues = new double[observedTasks.size()];
-        int n = observationsToDifferenceArray( observedTasks, diffs, independentValues );
+    protected double getOffset( ObservationStore observations, double value ) {
+        double[] diffs = new double[observations.size()];
+        double[] independentValues = new double[observations.size()];
+        int n = observationsToDifferenceArray( observations, diffs, independentValues );
         double[] weights = new double[n];
         calculateWeights( weights, independentValues, value );
         final double variance = calculateVariance( diffs, n, weights );
@@ -60,20 +59,20 @@ public class WeightedVarianceOffset {
     }
 
     /**
-     * Convert the observed tasks to an array of differences between the observed value and the prediction
-     * @param observedTasks the observed tasks
+     * Convert the observations to an array of differences between the observed value and the prediction
+     * @param observations the observations
      * @param diff the array to be filled with the differences
      * @return the number of differences added to the array
      */
-    protected int observationsToDifferenceArray( List<Task> observedTasks, double[] diff, double[] independent ){
+    protected int observationsToDifferenceArray( ObservationStore observations, double[] diff, double[] independent ){
         int n = 0;
-        for ( Task observedTask : observedTasks ) {
-            final Double v = predictor.queryPrediction( observedTask );
+        for ( int i = 0; i < observations.size(); i++ ) {
+            final Double v = predictor.queryPrediction( observations.getX( i ) );
             if ( v == null ) {
                 continue;
             }
-            independent[n] = predictor.getIndependentValue( observedTask );
-            diff[n++] = predictor.getDependentValue( observedTask ) - v;
+            independent[n] = observations.getX( i );
+            diff[n++] = observations.getY( i ) - v;
         }
         return n;
     }
@@ -1,10 +1,7 @@
 package cws.k8s.scheduler.prediction.offset;
 
-import cws.k8s.scheduler.model.Task;
 import cws.k8s.scheduler.prediction.Predictor;
 
-import java.util.List;
-
 public class ZeroOffset extends OffsetApplier {
 
     public ZeroOffset( Predictor predictor ) {
@@ -12,7 +9,13 @@ public class ZeroOffset extends OffsetApplier {
     }
 
     @Override
-    protected double getOffset( List<Task> observedTasks ) {
+    protected void clearResiduals() {}
+
+    @Override
+    protected void addResidual( double residual ) {}
+
+    @Override
+    protected double getOffsetOfResiduals() {
         return 0;
     }
 }
@@ -19,6 +19,11 @@ public class ConstantNumberPredictor implements Predictor {
         return constant;
     }
 
+    @Override
+    public Double queryPrediction( double independentValue ) {
+        return constant;
+    }
+
     @Override
     public double getDependentValue( Task task ) {
         return outputExtractor.extractVariable( task );
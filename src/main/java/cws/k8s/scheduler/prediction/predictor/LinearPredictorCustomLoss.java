@@ -1,17 +1,13 @@
 package cws.k8s.scheduler.prediction.predictor;
 
 import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.PredictorSnapshot;
 import cws.k8s.scheduler.prediction.extractor.VariableExtractor;
 import cws.k8s.scheduler.prediction.predictor.loss.UnequalLossFunction;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.math3.optim.InitialGuess;
-import org.apache.commons.math3.optim.MaxEval;
-import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
-import org.apache.commons.math3.optim.nonlinear.scalar.ObjectiveFunction;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.NelderMeadSimplex;
-import org.apache.commons.math3.optim.nonlinear.scalar.noderiv.SimplexOptimizer;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
 
 import java.util.concurrent.atomic.AtomicLong;
@@ -23,16 +19,23 @@ public class LinearPredictorCustomLoss implements LinearPredictor {
     private final VariableExtractor inputExtractor;
     private final VariableExtractor outputExtractor;
     private final UnequalLossFunction unequalLossFunction;
-    private double[] optimizedParameters = null;
     private final SimpleRegression regression = new SimpleRegression();
 
     private static final int BYTES_IN_GB = 1024 * 1024 * 1024;
 
 
-    public LinearPredictorCustomLoss( VariableExtractor inputExtractor, VariableExtractor outputExtractor, double weightOverprediction ) {
+    public LinearPredictorCustomLoss( VariableExtractor inputExtractor, VariableExtractor outputExtractor, double weightOverprediction, ObservationStore observations ) {
         this.inputExtractor = inputExtractor;
         this.outputExtractor = outputExtractor;
-        unequalLossFunction = new UnequalLossFunction(weightOverprediction);
+        unequalLossFunction = new UnequalLossFunction( weightOverprediction, observations );
+    }
+
+    public LinearPredictorCustomLoss( VariableExtractor inputExtractor, VariableExtractor outputExtractor, double weightOverprediction ) {
+        this( inputExtractor, outputExtractor, weightOverprediction, new ObservationStore() );
+    }
+
+    public LinearPredictorCustomLoss( VariableExtractor inputExtractor, VariableExtractor outputExtractor, ObservationStore observations ) {
+        this( inputExtractor, outputExtractor, 0.02, observations );
     }
 
     public LinearPredictorCustomLoss( VariableExtractor inputExtractor, VariableExtractor outputExtractor ) {
@@ -50,35 +53,45 @@ public class LinearPredictorCustomLoss implements LinearPredictor {
         synchronized ( unequalLossFunction ) {
             version.incrementAndGet();
             unequalLossFunction.addPoint( input, output );
-            optimizedParameters = null;
             regression.addData( input, output );
         }
     }
 
     @Override
     public Double queryPrediction( Task task ) {
+        return queryPrediction( inputExtractor.extractVariable( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
         synchronized ( unequalLossFunction ) {
-            if ( !unequalLossFunction.canTrain() ) {
-                return null;
-            }
+            final double[] optimizedParameters = unequalLossFunction.getParameters();
             if ( optimizedParameters == null ) {
-                SimplexOptimizer optimizer = new SimplexOptimizer(1e-30, 1e-50);
-                double[] startPoint = { regression.getIntercept(), regression.getSlope() }; // Initial guess for the parameters
-                NelderMeadSimplex simplex = new NelderMeadSimplex(startPoint.length);
-                optimizedParameters = optimizer.optimize(
-                        MaxEval.unlimited(),
-                        new ObjectiveFunction(unequalLossFunction),
-                        GoalType.MINIMIZE,
-                        new InitialGuess(startPoint),
-                        simplex
-                ).getPoint();
+                return null;
             }
-            final double x = inputExtractor.extractVariable( task ) / BYTES_IN_GB;
+            final double x = independentValue / BYTES_IN_GB;
             final double prediction = optimizedParameters[0] + x * optimizedParameters[1];
             return prediction * BYTES_IN_GB;
         }
     }
 
+    @Override
+    public Predictor train() {
+        final double[] parameters;
+        final long currentVersion;
+        synchronized ( unequalLossFunction ) {
+            parameters = unequalLossFunction.getParameters();
+            currentVersion = version.get();
+        }
+        if ( parameters == null ) {
+            return new PredictorSnapshot( this, currentVersion, x -> null );
+        }
+        final double intercept = parameters[0];
+        final double slope = parameters[1];
+        return new PredictorSnapshot( this, currentVersion,
+                x -> ( intercept + slope * x / BYTES_IN_GB ) * BYTES_IN_GB );
+    }
+
     @Override
     public double getDependentValue( Task task ) {
         return outputExtractor.extractVariable( task );
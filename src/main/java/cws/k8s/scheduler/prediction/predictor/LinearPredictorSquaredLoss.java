@@ -2,6 +2,7 @@ package cws.k8s.scheduler.prediction.predictor;
 
 import cws.k8s.scheduler.model.Task;
 import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.PredictorSnapshot;
 import cws.k8s.scheduler.prediction.extractor.VariableExtractor;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
@@ -32,13 +33,35 @@ public class LinearPredictorSquaredLoss implements LinearPredictor {
 
     @Override
     public Double queryPrediction( Task task ) {
+        return queryPrediction( inputExtractor.extractVariable( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
         final double predict;
         synchronized ( regression ) {
-            predict = regression.predict( inputExtractor.extractVariable( task ) );
+            predict = regression.predict( independentValue );
         }
         return Double.isNaN( predict ) ? null : predict;
     }
 
+    @Override
+    public Predictor train() {
+        final double intercept;
+        final double slope;
+        final long currentVersion;
+        synchronized ( regression ) {
+            intercept = regression.getIntercept();
+            slope = regression.getSlope();
+            currentVersion = version.get();
+        }
+        if ( Double.isNaN( intercept ) || Double.isNaN( slope ) ) {
+            return new PredictorSnapshot( this, currentVersion, x -> null );
+        }
+        return new PredictorSnapshot( this, currentVersion,
+                x -> intercept + slope * x );
+    }
+
     @Override
     public double getDependentValue( Task task ) {
         return outputExtractor.extractVariable( task );
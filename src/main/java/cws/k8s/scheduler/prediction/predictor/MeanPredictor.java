@@ -2,6 +2,7 @@ package cws.k8s.scheduler.prediction.predictor;
 
 import cws.k8s.scheduler.model.Task;
 import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.PredictorSnapshot;
 import cws.k8s.scheduler.prediction.extractor.VariableExtractor;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
@@ -34,6 +35,22 @@ public class MeanPredictor implements Predictor {
         return mean == 0 ? null : mean;
     }
 
+    @Override
+    public Double queryPrediction( double independentValue ) {
+        return mean == 0 ? null : mean;
+    }
+
+    @Override
+    public Predictor train() {
+        final Double prediction;
+        final long currentVersion;
+        synchronized ( this ) {
+            prediction = mean == 0 ? null : mean;
+            currentVersion = version.get();
+        }
+        return new PredictorSnapshot( this, currentVersion, x -> prediction );
+    }
+
     @Override
     public double getDependentValue( Task task ) {
         return outputExtractor.extractVariable( task );
@@ -1,32 +1,64 @@
 package cws.k8s.scheduler.prediction.predictor;
 
 import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
+import cws.k8s.scheduler.prediction.PredictorSnapshot;
 import cws.k8s.scheduler.prediction.extractor.VariableExtractor;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.math3.exception.NoDataException;
 import org.apache.commons.math3.exception.NullArgumentException;
 import org.apache.commons.math3.exception.util.LocalizedFormats;
-import org.apache.commons.math3.linear.SingularMatrixException;
-import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
+import org.apache.commons.math3.linear.Array2DRowRealMatrix;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.DecompositionSolver;
+import org.apache.commons.math3.linear.LUDecomposition;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 import java.util.concurrent.atomic.AtomicLong;
 
-@RequiredArgsConstructor
+/**
+ * Least squares fit of a polynomial of the input.
+ * The normal equations are accumulated per observation in O(degree^2) and solved with an LU decomposition,
+ * the design matrix is never built. Inputs are scaled by the largest absolute input seen so far to keep the equations well conditioned.
+ * Observations replaced in the {@link ObservationStore} are subtracted again.
+ * Subtracting accumulates rounding errors and keeps the scale of inputs that are gone,
+ * therefore, the sums are rebuilt from the store once as many observations were replaced as it holds.
+ */
 @Slf4j
 public class PolynomialPredictor implements Predictor {
 
     private final AtomicLong version = new AtomicLong( 0 );
     private final VariableExtractor inputExtractor;
     private final VariableExtractor outputExtractor;
-    private final OLSMultipleLinearRegression fitter = new OLSMultipleLinearRegression();
-    private final List<double[]> observationsX = new ArrayList<>();
-    private final List<Double> observationsY = new ArrayList<>();
+    private final ObservationStore observations;
     private final int polynomialDegree;
-    private double[] fitted;
+    /**
+     * Sums of u^(j+k) and u^j * y with u = x / scale
+     */
+    private final double[][] xtx;
+    private final double[] xty;
+    private long n = 0;
+    private double scale = 0;
+    private int removedSinceRebuild = 0;
+    private volatile double[] fitted;
+
+    public PolynomialPredictor( VariableExtractor inputExtractor, VariableExtractor outputExtractor, int polynomialDegree ) {
+        this( inputExtractor, outputExtractor, polynomialDegree, new ObservationStore() );
+    }
+
+    public PolynomialPredictor( VariableExtractor inputExtractor, VariableExtractor outputExtractor, int polynomialDegree, ObservationStore observations ) {
+        this.inputExtractor = inputExtractor;
+        this.outputExtractor = outputExtractor;
+        this.polynomialDegree = polynomialDegree;
+        this.observations = observations;
+        this.xtx = new double[polynomialDegree + 1][polynomialDegree + 1];
+        this.xty = new double[polynomialDegree + 1];
+        observations.setRemovalListener( ( index, x, y ) -> {
+            accumulate( x, y, -1 );
+            removedSinceRebuild++;
+        } );
+    }
 
     @Override
     public void addTask( Task t ) {
@@ -35,54 +67,128 @@ public class PolynomialPredictor implements Predictor {
         }
         double input = inputExtractor.extractVariable( t );
         double output = outputExtractor.extractVariable( t );
-        synchronized ( fitter ) {
-            addPoint( input, output );
-            if ( observationsX.size() <= polynomialDegree  ) {
+        synchronized ( xtx ) {
+            if ( observations.add( input, output ) >= 0 ) {
+                accumulate( input, output, 1 );
+            }
+            if ( removedSinceRebuild > 0 && removedSinceRebuild >= observations.size() ) {
+                rebuild();
+            }
+            if ( n <= polynomialDegree  ) {
                 return;
             }
-            try {
-                fitter.newSampleData( constructY(), constructX() );
-                final double[] fittedValues = fitter.estimateRegressionParameters();
+            final double[] fittedValues = solve();
+            if ( fittedValues != null ) {
                 version.incrementAndGet();
                 fitted = fittedValues;
-            } catch ( SingularMatrixException ignored ){}
+            }
         }
     }
 
-    private void addPoint( double x, double y ) {
-        double[] xNew = new double[polynomialDegree];
-        xNew[0] = x;
-        for ( int j = 1; j < polynomialDegree; j++ ) {
-            xNew[j] = Math.pow( x, j + 1d );
+    private void accumulate( double x, double y, int sign ) {
+        if ( Math.abs( x ) > scale ) {
+            rescale( Math.abs( x ) );
+        }
+        final double u = scale == 0 ? 0 : x / scale;
+        final double[] powers = new double[polynomialDegree + 1];
+        powers[0] = 1;
+        for ( int j = 1; j < powers.length; j++ ) {
+            powers[j] = powers[j - 1] * u;
         }
-        observationsX.add( xNew );
-        observationsY.add( y );
+        for ( int j = 0; j < powers.length; j++ ) {
+            for ( int k = 0; k < powers.length; k++ ) {
+                xtx[j][k] += sign * powers[j] * powers[k];
+            }
+            xty[j] += sign * powers[j] * y;
+        }
+        n += sign;
     }
 
-    private double[][] constructX(){
-        double[][] x = new double[observationsX.size()][];
-        int i = 0;
-        for ( double[] doubles : observationsX ) {
-            x[i++] = doubles;
+    /**
+     * Sums all observations of the store again, the scale is the largest absolute input in the store
+     */
+    private void rebuild() {
+        double max = 0;
+        for ( int i = 0; i < observations.size(); i++ ) {
+            max = Math.max( max, Math.abs( observations.getX( i ) ) );
+        }
+        for ( double[] row : xtx ) {
+            Arrays.fill( row, 0 );
+        }
+        Arrays.fill( xty, 0 );
+        n = 0;
+        scale = max;
+        for ( int i = 0; i < observations.size(); i++ ) {
+            accumulate( observations.getX( i ), observations.getY( i ), 1 );
         }
-        return x;
+        removedSinceRebuild = 0;
     }
 
-    private double[] constructY(){
-        double[] y = new double[observationsY.size()];
-        int i = 0;
-        for ( Double aDouble : observationsY ) {
-            y[i++] = aDouble;
+    double getScale() {
+        synchronized ( xtx ) {
+            return scale;
         }
-        return y;
+    }
+
+    /**
+     * Changing the scale from s to s' multiplies all sums of u^j by (s / s')^j
+     */
+    private void rescale( double newScale ) {
+        if ( scale > 0 ) {
+            final double ratio = scale / newScale;
+            for ( int j = 0; j < xty.length; j++ ) {
+                for ( int k = 0; k < xty.length; k++ ) {
+                    xtx[j][k] *= Math.pow( ratio, j + k );
+                }
+                xty[j] *= Math.pow( ratio, j );
+            }
+        }
+        scale = newScale;
+    }
+
+    /**
+     * @return the coefficients for the unscaled input, or null if the equations are singular
+     */
+    private double[] solve() {
+        final DecompositionSolver solver = new LUDecomposition( new Array2DRowRealMatrix( xtx, true ) ).getSolver();
+        if ( !solver.isNonSingular() ) {
+            return null;
+        }
+        final double[] coefficients = solver.solve( new ArrayRealVector( xty, true ) ).toArray();
+        for ( int j = 1; j < coefficients.length; j++ ) {
+            coefficients[j] /= Math.pow( scale, j );
+        }
+        return coefficients;
     }
 
     @Override
     public Double queryPrediction( Task task ) {
-        if ( fitted == null ) {
+        return queryPrediction( inputExtractor.extractVariable( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
+        final double[] coefficients = fitted;
+        if ( coefficients == null ) {
             return null;
         }
-        return evaluate( fitted, inputExtractor.extractVariable( task ) );
+        return evaluate( coefficients, independentValue );
+    }
+
+    @Override
+    public Predictor train() {
+        final double[] coefficients;
+        final long currentVersion;
+        synchronized ( xtx ) {
+            // fitted is replaced, never modified
+            coefficients = fitted;
+            currentVersion = version.get();
+        }
+        if ( coefficients == null ) {
+            return new PredictorSnapshot( this, currentVersion, x -> null );
+        }
+        return new PredictorSnapshot( this, currentVersion,
+                x -> evaluate( coefficients, x ) );
     }
 
     @Override
@@ -1,14 +1,13 @@
 package cws.k8s.scheduler.prediction.predictor;
 
 import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
 import cws.k8s.scheduler.prediction.offset.WeightedVarianceOffset;
 import cws.k8s.scheduler.util.Formater;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.LinkedList;
-import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -29,18 +28,26 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
     long n = 0;
     private long fixedOffset = 1024L * 1024L * 128L;
 
-    private final Task[] firstTasks;
+    /**
+     * Independent values of the first tasks
+     */
+    private final double[] firstTasks;
 
-    private final List<Task> observedTasks = new LinkedList<>();
+    private final ObservationStore observations;
 
     public PonderPredictor( LinearPredictor predictor ) {
         this( predictor, 5 );
     }
 
     public PonderPredictor( LinearPredictor predictor, int firstTasksSize ) {
+        this( predictor, firstTasksSize, new ObservationStore() );
+    }
+
+    public PonderPredictor( LinearPredictor predictor, int firstTasksSize, ObservationStore observations ) {
         super( predictor);
         linearPredictor = predictor;
-        firstTasks = new Task[firstTasksSize];
+        firstTasks = new double[firstTasksSize];
+        this.observations = observations;
     }
 
     @Override
@@ -60,7 +67,7 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
                 min = output;
             }
             if ( n < firstTasks.length ) {
-                firstTasks[(int) n] = t;
+                firstTasks[(int) n] = input;
             }
             if ( input > maxX ) {
                 maxX = input;
@@ -73,15 +80,19 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
             if ( n >= 2 ){
                 r = linearPredictor.getR();
             }
-            observedTasks.add( t );
+            observations.add( input, output );
         }
     }
 
     @Override
     public Double queryPrediction( Task task ) {
+        return queryPrediction( linearPredictor.getIndependentValue( task ) );
+    }
+
+    @Override
+    public Double queryPrediction( double independentValue ) {
         synchronized ( linearPredictor ) {
 
-            final double independentValue = linearPredictor.getIndependentValue( task );
             // If we have less than 5 tasks, predict using rules
             if ( n < firstTasks.length ) {
                 return predictionForFirst5Tasks( independentValue );
@@ -95,7 +106,7 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
 
             //if positive linear relationship
             if ( r > 0.3 ) {
-                Double prediction = predict( task );
+                Double prediction = predict( independentValue );
                 return checkPrediction( prediction, independentValue );
             }
 
@@ -114,7 +125,7 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
     @Nullable
     private Double predictionForFirst5Tasks( double independentValue ) {
         for ( int i = 0; i < n; i++ ) {
-            if ( linearPredictor.getIndependentValue( firstTasks[i] ) > independentValue ) {
+            if ( firstTasks[i] > independentValue ) {
                 // Assuming that a larger input leads to a larger output
                 return max + fixedOffset;
             }
@@ -122,8 +133,8 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
         return null;
     }
 
-    private Double predict( Task task ) {
-        return linearPredictor.queryPrediction( task );
+    private Double predict( double independentValue ) {
+        return linearPredictor.queryPrediction( independentValue );
     }
 
     @Nullable
@@ -162,7 +173,7 @@ public class PonderPredictor extends WeightedVarianceOffset implements Predictor
     }
 
     private double determineOffset( double independentValue ) {
-        return getOffset( observedTasks, independentValue );
+        return getOffset( observations, independentValue );
     }
 
 }
@@ -1,38 +1,88 @@
 package cws.k8s.scheduler.prediction.predictor.loss;
 
-import lombok.RequiredArgsConstructor;
+import cws.k8s.scheduler.prediction.ObservationStore;
 import org.apache.commons.math3.analysis.MultivariateFunction;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 
-@RequiredArgsConstructor
+/**
+ * Squared loss that weights overpredictions with lambda, i.e., an asymmetric least squares (expectile) regression.
+ * For a fixed split of the points into points above and below the line, the minimum is a weighted least squares fit.
+ * {@link #getParameters()} therefore iterates weighted least squares until the split does not change anymore.
+ * Between full fits, new points are added to the sums of their side of the current line, so a query costs O(1).
+ * The side of each point is kept, so points replaced in the {@link ObservationStore} are removed from the sums they were added to.
+ */
 public class UnequalLossFunction implements MultivariateFunction {
-    private final ArrayList<Double> x = new ArrayList<>();
-    private final ArrayList<Double> y = new ArrayList<>();
+
+    private static final int MAX_ITERATIONS = 50;
+    private static final int MIN_POINTS_BETWEEN_FITS = 16;
+
+    private final ObservationStore points;
+    private double firstX = Double.NaN;
+    private boolean distinctX = false;
 
     /**
      * Lambda parameter for the loss function to penalize overpredictions less
      */
     private final double lambda;
 
+    /**
+     * Count, sum of x, x*x, y and x*y of the points above (index 0) and on or below (index 1) the line
+     */
+    private double[][] sums = new double[2][5];
+    /**
+     * Points, by their index in the store, that were added to the sums above the line
+     */
+    private BitSet above = new BitSet();
+    private double[] parameters = null;
+    private boolean solved = false;
+    private long pointsAtLastFit = 0;
+
+    public UnequalLossFunction( double lambda ) {
+        this( lambda, new ObservationStore() );
+    }
+
+    public UnequalLossFunction( double lambda, ObservationStore points ) {
+        this.lambda = lambda;
+        this.points = points;
+        points.setRemovalListener( this::removePoint );
+    }
+
     public void addPoint(double x, double y) {
-        this.x.add( x );
-        this.y.add( y );
+        if ( Double.isNaN( firstX ) ) {
+            firstX = x;
+        } else if ( x != firstX ) {
+            distinctX = true;
+        }
+        final int index = points.add( x, y );
+        if ( index >= 0 && parameters != null ) {
+            final boolean isAbove = isAbove( parameters, x, y );
+            above.set( index, isAbove );
+            addToSums( sums, isAbove, x, y, 1 );
+            solved = false;
+        }
+    }
+
+    private void removePoint( int index, double x, double y ) {
+        if ( parameters != null ) {
+            addToSums( sums, above.get( index ), x, y, -1 );
+            solved = false;
+        }
     }
 
     @Override
     public double value(double[] parameters) {
         double cLoss = 0.0;
-        for (int i = 0; i < x.size(); i++) {
+        for (int i = 0; i < points.size(); i++) {
             cLoss += getLoss( parameters, i );
         }
         return cLoss;
     }
 
     private double getLoss( double[] parameters, int i ) {
-        final Double x1 = x.get( i );
-        double predicted = parameters[0] + x1 * parameters[1];
-        double error = y.get( i ) - predicted;
+        double predicted = parameters[0] + points.getX( i ) * parameters[1];
+        double error = points.getY( i ) - predicted;
         double loss;
         if (error > 0) {
             loss = error * error; // Penalize underpredictions more
@@ -42,20 +92,92 @@ public class UnequalLossFunction implements MultivariateFunction {
         return loss;
     }
 
-    public boolean canTrain(){
-        if (x.size() < 2) {
-            return false;
+    /**
+     * Intercept and slope minimizing the loss, or null if it {@link #canTrain() cannot train}.
+     * A full fit runs after the first query and once an eighth of the points is new,
+     * starting from the previous parameters. In between, the line is solved from the sums only.
+     */
+    public double[] getParameters() {
+        if ( !canTrain() ) {
+            return null;
+        }
+        if ( parameters == null || points.getSeen() - pointsAtLastFit >= Math.max( MIN_POINTS_BETWEEN_FITS, points.size() / 8 ) ) {
+            fit();
+        } else if ( !solved ) {
+            final double[] next = solve( sums );
+            if ( next != null ) {
+                parameters = next;
+            }
+            solved = true;
         }
-        double x0 = x.get(0);
-        for (int i = 1; i < x.size(); i++) {
-            if (x.get(i) != x0) {
-                return true;
+        return parameters;
+    }
+
+    private void fit() {
+        double[] current = parameters;
+        double[][] currentSums = null;
+        BitSet currentAbove = null;
+        for ( int iteration = 0; iteration < MAX_ITERATIONS; iteration++ ) {
+            final double[][] nextSums = new double[2][5];
+            final BitSet nextAbove = new BitSet( points.size() );
+            for ( int i = 0; i < points.size(); i++ ) {
+                // without parameters, all points get the same weight, which is the ordinary least squares fit
+                final boolean isAbove = isAbove( current, points.getX( i ), points.getY( i ) );
+                nextAbove.set( i, isAbove );
+                addToSums( nextSums, isAbove, points.getX( i ), points.getY( i ), 1 );
             }
+            if ( Arrays.deepEquals( nextSums, currentSums ) ) {
+                break;
+            }
+            final double[] next = solve( nextSums );
+            if ( next == null ) {
+                break;
+            }
+            currentSums = nextSums;
+            currentAbove = nextAbove;
+            current = next;
+        }
+        if ( current != null && currentSums != null ) {
+            parameters = current;
+            sums = currentSums;
+            above = currentAbove;
+        }
+        solved = true;
+        pointsAtLastFit = points.getSeen();
+    }
+
+    private static boolean isAbove( double[] parameters, double x, double y ) {
+        return parameters == null || y > parameters[0] + x * parameters[1];
+    }
+
+    private static void addToSums( double[][] sums, boolean above, double x, double y, int sign ) {
+        final double[] side = above ? sums[0] : sums[1];
+        side[0] += sign;
+        side[1] += sign * x;
+        side[2] += sign * x * x;
+        side[3] += sign * y;
+        side[4] += sign * x * y;
+    }
+
+    private double[] solve( double[][] sums ) {
+        final double w = sums[0][0] + lambda * sums[1][0];
+        final double wx = sums[0][1] + lambda * sums[1][1];
+        final double wxx = sums[0][2] + lambda * sums[1][2];
+        final double wy = sums[0][3] + lambda * sums[1][3];
+        final double wxy = sums[0][4] + lambda * sums[1][4];
+        final double det = w * wxx - wx * wx;
+        if ( !( det > 1e-12 * w * wxx ) ) {
+            return null;
         }
-        return false;
+        final double slope = ( w * wxy - wx * wy ) / det;
+        return new double[]{ ( wy - slope * wx ) / w, slope };
+    }
+
+    public boolean canTrain(){
+        return points.size() >= 2 && distinctX;
     }
 
     public String toString() {
-        return "x = " + x + "\n" + "y = " + y + "\n";
+        return points.toString();
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,5 @@
 package cws.k8s.scheduler.rest;
 
-import cws.k8s.scheduler.dag.DAG;
 import cws.k8s.scheduler.dag.InputEdge;
 import cws.k8s.scheduler.client.CWSKubernetesClient;
 import cws.k8s.scheduler.dag.Vertex;
@@ -9,11 +8,10 @@ import cws.k8s.scheduler.model.TaskConfig;
 import cws.k8s.scheduler.model.TaskMetrics;
 import cws.k8s.scheduler.scheduler.PrioritizeAssignScheduler;
 import cws.k8s.scheduler.scheduler.Scheduler;
-import cws.k8s.scheduler.scheduler.nodeassign.FairAssign;
+import cws.k8s.scheduler.scheduler.SchedulerFactory;
 import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
-import cws.k8s.scheduler.scheduler.nodeassign.RandomNodeAssign;
 import cws.k8s.scheduler.scheduler.nodeassign.RoundRobinAssign;
-import cws.k8s.scheduler.scheduler.prioritize.*;
+import cws.k8s.scheduler.scheduler.prioritize.Prioritize;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -21,6 +19,10 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.boot.SpringApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.http.HttpStatus;
@@ -29,9 +31,10 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.HashMap;
+import java.io.File;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RestController
 @Slf4j
@@ -48,7 +51,7 @@ public class SchedulerRestController {
      * Execution: String in lowercase
      * Scheduler: An instance of a scheduler with the requested type
      */
-    private static final Map<String, Scheduler> schedulerHolder = new HashMap<>();
+    private static final Map<String, Scheduler> schedulerHolder = new ConcurrentHashMap<>();
 
     public SchedulerRestController(
             @Autowired CWSKubernetesClient client,
@@ -69,6 +72,11 @@ public class SchedulerRestController {
         }
     }
 
+    @Scheduled(fixedDelay = 30000)
+    public void flushTraces() {
+        schedulerHolder.values().forEach( Scheduler::flushTrace );
+    }
+
     private ResponseEntity<String> noSchedulerFor( String execution ){
         log.warn( "No scheduler for execution: {}", execution );
         return new ResponseEntity<>( "There is no scheduler for " + execution, HttpStatus.BAD_REQUEST );
@@ -110,34 +118,21 @@ public class SchedulerRestController {
                 final String[] split = strategy.split( "-" );
                 Prioritize prioritize;
                 NodeAssign assign;
-                if ( split.length <= 2 ) {
-                    switch ( split[0].toLowerCase() ) {
-                        case "fifo": prioritize = new FifoPrioritize(); break;
-                        case "rank": prioritize = new RankPrioritize(); break;
-                        case "rank_min": prioritize = new RankMinPrioritize(); break;
-                        case "rank_max": prioritize = new RankMaxPrioritize(); break;
-                        case "leastfinishedfirst", "lff", "leastfinishedfirstmin", "lff_min": prioritize = new LeastFinishedFirstPrioritize(); break;
-                        case "leastfinishedfirstmax", "lff_max": prioritize = new LeastFinishedFirstMaxPrioritize(); break;
-                        case "getsamples", "gs": prioritize = new GetSamplesMinPrioritize(); break;
-                        case "getsamplesmax", "gsm": prioritize = new GetSamplesMaxPrioritize(); break;
-                        case "random", "r": prioritize = new RandomPrioritize(); break;
-                        case "max": prioritize = new MaxInputPrioritize(); break;
-                        case "min": prioritize = new MinInputPrioritize(); break;
-                        default:
-                            return new ResponseEntity<>( "No Prioritize for: " + split[0], HttpStatus.NOT_FOUND );
+                final boolean backfill = split.length == 3 && split[2].equalsIgnoreCase( "backfill" );
+                if ( split.length <= 2 || backfill ) {
+                    prioritize = SchedulerFactory.getPrioritize( split[0] );
+                    if ( prioritize == null ) {
+                        return new ResponseEntity<>( "No Prioritize for: " + split[0], HttpStatus.NOT_FOUND );
                     }
-                    if ( split.length == 2 ) {
-                        switch ( split[1].toLowerCase() ) {
-                            case "random": case "r": assign = new RandomNodeAssign(); break;
-                            case "roundrobin": case "rr": assign = new RoundRobinAssign(); break;
-                            case "fair": case "f": assign = new FairAssign(); break;
-                            default:
-                                return new ResponseEntity<>( "No Assign for: " + split[1], HttpStatus.NOT_FOUND );
+                    if ( split.length >= 2 ) {
+                        assign = SchedulerFactory.getNodeAssign( split[1] );
+                        if ( assign == null ) {
+                            return new ResponseEntity<>( "No Assign for: " + split[1], HttpStatus.NOT_FOUND );
                         }
                     } else {
                         assign = new RoundRobinAssign();
                     }
-                    scheduler = new PrioritizeAssignScheduler( execution, client, namespace, config, prioritize, assign );
+                    scheduler = new PrioritizeAssignScheduler( execution, client, namespace, config, prioritize, assign, backfill );
                 } else {
                     return new ResponseEntity<>( "No scheduler for strategy: " + strategy, HttpStatus.NOT_FOUND );
                 }
@@ -322,6 +317,35 @@ public class SchedulerRestController {
         return new ResponseEntity<>( HttpStatus.OK );
     }
 
+    @Operation(summary = "Download the scheduler trace of an execution")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Gzip compressed TSV with one line per scheduled task",
+                    content = @Content),
+            @ApiResponse(responseCode = "404", description = "Traces are not aggregated for this execution",
+                    content = @Content),
+            @ApiResponse(responseCode = "400", description = "No scheduler found for this execution",
+                    content = @Content) })
+    @GetMapping("/v1/scheduler/{execution}/trace")
+    ResponseEntity<? extends Object> getTrace( @PathVariable String execution ) {
+
+        final Scheduler scheduler = schedulerHolder.get( execution );
+        if ( scheduler == null ) {
+            return noSchedulerFor( execution );
+        }
+
+        final File traceFile = scheduler.flushTrace();
+        if ( traceFile == null || !traceFile.exists() ) {
+            return new ResponseEntity<>( HttpStatus.NOT_FOUND );
+        }
+
+        final Resource resource = new FileSystemResource( traceFile );
+        return ResponseEntity.ok()
+                .header( HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + execution + ".trace.tsv.gz\"" )
+                .contentType( MediaType.parseMediaType( "application/gzip" ) )
+                .body( resource );
+
+    }
+
     @GetMapping ("/health")
     ResponseEntity<Object> checkHealth() {
         return new ResponseEntity<>( HttpStatus.OK );
@@ -343,7 +367,7 @@ public class SchedulerRestController {
             return noSchedulerFor( execution );
         }
 
-        scheduler.getDag().registerVertices( vertices );
+        scheduler.addVertices( vertices );
 
         return new ResponseEntity<>( HttpStatus.OK );
 
@@ -365,7 +389,7 @@ public class SchedulerRestController {
             return noSchedulerFor( execution );
         }
 
-        scheduler.getDag().removeVertices( vertices );
+        scheduler.removeVertices( vertices );
 
         return new ResponseEntity<>( HttpStatus.OK );
 
@@ -387,8 +411,7 @@ public class SchedulerRestController {
             return noSchedulerFor( execution );
         }
 
-        final DAG dag = scheduler.getDag();
-        dag.registerEdges( edges );
+        scheduler.addEdges( edges );
 
         return new ResponseEntity<>( HttpStatus.OK );
 
@@ -410,8 +433,7 @@ public class SchedulerRestController {
             return noSchedulerFor( execution );
         }
 
-        final DAG dag = scheduler.getDag();
-        dag.removeEdges( edges );
+        scheduler.removeEdges( edges );
 
         return new ResponseEntity<>( HttpStatus.OK );
 
@@ -0,0 +1,240 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.State;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backfilling on top of a node assignment: the task with the highest priority that could not be assigned gets a reservation
+ * on the node that frees enough resources soonest, estimated from the predicted runtimes of the tasks running there.
+ * Only tasks ranked below the blocked task give way: they are removed from the node if the blocked task fits now without them,
+ * otherwise they may only use the reserved node if they are predicted to finish before the reservation starts.
+ * The reservation is determined again in every scheduling round, each shard keeps its own.
+ */
+@Slf4j
+class Backfill {
+
+    private final Scheduler scheduler;
+
+    /**
+     * Tasks placed by this scheduler with the time they were placed, per node
+     */
+    private final Map<NodeWithAlloc, Map<Task, Long>> placed = new HashMap<>();
+
+    /**
+     * The node reserved in the last round of each shard, shards without a reservation have no entry
+     */
+    private final Map<Integer, NodeWithAlloc> reservedByShard = new ConcurrentHashMap<>();
+
+    Backfill( Scheduler scheduler ) {
+        this.scheduler = scheduler;
+    }
+
+    private static final class Reservation {
+        private final NodeWithAlloc node;
+        private final long start;
+        /**
+         * Alignments of lower priority that have to leave the node if the reservation starts now
+         */
+        private final Set<NodeTaskAlignment> evicted;
+
+        private Reservation( NodeWithAlloc node, long start, Set<NodeTaskAlignment> evicted ) {
+            this.node = node;
+            this.start = start;
+            this.evicted = evicted;
+        }
+    }
+
+    /**
+     * @param shard the shard whose round this is
+     * @param sortedTasks all unscheduled tasks of the shard by priority
+     * @param alignment the alignment of the node assignment
+     * @param availableAfterAssignment the resources left after the node assignment
+     * @return the alignment that respects the reservation
+     */
+    synchronized List<NodeTaskAlignment> apply( int shard,
+                                                List<Task> sortedTasks,
+                                                List<NodeTaskAlignment> alignment,
+                                                Map<NodeWithAlloc, Requirements> availableAfterAssignment ) {
+        final long now = System.currentTimeMillis();
+        removeFinished();
+        final Map<Task, NodeTaskAlignment> assigned = new HashMap<>();
+        for ( NodeTaskAlignment nodeTaskAlignment : alignment ) {
+            assigned.put( nodeTaskAlignment.task, nodeTaskAlignment );
+        }
+        // the rank of each assigned task, all tasks ranked above the blocked one are assigned
+        final Map<NodeTaskAlignment, Integer> rank = new HashMap<>();
+        Task blocked = null;
+        int blockedRank = -1;
+        for ( Task task : sortedTasks ) {
+            final NodeTaskAlignment nodeTaskAlignment = assigned.get( task );
+            if ( nodeTaskAlignment != null ) {
+                rank.put( nodeTaskAlignment, rank.size() );
+            } else if ( blocked == null ) {
+                blocked = task;
+                blockedRank = rank.size();
+            }
+        }
+        final Reservation reservation = blocked == null ? null
+                : reserve( blocked, blockedRank, alignment, rank, availableAfterAssignment, now );
+        final List<NodeTaskAlignment> result;
+        if ( reservation == null ) {
+            result = alignment;
+        } else if ( reservation.start <= now ) {
+            log.info( "Backfill: {} is placed on {} instead of {} tasks of lower priority", blocked.getConfig().getName(),
+                    reservation.node.getName(), reservation.evicted.size() );
+            result = new ArrayList<>( alignment.size() + 1 );
+            result.add( new NodeTaskAlignment( reservation.node, blocked ) );
+            for ( NodeTaskAlignment nodeTaskAlignment : alignment ) {
+                if ( !reservation.evicted.contains( nodeTaskAlignment ) ) {
+                    result.add( nodeTaskAlignment );
+                }
+            }
+        } else {
+            log.debug( "Backfill: {} reserves {} in {} ms", blocked.getConfig().getName(), reservation.node.getName(), reservation.start - now );
+            result = new ArrayList<>( alignment.size() );
+            for ( NodeTaskAlignment nodeTaskAlignment : alignment ) {
+                if ( !nodeTaskAlignment.node.equals( reservation.node )
+                        || rank.get( nodeTaskAlignment ) < blockedRank
+                        || finishesBefore( nodeTaskAlignment.task, now, reservation.start ) ) {
+                    result.add( nodeTaskAlignment );
+                }
+            }
+        }
+        if ( reservation != null && reservation.start > now ) {
+            reservedByShard.put( shard, reservation.node );
+        } else {
+            reservedByShard.remove( shard );
+        }
+        if ( reservation != null && ( reservation.start <= now ? !reservation.evicted.isEmpty() : result.size() < alignment.size() ) ) {
+            // the node assignment counted the withdrawn alignments as used, task classes parked because of them may fit now
+            NodeWithAlloc.advanceCapacityEpoch();
+        }
+        for ( NodeTaskAlignment nodeTaskAlignment : result ) {
+            placed.computeIfAbsent( nodeTaskAlignment.node, k -> new HashMap<>() ).put( nodeTaskAlignment.task, now );
+        }
+        return result;
+    }
+
+    /**
+     * @return true if the node was reserved for a blocked task in the last round of any shard
+     */
+    boolean isReserved( NodeWithAlloc node ) {
+        return reservedByShard.containsValue( node );
+    }
+
+    /**
+     * Forget tasks that finished or were not bound to the node they were placed on
+     */
+    private void removeFinished() {
+        final Iterator<Map.Entry<NodeWithAlloc, Map<Task, Long>>> nodes = placed.entrySet().iterator();
+        while ( nodes.hasNext() ) {
+            final Map.Entry<NodeWithAlloc, Map<Task, Long>> entry = nodes.next();
+            final NodeWithAlloc node = entry.getKey();
+            entry.getValue().keySet().removeIf( task -> {
+                final State state = task.getState().getState();
+                return task.getNode() == null || !task.getNode().equals( node )
+                        || state.level < State.SCHEDULED.level || state.level >= State.PROCESSING_FINISHED.level;
+            } );
+            if ( entry.getValue().isEmpty() ) {
+                nodes.remove();
+            }
+        }
+    }
+
+    private static boolean finishesBefore( Task task, long now, long time ) {
+        return task.getPredictedRuntime() >= 0 && now + task.getPredictedRuntime() <= time;
+    }
+
+    /**
+     * Alignments of this round ranked above the blocked task keep their place and hold their resources,
+     * the ones ranked below can be removed from the node.
+     * @return the node that can run the task soonest, null if no node is predicted to free enough resources
+     */
+    private Reservation reserve( Task task, int blockedRank, List<NodeTaskAlignment> alignment, Map<NodeTaskAlignment, Integer> rank,
+                                 Map<NodeWithAlloc, Requirements> available, long now ) {
+        final Map<NodeWithAlloc, List<NodeTaskAlignment>> byNode = new HashMap<>();
+        for ( NodeTaskAlignment nodeTaskAlignment : alignment ) {
+            byNode.computeIfAbsent( nodeTaskAlignment.node, k -> new ArrayList<>() ).add( nodeTaskAlignment );
+        }
+        final Requirements request = task.getPlanedRequirements();
+        Reservation best = null;
+        for ( Map.Entry<NodeWithAlloc, Requirements> entry : available.entrySet() ) {
+            final NodeWithAlloc node = entry.getKey();
+            if ( !node.canScheduleNewPod()
+                    || !node.getMaxResources().higherOrEquals( request )
+                    || !scheduler.affinitiesMatch( task.getPod(), node ) ) {
+                continue;
+            }
+            final List<NodeTaskAlignment> higher = new ArrayList<>();
+            final List<NodeTaskAlignment> lower = new ArrayList<>();
+            for ( NodeTaskAlignment nodeTaskAlignment : byNode.getOrDefault( node, List.of() ) ) {
+                ( rank.get( nodeTaskAlignment ) < blockedRank ? higher : lower ).add( nodeTaskAlignment );
+            }
+            // the lowest priority leaves first
+            lower.sort( Comparator.comparing( rank::get ).reversed() );
+            final Requirements free = new Requirements( entry.getValue().getCpu(), entry.getValue().getRam() );
+            final Set<NodeTaskAlignment> evicted = new HashSet<>();
+            final Iterator<NodeTaskAlignment> lowerIterator = lower.iterator();
+            while ( !free.higherOrEquals( request ) && lowerIterator.hasNext() ) {
+                final NodeTaskAlignment nodeTaskAlignment = lowerIterator.next();
+                free.addToThis( nodeTaskAlignment.task.getPlanedRequirements() );
+                evicted.add( nodeTaskAlignment );
+            }
+            final long start = free.higherOrEquals( request ) ? now : freeAt( node, free, request, higher, now );
+            if ( start < Long.MAX_VALUE && ( best == null || start < best.start
+                    || ( start == best.start && evicted.size() < best.evicted.size() ) ) ) {
+                best = new Reservation( node, start, start <= now ? evicted : Set.of() );
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Tasks that run longer than predicted still hold their resources, they are expected to end right after now.
+     * @param free the resources free on the node without the tasks of lower priority than the blocked task
+     * @param higher this round's tasks of higher priority on the node, they start now
+     * @return the predicted time at which the request fits on the node, Long.MAX_VALUE if unknown
+     */
+    private long freeAt( NodeWithAlloc node, Requirements free, Requirements request, List<NodeTaskAlignment> higher, long now ) {
+        final List<long[]> ends = new ArrayList<>();
+        final List<Task> running = new ArrayList<>();
+        for ( Map.Entry<Task, Long> entry : placed.getOrDefault( node, Map.of() ).entrySet() ) {
+            addEnd( entry.getKey(), entry.getValue(), now, ends, running );
+        }
+        for ( NodeTaskAlignment nodeTaskAlignment : higher ) {
+            addEnd( nodeTaskAlignment.task, now, now, ends, running );
+        }
+        ends.sort( ( a, b ) -> Long.compare( a[0], b[0] ) );
+        final Requirements freed = new Requirements( free.getCpu(), free.getRam() );
+        for ( long[] end : ends ) {
+            freed.addToThis( running.get( (int) end[1] ).getPlanedRequirements() );
+            if ( freed.higherOrEquals( request ) ) {
+                return end[0];
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private static void addEnd( Task task, long startedAt, long now, List<long[]> ends, List<Task> running ) {
+        if ( task.getPredictedRuntime() >= 0 ) {
+            final long end = Math.max( startedAt + (long) task.getPredictedRuntime(), now + 1 );
+            ends.add( new long[]{ end, running.size() } );
+            running.add( task );
+        }
+    }
+
+}
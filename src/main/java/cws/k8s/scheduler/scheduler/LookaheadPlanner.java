@@ -0,0 +1,177 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.model.NodeMap;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Plans tentative nodes for tasks that were registered, but whose pod was not created yet.
+ * Only the resources that are left after the scheduling rounds are planned, so a planned task does not overtake unscheduled tasks.
+ * The plans are made again after a scheduling round if the capacity epoch changed since the last time,
+ * and only a bounded number of upcoming tasks is tried. A plan is not a reservation:
+ * when the pod arrives, the resources are reserved atomically and the node's labels are checked against the pod.
+ */
+@Slf4j
+class LookaheadPlanner {
+
+    private static final class Plan {
+        private final NodeWithAlloc node;
+        private final Requirements request;
+        private final long capacityEpoch;
+
+        private Plan( NodeWithAlloc node, Requirements request, long capacityEpoch ) {
+            this.node = node;
+            this.request = request;
+            this.capacityEpoch = capacityEpoch;
+        }
+    }
+
+    /**
+     * Upcoming tasks tried per plan, tasks that fit nowhere must not make a replan scan all upcoming tasks
+     */
+    private static final int ATTEMPTS_PER_PLAN = 4;
+
+    private final Scheduler scheduler;
+
+    /**
+     * Maximal number of upcoming tasks with a plan
+     */
+    private final int limit;
+
+    private final Map<Task, Plan> plans = new HashMap<>();
+
+    /**
+     * Resources used by the plans per node
+     */
+    private final Map<NodeWithAlloc, Requirements> planned = new NodeMap<>();
+
+    /**
+     * Capacity epoch of the last replan
+     */
+    private long plannedAtEpoch = Long.MIN_VALUE;
+
+    LookaheadPlanner( Scheduler scheduler, int limit ) {
+        this.scheduler = scheduler;
+        this.limit = limit;
+    }
+
+    /**
+     * Discards all plans and plans the upcoming tasks in the order they were registered.
+     * Does nothing if no resources became available since the last replan.
+     * @param upcomingTasks supplies a modifiable list of the upcoming tasks, only called if the plans are made again
+     */
+    synchronized void replan( Supplier<List<Task>> upcomingTasks ) {
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        if ( epoch == plannedAtEpoch ) {
+            return;
+        }
+        plannedAtEpoch = epoch;
+        plans.clear();
+        planned.clear();
+        final List<Task> tasks = upcomingTasks.get();
+        tasks.sort( Comparator.comparingInt( Task::getId ) );
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        for ( NodeWithAlloc node : scheduler.getNodeList() ) {
+            if ( node.isReady() && node.canScheduleNewPod() && !scheduler.isHeldBack( node ) ) {
+                availableByNode.put( node, node.getAvailableResources() );
+            }
+        }
+        final long maxAttempts = (long) limit * ATTEMPTS_PER_PLAN;
+        int attempts = 0;
+        for ( Task task : tasks ) {
+            if ( plans.size() >= limit || attempts >= maxAttempts ) {
+                break;
+            }
+            attempts++;
+            place( task, availableByNode, epoch );
+        }
+        log.debug( "Planned {} of {} upcoming tasks", plans.size(), tasks.size() );
+    }
+
+    /**
+     * Plans a newly registered task onto the resources left by the other plans
+     */
+    synchronized void plan( Task task ) {
+        if ( plans.size() >= limit || plans.containsKey( task ) ) {
+            return;
+        }
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        for ( NodeWithAlloc node : scheduler.getNodeList() ) {
+            if ( node.isReady() && node.canScheduleNewPod() && !scheduler.isHeldBack( node ) ) {
+                final Requirements available = node.getAvailableResources();
+                final Requirements used = planned.get( node );
+                availableByNode.put( node, used == null ? available : available.sub( used ) );
+            }
+        }
+        place( task, availableByNode, epoch );
+    }
+
+    private void place( Task task, Map<NodeWithAlloc, Requirements> availableByNode, long epoch ) {
+        final Requirements request = task.getPlanedRequirements();
+        NodeWithAlloc bestNode = null;
+        double bestHeadroom = Double.NEGATIVE_INFINITY;
+        for ( Map.Entry<NodeWithAlloc, Requirements> entry : availableByNode.entrySet() ) {
+            final Requirements available = entry.getValue();
+            if ( !available.higherOrEquals( request ) ) {
+                continue;
+            }
+            final Requirements max = entry.getKey().getMaxResources();
+            final double headroom = Math.min(
+                    ( available.getCpu().doubleValue() - request.getCpu().doubleValue() ) / max.getCpu().doubleValue(),
+                    ( available.getRam().doubleValue() - request.getRam().doubleValue() ) / max.getRam().doubleValue() );
+            if ( headroom > bestHeadroom ) {
+                bestHeadroom = headroom;
+                bestNode = entry.getKey();
+            }
+        }
+        if ( bestNode == null ) {
+            return;
+        }
+        availableByNode.get( bestNode ).subFromThis( request );
+        plans.put( task, new Plan( bestNode, request, epoch ) );
+        planned.computeIfAbsent( bestNode, k -> new Requirements() ).addToThis( request );
+    }
+
+    /**
+     * Removes the task's plan and returns its node if the plan is still valid.
+     * If resources were released since the plan was made, unscheduled tasks have to get them first,
+     * then the plan is only used if no task is waiting.
+     * @param noTaskWaiting there is no unscheduled task that could compete for the node
+     * @return the planned node or null
+     */
+    synchronized NodeWithAlloc take( Task task, boolean noTaskWaiting ) {
+        final Plan plan = remove( task );
+        if ( plan == null ) {
+            return null;
+        }
+        final NodeWithAlloc node = plan.node;
+        if ( ( !noTaskWaiting && plan.capacityEpoch != NodeWithAlloc.getCapacityEpoch() )
+                || !node.isReady() || !node.canScheduleNewPod() || scheduler.isHeldBack( node )
+                || !scheduler.affinitiesMatch( task.getPod(), node ) ) {
+            return null;
+        }
+        return node;
+    }
+
+    synchronized void discard( Task task ) {
+        remove( task );
+    }
+
+    private Plan remove( Task task ) {
+        final Plan plan = plans.remove( task );
+        if ( plan != null ) {
+            planned.get( plan.node ).subFromThis( plan.request );
+        }
+        return plan;
+    }
+
+}
@@ -3,7 +3,9 @@ package cws.k8s.scheduler.scheduler;
 import cws.k8s.scheduler.client.Informable;
 import cws.k8s.scheduler.model.*;
 import cws.k8s.scheduler.client.CWSKubernetesClient;
+import cws.k8s.scheduler.prediction.RuntimePredictionScaler;
 import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.prioritize.CriticalPathPrioritize;
 import cws.k8s.scheduler.scheduler.prioritize.Prioritize;
 import cws.k8s.scheduler.util.NodeTaskAlignment;
 import lombok.extern.slf4j.Slf4j;
@@ -16,6 +18,7 @@ public class PrioritizeAssignScheduler extends Scheduler {
 
     private final Prioritize prioritize;
     private final NodeAssign nodeAssigner;
+    private final Backfill backfill;
 
     public PrioritizeAssignScheduler( String execution,
                                       CWSKubernetesClient client,
@@ -23,15 +26,46 @@ public class PrioritizeAssignScheduler extends Scheduler {
                                       SchedulerConfig config,
                                       Prioritize prioritize,
                                       NodeAssign nodeAssigner ) {
+        this( execution, client, namespace, config, prioritize, nodeAssigner, false );
+    }
+
+    /**
+     * @param backfill reserve a node for the first task in the order that could not be assigned, see {@link Backfill}
+     */
+    public PrioritizeAssignScheduler( String execution,
+                                      CWSKubernetesClient client,
+                                      String namespace,
+                                      SchedulerConfig config,
+                                      Prioritize prioritize,
+                                      NodeAssign nodeAssigner,
+                                      boolean backfill ) {
         super(execution, client, namespace, config);
         this.prioritize = prioritize;
         this.nodeAssigner = nodeAssigner;
+        this.backfill = backfill ? new Backfill( this ) : null;
         nodeAssigner.registerScheduler( this );
+        if ( prioritize instanceof CriticalPathPrioritize || backfill ) {
+            final RuntimePredictionScaler runtimePredictionScaler = new RuntimePredictionScaler();
+            taskScaler.add( runtimePredictionScaler );
+            if ( prioritize instanceof CriticalPathPrioritize ) {
+                ((CriticalPathPrioritize) prioritize).register( dag, runtimePredictionScaler );
+            }
+        }
         if ( nodeAssigner instanceof Informable ){
             client.addInformable( (Informable) nodeAssigner );
         }
     }
 
+    @Override
+    boolean isHeldBack( NodeWithAlloc node ) {
+        return backfill != null && backfill.isReserved( node );
+    }
+
+    @Override
+    void taskSchedulable( Task task ) {
+        nodeAssigner.taskSchedulable( task );
+    }
+
     @Override
     public void close() {
         super.close();
@@ -43,7 +77,8 @@ public class PrioritizeAssignScheduler extends Scheduler {
     @Override
     public ScheduleObject getTaskNodeAlignment(
             final List<Task> unscheduledTasks,
-            final Map<NodeWithAlloc, Requirements> availableByNode
+            final Map<NodeWithAlloc, Requirements> availableByNode,
+            final long capacityEpoch
     ){
         long start = System.currentTimeMillis();
         if ( traceEnabled ) {
@@ -53,7 +88,11 @@ public class PrioritizeAssignScheduler extends Scheduler {
             }
         }
         prioritize.sortTasks( unscheduledTasks );
-        List<NodeTaskAlignment> alignment = nodeAssigner.getTaskNodeAlignment(unscheduledTasks, availableByNode);
+        List<NodeTaskAlignment> alignment = nodeAssigner.getTaskNodeAlignment(unscheduledTasks, availableByNode, capacityEpoch);
+        if ( backfill != null && !unscheduledTasks.isEmpty() ) {
+            // the node assignment subtracted the assigned tasks from availableByNode, all tasks of a round belong to one shard
+            alignment = backfill.apply( getShardIndex( unscheduledTasks.get( 0 ) ), unscheduledTasks, alignment, availableByNode );
+        }
         long timeDelta = System.currentTimeMillis() - start;
         for ( Task unscheduledTask : unscheduledTasks ) {
             unscheduledTask.getTraceRecord().setSchedulerTimeToSchedule( (int) timeDelta );
@@ -3,7 +3,12 @@ package cws.k8s.scheduler.scheduler;
 import cws.k8s.scheduler.client.CannotPatchException;
 import cws.k8s.scheduler.client.Informable;
 import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.metrics.SchedulingMetrics;
 import cws.k8s.scheduler.model.*;
+import cws.k8s.scheduler.model.tracing.TraceSink;
+import cws.k8s.scheduler.model.tracing.WorkflowRecorder;
 import cws.k8s.scheduler.prediction.MemoryScaler;
 import cws.k8s.scheduler.prediction.TaskScaler;
 import cws.k8s.scheduler.util.Batch;
@@ -22,10 +27,22 @@ import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 @Slf4j
 public abstract class Scheduler implements Informable {
 
+    /**
+     * Number of tasks that are bound concurrently
+     */
+    private static final int BINDING_THREADS = 10;
+
     //Visible variables
     @Getter
     private final String name;
@@ -38,23 +55,51 @@ public abstract class Scheduler implements Informable {
     @Getter
     private boolean close;
     @Getter
-    private final DAG dag;
+    final DAG dag;
 
     private final Object batchHelper = new Object();
     private int currentBatch = 0;
     private Batch currentBatchInstance = null;
 
     final CWSKubernetesClient client;
+    private final CapacityArbiter capacityArbiter;
+    /**
+     * Plans upcoming tasks, null if disabled
+     */
+    private final LookaheadPlanner lookahead;
     private final Set<Task> upcomingTasks = new HashSet<>();
-    private final List<Task> unscheduledTasks = new ArrayList<>( 100 );
+    /**
+     * One queue of unscheduled tasks per scheduling shard
+     */
+    private final List<List<Task>> unscheduledTasks;
+    /**
+     * Per shard: a round was requested for another reason than released resources, e.g., new tasks
+     */
+    private final List<AtomicBoolean> roundRequested;
+    /**
+     * Per shard: nodes that released resources since the shard's last round
+     */
+    private final List<Set<NodeWithAlloc>> releasedNodes;
     private final List<Task> unfinishedTasks = new ArrayList<>( 100 );
     final Map<String, Task> tasksByPodName = new HashMap<>();
     final Map<Integer, Task> tasksById = new HashMap<>();
     private final Watch watcher;
-    private final TaskprocessingThread schedulingThread;
+    private final List<TaskprocessingThread> schedulingThreads;
     private final TaskprocessingThread finishThread;
+    private final ExecutorService bindingExecutor = Executors.newFixedThreadPool( BINDING_THREADS );
 
     final boolean traceEnabled;
+    private final boolean traceFiles;
+    private final TraceSink traceSink;
+    private final WorkflowRecorder recorder;
+
+    private final SchedulingMetrics metrics;
+
+    /**
+     * Nodes on which the finished tasks of this execution ran
+     */
+    @Getter
+    private final DataLocalityIndex dataLocalityIndex = new DataLocalityIndex();
 
     // TaskScaler will observe tasks and modify their memory assignments
     final List<TaskScaler> taskScaler = new LinkedList<>();
@@ -65,20 +110,58 @@ public abstract class Scheduler implements Informable {
         this.namespace = namespace;
         log.trace( "Register scheduler for " + this.name );
         this.client = client;
+        this.capacityArbiter = client.getCapacityArbiter();
+        capacityArbiter.register( execution, config.fairShareWeight == null ? 1 : config.fairShareWeight );
+        this.lookahead = config.lookahead == null || config.lookahead <= 0 ? null : new LookaheadPlanner( this, config.lookahead );
         this.dns = config.dns.endsWith( "/" ) ? config.dns : config.dns + "/";
         this.dag = new DAG();
         this.traceEnabled = config.traceEnabled;
+        final String traceMode = config.traceMode == null ? "aggregate" : config.traceMode.toLowerCase();
+        this.traceFiles = traceEnabled && ( traceMode.equals( "file" ) || traceMode.equals( "both" ) );
+        final File outputDir = new File( config.workDir == null ? System.getProperty( "java.io.tmpdir" ) : config.workDir );
+        if ( traceEnabled && !traceMode.equals( "file" ) ) {
+            this.traceSink = new TraceSink( new File( outputDir, ".scheduler.trace." + execution + ".tsv.gz" ) );
+        } else {
+            this.traceSink = null;
+        }
+        if ( config.recordWorkflow ) {
+            this.recorder = new WorkflowRecorder( new File( outputDir, ".scheduler.record." + execution + ".bin.gz" ) );
+            recorder.config( config );
+            recorder.nodes( client.getAllNodes() );
+        } else {
+            this.recorder = null;
+        }
 
         PodWatcher podWatcher = new PodWatcher(this);
 
-        schedulingThread = new TaskprocessingThread( unscheduledTasks, this::schedule );
-        schedulingThread.start();
+        this.metrics = new SchedulingMetrics( execution );
+
+        // Each shard has its own queue and thread, shards only coordinate via the nodes' reservations
+        final int shards = config.schedulingShards == null ? 1 : Math.max( 1, config.schedulingShards );
+        unscheduledTasks = new ArrayList<>( shards );
+        roundRequested = new ArrayList<>( shards );
+        releasedNodes = new ArrayList<>( shards );
+        schedulingThreads = new ArrayList<>( shards );
+        for ( int i = 0; i < shards; i++ ) {
+            roundRequested.add( new AtomicBoolean( false ) );
+            releasedNodes.add( ConcurrentHashMap.newKeySet() );
+        }
+        for ( int i = 0; i < shards; i++ ) {
+            final List<Task> shard = new ArrayList<>( 100 );
+            unscheduledTasks.add( shard );
+            final TaskprocessingThread schedulingThread = new TaskprocessingThread( shard, this::schedule );
+            schedulingThreads.add( schedulingThread );
+            schedulingThread.start();
+        }
 
         finishThread = new TaskprocessingThread(unfinishedTasks, this::terminateTasks );
         finishThread.start();
 
+        metrics.registerQueue( "unscheduled", this::getNumberOfUnscheduledTasks );
+        metrics.registerQueue( "upcoming", () -> { synchronized ( upcomingTasks ) { return upcomingTasks.size(); } } );
+
         log.info("Start watching");
-        watcher = client.pods().inNamespace( this.namespace ).watch(podWatcher);
+        watcher = client.watchPods( this.namespace, podWatcher );
         log.info("Watching");
         
         if ( StringUtils.hasText(config.memoryPredictor) ) {
@@ -97,6 +180,24 @@ public abstract class Scheduler implements Informable {
      * @return the number of unscheduled Tasks
      */
     public int schedule( final List<Task> unscheduledTasks ) {
+        if ( !unscheduledTasks.isEmpty() && !roundNeeded( getShardIndex( unscheduledTasks.get( 0 ) ), unscheduledTasks ) ) {
+            return unscheduledTasks.size();
+        }
+        final long start = System.nanoTime();
+        try {
+            final int unscheduled = scheduleRound( unscheduledTasks );
+            // the shards share one account, so each reports the waiting tasks of all shards
+            capacityArbiter.setWaiting( execution, unscheduled < 0 ? List.of() : getUnscheduledTasksCopy() );
+            if ( lookahead != null && unscheduled >= 0 ) {
+                lookahead.replan( this::getUpcomingTasksCopy );
+            }
+            return unscheduled;
+        } finally {
+            metrics.recordRound( System.nanoTime() - start );
+        }
+    }
+
+    private int scheduleRound( final List<Task> unscheduledTasks ) {
         long startSchedule = System.currentTimeMillis();
         if( traceEnabled ) {
             unscheduledTasks.forEach( x -> x.getTraceRecord().tryToSchedule( startSchedule ) );
@@ -107,7 +208,15 @@ public abstract class Scheduler implements Informable {
             taskScaler.parallelStream().forEach( x -> x.beforeTasksScheduled( unscheduledTasks ) );
         }
         
-        final ScheduleObject scheduleObject = getTaskNodeAlignment(unscheduledTasks, getAvailableByNode());
+        long start = System.nanoTime();
+        final long capacityEpoch = NodeWithAlloc.getCapacityEpoch();
+        final Map<NodeWithAlloc, Requirements> availableByNode = getAvailableByNode();
+        capacityArbiter.updateCapacity( availableByNode.keySet() );
+        metrics.recordAvailableByNode( System.nanoTime() - start );
+
+        start = System.nanoTime();
+        final ScheduleObject scheduleObject = getTaskNodeAlignment(unscheduledTasks, availableByNode, capacityEpoch);
+        metrics.recordAssignment( System.nanoTime() - start );
         final List<NodeTaskAlignment> taskNodeAlignment = scheduleObject.getTaskAlignments();
 
         //check if still possible...
@@ -119,40 +228,136 @@ public abstract class Scheduler implements Informable {
             }
         }
 
-        int failure = 0;
-        int scheduled = 0;
-        for (NodeTaskAlignment nodeTaskAlignment : taskNodeAlignment) {
-            try {
-                if (isClose()) {
+        final List<NodeTaskAlignment> reserved = reserveResources( taskNodeAlignment );
+
+        if ( scheduleObject.isStopSubmitIfOneFails() ) {
+            if ( reserved.size() < taskNodeAlignment.size() ) {
+                log.info( "Could not reserve the resources for the whole scheduling plan." );
+                reserved.forEach( alignment -> undoTaskScheduling( alignment.task ) );
+                return taskNodeAlignment.size();
+            }
+            int scheduled = 0;
+            for ( NodeTaskAlignment nodeTaskAlignment : reserved ) {
+                if ( isClose() ) {
                     return -1;
                 }
-                if ( !assignTaskToNode( nodeTaskAlignment ) ){
-                    if ( scheduleObject.isStopSubmitIfOneFails() ) {
-                        return taskNodeAlignment.size() - scheduled;
-                    }
-                    failure++;
-                    continue;
+                boolean bound;
+                try {
+                    bound = bindReserved( nodeTaskAlignment );
+                } catch ( CannotPatchException e ) {
+                    bound = false;
                 }
-            } catch ( Exception e ){
-                log.info( "Could not schedule task: {} undo all", nodeTaskAlignment.task.getConfig().getRunName() );
-                e.printStackTrace();
-                undoTaskScheduling( nodeTaskAlignment.task );
-                //If the task failed because scaling is impossible, the schedule plan is not valid anymore
-                if ( scheduleObject.isStopSubmitIfOneFails() || e instanceof CannotPatchException ) {
+                if ( !bound ) {
+                    //release the reservations of all tasks that were not yet bound
+                    reserved.subList( scheduled + 1, reserved.size() ).forEach( alignment -> undoTaskScheduling( alignment.task ) );
                     return taskNodeAlignment.size() - scheduled;
                 }
-                continue;
+                scheduled++;
+            }
+            return unscheduledTasks.size() - taskNodeAlignment.size();
+        }
+
+        final int scheduled = bindConcurrently( reserved );
+        if ( isClose() ) {
+            return -1;
+        }
+        return unscheduledTasks.size() - scheduled;
+    }
+
+    /**
+     * Reserves the resources of all planned tasks on their nodes.
+     * Tasks that do not fit onto their node anymore or exceed this execution's fair share
+     * are not part of the result and stay unscheduled.
+     * @return the alignments for which resources were reserved
+     */
+    private List<NodeTaskAlignment> reserveResources( List<NodeTaskAlignment> taskNodeAlignment ) {
+        final List<NodeTaskAlignment> reserved = new ArrayList<>( taskNodeAlignment.size() );
+        for ( NodeTaskAlignment alignment : taskNodeAlignment ) {
+            final Task task = alignment.task;
+            if ( capacityArbiter.reserve( execution, alignment.node, task ) ) {
+                task.setNode( alignment.node );
+                reserved.add( alignment );
+            } else {
+                log.info( "Resources for task {} could not be reserved on node {}", task.getConfig().getRunName(), alignment.node.getName() );
             }
-            taskWasScheduled(nodeTaskAlignment.task);
-            scheduled++;
         }
-        return unscheduledTasks.size() - taskNodeAlignment.size() + failure;
+        return reserved;
     }
 
     /**
-     * Call this method in case of any scheduling problems
+     * Binds all reserved tasks in parallel. If a task cannot be patched,
+     * the tasks that were not yet started are released, as the plan is not valid anymore.
+     * @return the number of bound tasks
      */
-    void undoTaskScheduling( Task task ){}
+    private int bindConcurrently( List<NodeTaskAlignment> reserved ) {
+        final AtomicBoolean abort = new AtomicBoolean( false );
+        final List<Future<Boolean>> bindings = new ArrayList<>( reserved.size() );
+        for ( NodeTaskAlignment alignment : reserved ) {
+            bindings.add( bindingExecutor.submit( () -> {
+                if ( abort.get() || isClose() ) {
+                    undoTaskScheduling( alignment.task );
+                    return false;
+                }
+                try {
+                    return bindReserved( alignment );
+                } catch ( CannotPatchException e ) {
+                    abort.set( true );
+                    return false;
+                }
+            } ) );
+        }
+        int scheduled = 0;
+        for ( Future<Boolean> binding : bindings ) {
+            try {
+                if ( binding.get() ) {
+                    scheduled++;
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                return scheduled;
+            } catch ( ExecutionException e ) {
+                log.error( "Error while binding a task", e.getCause() );
+            }
+        }
+        return scheduled;
+    }
+
+    /**
+     * Binds a task whose resources were reserved. If binding fails, the reservation is released.
+     * @return true if the task was bound
+     * @throws CannotPatchException if the task's memory could not be patched
+     */
+    private boolean bindReserved( NodeTaskAlignment alignment ) {
+        try {
+            if ( assignTaskToNode( alignment ) ) {
+                taskWasScheduled( alignment.task );
+                return true;
+            }
+            undoTaskScheduling( alignment.task );
+        } catch ( CannotPatchException e ) {
+            log.info( "Could not patch task: {} undo all", alignment.task.getConfig().getRunName() );
+            undoTaskScheduling( alignment.task );
+            throw e;
+        } catch ( Exception e ) {
+            log.info( "Could not schedule task: {} undo all", alignment.task.getConfig().getRunName() );
+            e.printStackTrace();
+            undoTaskScheduling( alignment.task );
+        }
+        return false;
+    }
+
+    /**
+     * Call this method in case of any scheduling problems, it releases the task's reservation
+     */
+    void undoTaskScheduling( Task task ){
+        final NodeWithAlloc node = task.getNode();
+        if ( node != null ) {
+            final String uid = task.getPod().getMetadata().getUid();
+            node.release( uid );
+            capacityArbiter.release( execution, uid );
+            task.setNode( null );
+        }
+    }
 
 
     public boolean validSchedulePlan( List<NodeTaskAlignment> taskNodeAlignment ){
@@ -172,9 +377,13 @@ public abstract class Scheduler implements Informable {
         return true;
     }
 
+    /**
+     * @param capacityEpoch the capacity epoch of {@link NodeWithAlloc}, read before availableByNode was determined
+     */
     abstract ScheduleObject getTaskNodeAlignment(
             final List<Task> unscheduledTasks,
-            final Map<NodeWithAlloc, Requirements> availableByNode
+            final Map<NodeWithAlloc, Requirements> availableByNode,
+            final long capacityEpoch
     );
 
     int terminateTasks( final List<Task> finishedTasks ) {
@@ -205,6 +414,9 @@ public abstract class Scheduler implements Informable {
 
     public boolean addTaskMetrics( int id, TaskMetrics metrics ) {
 
+        if ( recorder != null ) {
+            recorder.taskMetrics( id, metrics );
+        }
         Task task = tasksById.get( id );
         if ( task == null ) {
             return false;
@@ -222,9 +434,11 @@ public abstract class Scheduler implements Informable {
         synchronized (unfinishedTasks){
             unfinishedTasks.remove( task );
         }
+        capacityArbiter.release( execution, task.getPod().getMetadata().getUid() );
         if ( task.wasSuccessfullyExecuted() ){
             task.getState().setState( State.FINISHED );
             task.getProcess().incrementSuccessfullyFinished();
+            dataLocalityIndex.taskFinished( task );
         } else {
             task.getState().setState( State.FINISHED_WITH_ERROR );
             task.getProcess().incrementFailed();
@@ -238,13 +452,10 @@ public abstract class Scheduler implements Informable {
             return;
         }
         task.setPod( pod );
+        taskSchedulable( task );
         if ( task.getBatch() == null ){
-            synchronized (unscheduledTasks){
-                unscheduledTasks.add( task );
-                unscheduledTasks.notifyAll();
-                synchronized ( upcomingTasks ){
-                    upcomingTasks.remove( task );
-                }
+            if ( !bindPlanned( task ) ) {
+                addUnscheduledTasks( List.of( task ) );
             }
         } else {
             Batch batch = task.getBatch();
@@ -255,25 +466,107 @@ public abstract class Scheduler implements Informable {
         }
     }
 
+    /**
+     * Called when the pod of a task arrived, before the task is scheduled
+     */
+    void taskSchedulable( Task task ) {}
+
+    /**
+     * Binds a task to the node planned by the lookahead without waiting for a scheduling round.
+     * If the resources cannot be reserved or binding fails, the task is scheduled regularly.
+     * @return false if the task has no valid plan and has to be scheduled regularly
+     */
+    private boolean bindPlanned( Task task ) {
+        if ( lookahead == null || isClose() ) {
+            return false;
+        }
+        // unscheduled tasks of every shard compete for the released resources
+        final NodeWithAlloc node = lookahead.take( task, getNumberOfUnscheduledTasks() == 0 );
+        if ( node == null ) {
+            return false;
+        }
+        synchronized ( upcomingTasks ){
+            upcomingTasks.remove( task );
+        }
+        bindingExecutor.submit( () -> {
+            if ( traceEnabled ) {
+                task.getTraceRecord().tryToSchedule( System.currentTimeMillis() );
+            }
+            final List<Task> tasks = new LinkedList<>( List.of( task ) );
+            taskScaler.forEach( x -> x.beforeTasksScheduled( tasks ) );
+            boolean bound = false;
+            if ( !isClose() && capacityArbiter.reserve( execution, node, task ) ) {
+                task.setNode( node );
+                try {
+                    bound = bindReserved( new NodeTaskAlignment( node, task ) );
+                } catch ( CannotPatchException e ) {
+                    bound = false;
+                }
+            }
+            if ( bound ) {
+                log.debug( "Task {} was bound to its planned node {}", task.getConfig().getRunName(), node.getName() );
+            } else {
+                addUnscheduledTasks( tasks );
+            }
+        } );
+        return true;
+    }
+
     /**
      * Synchronize calls via batchHelper
      */
     private void tryToScheduleBatch( Batch batch ){
         if ( batch.canSchedule() ){
-            synchronized (unscheduledTasks){
-                final List<Task> tasksToScheduleAndDestroy = batch.getTasksToScheduleAndDestroy();
-                unscheduledTasks.addAll(tasksToScheduleAndDestroy);
-                unscheduledTasks.notifyAll();
-                synchronized ( upcomingTasks ){
-                    tasksToScheduleAndDestroy.forEach(upcomingTasks::remove);
-                }
+            addUnscheduledTasks( batch.getTasksToScheduleAndDestroy() );
+        }
+    }
+
+    /**
+     * Tasks of the same process are always handled by the same shard
+     */
+    int getShardIndex( Task task ) {
+        return Math.floorMod( task.getProcess().getUid(), unscheduledTasks.size() );
+    }
+
+    private void addUnscheduledTasks( List<Task> tasks ) {
+        final Map<Integer, List<Task>> tasksByShard = tasks.stream().collect( Collectors.groupingBy( this::getShardIndex ) );
+        for ( Map.Entry<Integer, List<Task>> entry : tasksByShard.entrySet() ) {
+            final List<Task> shard = unscheduledTasks.get( entry.getKey() );
+            roundRequested.get( entry.getKey() ).set( true );
+            synchronized (shard){
+                shard.addAll( entry.getValue() );
+                shard.notifyAll();
             }
         }
+        synchronized ( upcomingTasks ){
+            tasks.forEach( upcomingTasks::remove );
+        }
+    }
+
+    int getNumberOfUnscheduledTasks() {
+        int unscheduled = 0;
+        for ( List<Task> shard : unscheduledTasks ) {
+            synchronized (shard){
+                unscheduled += shard.size();
+            }
+        }
+        return unscheduled;
+    }
+
+    private List<Task> getUnscheduledTasksCopy() {
+        final List<Task> tasks = new ArrayList<>();
+        for ( List<Task> shard : unscheduledTasks ) {
+            synchronized (shard){
+                tasks.addAll( shard );
+            }
+        }
+        return tasks;
     }
 
     void taskWasScheduled(Task task ) {
-        synchronized (unscheduledTasks){
-            unscheduledTasks.remove( task );
+        final List<Task> shard = unscheduledTasks.get( getShardIndex( task ) );
+        synchronized (shard){
+            shard.remove( task );
         }
         taskWasScheduledSetState( task );
     }
@@ -284,13 +577,20 @@ public abstract class Scheduler implements Informable {
 
     public void markPodAsDeleted( PodWithAge pod ) {
         final Task task = changeStateOfTask(pod, State.DELETED);
+        if ( task == null ) {
+            return;
+        }
         task.setPod( pod );
+        capacityArbiter.release( execution, pod.getMetadata().getUid() );
     }
 
     /* External access to Tasks */
 
     public void addTask( int id, TaskConfig conf ) {
         final Task task = new Task( conf, dag );
+        if ( recorder != null ) {
+            recorder.taskAdded( id, conf, task.getInputSize() );
+        }
         synchronized ( tasksByPodName ) {
             if ( !tasksByPodName.containsKey( conf.getRunName() ) ) {
                 tasksByPodName.put( conf.getRunName(), task );
@@ -304,12 +604,18 @@ public abstract class Scheduler implements Informable {
         synchronized ( upcomingTasks ) {
             upcomingTasks.add( task );
         }
+        if ( lookahead != null ) {
+            lookahead.plan( task );
+        }
         if( currentBatchInstance != null ){
             currentBatchInstance.registerTask( task );
         }
     }
 
     public boolean removeTask( int id ) {
+        if ( recorder != null ) {
+            recorder.taskRemoved( id );
+        }
         final Task task;
         synchronized ( tasksById ) {
             task = tasksById.get( id );
@@ -323,6 +629,9 @@ public abstract class Scheduler implements Informable {
         synchronized ( upcomingTasks ) {
             upcomingTasks.remove( task );
         }
+        if ( lookahead != null ) {
+            lookahead.discard( task );
+        }
         return true;
     }
 
@@ -358,7 +667,7 @@ public abstract class Scheduler implements Informable {
                 && affinitiesMatch( task.getPod(), node );
     }
 
-    boolean affinitiesMatch( PodWithAge pod, NodeWithAlloc node ){
+    public boolean affinitiesMatch( PodWithAge pod, NodeWithAlloc node ){
         final Map<String, String> podsNodeSelector = pod.getSpec().getNodeSelector();
         final Map<String, String> nodesLabels = node.getMetadata().getLabels();
         if ( podsNodeSelector == null || podsNodeSelector.isEmpty() ) {
@@ -391,13 +700,16 @@ public abstract class Scheduler implements Informable {
 
     boolean assignTaskToNode( NodeTaskAlignment alignment ){
 
-        final File nodeFile = new File(alignment.task.getWorkingDir() + '/' + ".command.node");
+        // tasks without a working directory are not started by a workflow engine, e.g., in the simulation
+        if ( alignment.task.getWorkingDir() != null ) {
+            final File nodeFile = new File(alignment.task.getWorkingDir() + '/' + ".command.node");
 
-        try(BufferedWriter printWriter = new BufferedWriter( new FileWriter( nodeFile ))){
-            printWriter.write( alignment.node.getName() );
-            printWriter.write( '\n' );
-        } catch (IOException e) {
-            log.error( "Cannot read " + nodeFile, e);
+            try(BufferedWriter printWriter = new BufferedWriter( new FileWriter( nodeFile ))){
+                printWriter.write( alignment.node.getName() );
+                printWriter.write( '\n' );
+            } catch (IOException e) {
+                log.error( "Cannot read " + nodeFile, e);
+            }
         }
 
         if ( alignment.task.requirementsChanged() ){
@@ -408,8 +720,7 @@ public abstract class Scheduler implements Informable {
 
         final PodWithAge pod = alignment.task.getPod();
 
-        alignment.node.addPod( pod );
-
+        // the resources were reserved before with the task's planned requirements
         log.info ( "Assign pod: " + pod.getMetadata().getName() + " to node: " + alignment.node.getMetadata().getName() );
 
         client.assignPodToNode( pod, alignment.node.getMetadata().getName() );
@@ -420,15 +731,53 @@ public abstract class Scheduler implements Informable {
         alignment.task.submitted();
         if( traceEnabled ) {
             alignment.task.getTraceRecord().submitted();
-            alignment.task.writeTrace();
+            if ( traceFiles ) {
+                alignment.task.writeTrace();
+            }
+            if ( traceSink != null ) {
+                traceSink.add( alignment.task.getConfig().getName(), alignment.task.getWorkingDir(), alignment.task.getTraceRecord() );
+            }
         }
 
         return true;
     }
 
+    /* DAG */
+
+    public void addVertices( List<Vertex> vertices ) {
+        if ( recorder != null ) {
+            recorder.verticesAdded( vertices );
+        }
+        dag.registerVertices( vertices );
+    }
+
+    public void removeVertices( int... vertices ) {
+        if ( recorder != null ) {
+            recorder.verticesRemoved( vertices );
+        }
+        dag.removeVertices( vertices );
+    }
+
+    public void addEdges( List<InputEdge> edges ) {
+        if ( recorder != null ) {
+            recorder.edgesAdded( edges );
+        }
+        dag.registerEdges( edges );
+    }
+
+    public void removeEdges( int... edges ) {
+        if ( recorder != null ) {
+            recorder.edgesRemoved( edges );
+        }
+        dag.removeEdges( edges );
+    }
+
     /* Helper */
 
     public void startBatch(){
+        if ( recorder != null ) {
+            recorder.batchStarted();
+        }
         synchronized (batchHelper){
             if ( currentBatchInstance == null || currentBatchInstance.isClosed() ){
                 currentBatchInstance = new Batch( currentBatch++ );
@@ -437,6 +786,9 @@ public abstract class Scheduler implements Informable {
     }
 
     public void endBatch( int tasksInBatch ){
+        if ( recorder != null ) {
+            recorder.batchEnded( tasksInBatch );
+        }
         synchronized (batchHelper){
             currentBatchInstance.close( tasksInBatch );
             tryToScheduleBatch( currentBatchInstance );
@@ -467,9 +819,61 @@ public abstract class Scheduler implements Informable {
      * starts the scheduling routine
      */
     public void informResourceChange() {
-        synchronized (unscheduledTasks){
-            unscheduledTasks.notifyAll();
+        for ( int i = 0; i < unscheduledTasks.size(); i++ ) {
+            roundRequested.get( i ).set( true );
+            final List<Task> shard = unscheduledTasks.get( i );
+            synchronized (shard){
+                shard.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wakes up the shards, each shard's thread checks whether one of its tasks can use the released resources, see {@link #roundNeeded}.
+     * This is called on the watch thread, it must not scan the unscheduled tasks.
+     */
+    @Override
+    public void informResourceChange( NodeWithAlloc node ) {
+        if ( !node.canScheduleNewPod() ) {
+            return;
+        }
+        for ( int i = 0; i < unscheduledTasks.size(); i++ ) {
+            releasedNodes.get( i ).add( node );
+            final List<Task> shard = unscheduledTasks.get( i );
+            synchronized (shard){
+                shard.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Called by the shard's thread before a round, without holding the shard's lock.
+     * If the shard was only woken up by released resources, the round is skipped unless a task can use one of the nodes.
+     */
+    private boolean roundNeeded( int shard, List<Task> tasks ) {
+        final boolean requested = roundRequested.get( shard ).getAndSet( false );
+        final Set<NodeWithAlloc> released = releasedNodes.get( shard );
+        if ( released.isEmpty() ) {
+            // the first round, new tasks, or the periodic retry
+            return true;
+        }
+        final List<NodeWithAlloc> nodes = new ArrayList<>( released );
+        nodes.forEach( released::remove );
+        if ( requested ) {
+            return true;
         }
+        for ( NodeWithAlloc node : nodes ) {
+            if ( !node.canScheduleNewPod() ) {
+                continue;
+            }
+            final Requirements availableResources = node.getAvailableResources();
+            for ( Task task : tasks ) {
+                if ( canScheduleTaskOnNode( availableResources, task, node ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     Task getTaskByPod( Pod pod ) {
@@ -488,7 +892,7 @@ public abstract class Scheduler implements Informable {
     }
 
     Map<NodeWithAlloc, Requirements> getAvailableByNode(){
-        Map<NodeWithAlloc, Requirements> availableByNode = new HashMap<>();
+        Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
         List<String> logInfo = new LinkedList<>();
         logInfo.add("------------------------------------");
         for (NodeWithAlloc item : getNodeList()) {
@@ -518,7 +922,31 @@ public abstract class Scheduler implements Informable {
     }
 
     LinkedList<Task> getUpcomingTasksCopy() {
-        return new LinkedList<>( upcomingTasks );
+        synchronized ( upcomingTasks ) {
+            return new LinkedList<>( upcomingTasks );
+        }
+    }
+
+    /**
+     * @return true if the free resources of the node are held back for a waiting task and must not be planned for others
+     */
+    boolean isHeldBack( NodeWithAlloc node ) {
+        return false;
+    }
+
+    /**
+     * Write all buffered trace records and the workflow record of this execution to their files
+     * @return the trace file or null if traces are not aggregated
+     */
+    public File flushTrace(){
+        if ( recorder != null ) {
+            recorder.flush();
+        }
+        if ( traceSink == null ) {
+            return null;
+        }
+        traceSink.flush();
+        return traceSink.getFile();
     }
 
     /**
@@ -526,8 +954,19 @@ public abstract class Scheduler implements Informable {
      */
     public void close(){
         watcher.close();
-        schedulingThread.interrupt();
+        schedulingThreads.forEach( Thread::interrupt );
         finishThread.interrupt();
+        bindingExecutor.shutdown();
+        taskScaler.forEach( TaskScaler::close );
+        capacityArbiter.unregister( execution );
+        metrics.close();
+        flushTrace();
+        if ( traceSink != null ) {
+            traceSink.close();
+        }
+        if ( recorder != null ) {
+            recorder.close();
+        }
         this.close = true;
     }
 
@@ -548,6 +987,10 @@ public abstract class Scheduler implements Informable {
                 return;
             }
 
+            if ( scheduler.recorder != null ) {
+                scheduler.recorder.podEvent( action, pod );
+            }
+
             PodWithAge pwa = new PodWithAge(pod);
             if (pod.getMetadata().getLabels() != null) {
                 log.debug("Got pod: " + pod.getMetadata().getName() +
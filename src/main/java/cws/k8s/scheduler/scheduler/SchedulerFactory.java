@@ -0,0 +1,79 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.scheduler.nodeassign.DataLocalityScore;
+import cws.k8s.scheduler.scheduler.nodeassign.FairAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.ImageLocalityScore;
+import cws.k8s.scheduler.scheduler.nodeassign.LocalityAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.RandomNodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.RoundRobinAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.SamplingNodeAssign;
+import cws.k8s.scheduler.scheduler.prioritize.*;
+
+import java.util.List;
+
+/**
+ * Resolves the parts of a strategy string "prioritize-assign"
+ */
+public class SchedulerFactory {
+
+    private SchedulerFactory() {}
+
+    /**
+     * @return the prioritization for the name or null if there is none
+     */
+    public static Prioritize getPrioritize( String name ) {
+        switch ( name.toLowerCase() ) {
+            case "fifo": return new FifoPrioritize();
+            case "rank": return new RankPrioritize();
+            case "rank_min": return new RankMinPrioritize();
+            case "rank_max": return new RankMaxPrioritize();
+            case "leastfinishedfirst", "lff", "leastfinishedfirstmin", "lff_min": return new LeastFinishedFirstPrioritize();
+            case "leastfinishedfirstmax", "lff_max": return new LeastFinishedFirstMaxPrioritize();
+            case "getsamples", "gs": return new GetSamplesMinPrioritize();
+            case "getsamplesmax", "gsm": return new GetSamplesMaxPrioritize();
+            case "random", "r": return new RandomPrioritize();
+            case "max": return new MaxInputPrioritize();
+            case "min": return new MinInputPrioritize();
+            case "criticalpath", "cp": return new CriticalPathPrioritize();
+            default: return null;
+        }
+    }
+
+    /**
+     * @return the node assignment for the name or null if there is none
+     */
+    public static NodeAssign getNodeAssign( String name ) {
+        switch ( name.toLowerCase() ) {
+            case "random": case "r": return new RandomNodeAssign();
+            case "roundrobin": case "rr": return new RoundRobinAssign();
+            case "fair": case "f": return new FairAssign();
+            case "image": return new LocalityAssign( List.of( new ImageLocalityScore() ) );
+            case "data": return new LocalityAssign( List.of( new DataLocalityScore() ) );
+            case "locality": return new LocalityAssign( List.of( new ImageLocalityScore(), new DataLocalityScore() ) );
+            default: return getSamplingNodeAssign( name.toLowerCase() );
+        }
+    }
+
+    /**
+     * "p2c" or "sample&lt;d&gt;", optionally followed by "_cpu" or "_ram" to only score this resource
+     */
+    private static NodeAssign getSamplingNodeAssign( String name ) {
+        SamplingNodeAssign.Headroom headroom = SamplingNodeAssign.Headroom.BALANCED;
+        if ( name.endsWith( "_cpu" ) ) {
+            headroom = SamplingNodeAssign.Headroom.CPU;
+            name = name.substring( 0, name.length() - "_cpu".length() );
+        } else if ( name.endsWith( "_ram" ) ) {
+            headroom = SamplingNodeAssign.Headroom.RAM;
+            name = name.substring( 0, name.length() - "_ram".length() );
+        }
+        if ( name.equals( "p2c" ) ) {
+            return new SamplingNodeAssign( 2, headroom );
+        }
+        if ( name.matches( "sample[1-9][0-9]*" ) ) {
+            return new SamplingNodeAssign( Integer.parseInt( name.substring( "sample".length() ) ), headroom );
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,82 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.DataLocalityIndex;
+import cws.k8s.scheduler.model.FileHolder;
+import cws.k8s.scheduler.model.InputParam;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.State;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.Scheduler;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Share of a task's input bytes that were produced on a node, see {@link DataLocalityIndex}.
+ * The shares are determined once when the pod of a task arrives, so scheduling rounds neither access files nor the index.
+ * They are kept until the task has finished, concurrent rounds of several shards only read them.
+ */
+public class DataLocalityScore implements NodeScore {
+
+    private DataLocalityIndex index;
+    /**
+     * The maps are not modified after they were added
+     */
+    private final Map<Task, Map<NodeWithAlloc, Double>> shareByNode = new ConcurrentHashMap<>();
+
+    @Override
+    public void registerScheduler( Scheduler scheduler ) {
+        this.index = scheduler.getDataLocalityIndex();
+    }
+
+    @Override
+    public void taskSchedulable( Task task ) {
+        if ( index == null || index.size() == 0 || task.getConfig().getInputs() == null
+                || task.getConfig().getInputs().fileInputs == null ) {
+            shareByNode.remove( task );
+            return;
+        }
+        final Map<NodeWithAlloc, Long> bytesByNode = new HashMap<>();
+        for ( InputParam<FileHolder> input : task.getConfig().getInputs().fileInputs ) {
+            final NodeWithAlloc node = index.getNode( input.value.sourceObj );
+            if ( node != null ) {
+                bytesByNode.merge( node, new File( input.value.sourceObj ).length(), Long::sum );
+            }
+        }
+        if ( bytesByNode.isEmpty() ) {
+            shareByNode.remove( task );
+            return;
+        }
+        final long inputSize = task.getInputSize();
+        final Map<NodeWithAlloc, Double> shares = new HashMap<>();
+        for ( Map.Entry<NodeWithAlloc, Long> entry : bytesByNode.entrySet() ) {
+            final long bytes = entry.getValue();
+            final long total = Math.max( inputSize, bytes );
+            if ( total > 0 ) {
+                shares.put( entry.getKey(), (double) bytes / total );
+            }
+        }
+        shareByNode.put( task, shares );
+    }
+
+    @Override
+    public void startRound( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+        shareByNode.keySet().removeIf( task -> task.getState().getState().level >= State.PROCESSING_FINISHED.level );
+    }
+
+    @Override
+    public double score( Task task, NodeWithAlloc node ) {
+        return shareByNode.getOrDefault( task, Map.of() ).getOrDefault( node, 0d );
+    }
+
+    @Override
+    public Collection<NodeWithAlloc> getPreferredNodes( Task task ) {
+        return shareByNode.getOrDefault( task, Map.of() ).keySet();
+    }
+
+}
@@ -16,27 +16,33 @@ import java.util.Map;
 public class FairAssign extends NodeAssign {
 
     @Override
-    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch ) {
 
         LinkedList<NodeTaskAlignment> alignment = new LinkedList<>();
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode, capacityEpoch );
         for ( final Task task : unscheduledTasks ) {
             log.debug("Pod: " + task.getPod().getName() + " Requested Resources: " + task.getPlanedRequirements() );
+            final TaskClasses.Candidates candidates = round.getCandidates( task );
+            if ( candidates == null ) {
+                continue;
+            }
             NodeWithAlloc bestNode = null;
             Double bestScore = null;
             final List<Double> costs = new LinkedList<>();
             final BigDecimal podRequest = task.getPlanedRequirements().getCpu();
             int triedOnNodes = 0;
-            for ( Map.Entry<NodeWithAlloc, Requirements> e : availableByNode.entrySet() ) {
-                if ( scheduler.canScheduleTaskOnNode( e.getValue(), task, e.getKey() ) ) {
+            for ( NodeWithAlloc node : candidates.getNodes() ) {
+                final Requirements available = availableByNode.get( node );
+                if ( round.fits( available, task, node ) ) {
                     triedOnNodes++;
-                    final BigDecimal maxValue = e.getKey().getMaxResources().getCpu();
+                    final BigDecimal maxValue = node.getMaxResources().getCpu();
                     //how much is available if we assign this pod
-                    final BigDecimal newValue = e.getValue().getCpu().subtract( podRequest );
+                    final BigDecimal newValue = available.getCpu().subtract( podRequest );
                     //larger values are better => more resources available
                     final double score = newValue.doubleValue() /  maxValue.doubleValue();
                     if ( bestScore == null || score > bestScore ) {
                         bestScore = score;
-                        bestNode = e.getKey();
+                        bestNode = node;
                     }
                     costs.add( score );
                 }
@@ -50,6 +56,8 @@ public class FairAssign extends NodeAssign {
                 alignment.add( new NodeTaskAlignment( bestNode, task ) );
                 availableByNode.get( bestNode ).subFromThis( task.getPlanedRequirements() );
                 log.debug( "--> " + bestNode.getName() );
+            } else {
+                round.park( task );
             }
         }
         return alignment;
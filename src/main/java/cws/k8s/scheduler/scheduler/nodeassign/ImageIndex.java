@@ -0,0 +1,132 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from container images to the nodes that hold them.
+ * A node is only indexed again if its images changed, see {@link NodeWithAlloc#getImagesVersion()}.
+ * Updates are serialized, lookups do not lock: the node sets are replaced on change, never modified,
+ * so concurrent scheduling rounds can read them while another round updates the index.
+ */
+public class ImageIndex {
+
+    private final Map<String, Set<NodeWithAlloc>> nodesByImage = new ConcurrentHashMap<>();
+    private final Map<String, Long> sizeByImage = new ConcurrentHashMap<>();
+    /**
+     * Guarded by this
+     */
+    private final Map<NodeWithAlloc, Map<String, Long>> indexedImages = new HashMap<>();
+    private int[] indexedVersion = new int[0];
+    /**
+     * The node whose images version is stored, ids of removed nodes are reused
+     */
+    private NodeWithAlloc[] indexedNode = new NodeWithAlloc[0];
+
+    /**
+     * Indexes the nodes whose images changed since they were last indexed
+     */
+    public synchronized void update( Collection<NodeWithAlloc> nodes ) {
+        for ( NodeWithAlloc node : nodes ) {
+            final int id = node.getId();
+            if ( id >= indexedVersion.length ) {
+                final int length = Math.max( id + 1, NodeWithAlloc.getNumberOfIds() );
+                final int oldLength = indexedVersion.length;
+                indexedVersion = Arrays.copyOf( indexedVersion, length );
+                indexedNode = Arrays.copyOf( indexedNode, length );
+                Arrays.fill( indexedVersion, oldLength, length, -1 );
+            }
+            if ( indexedNode[id] == node && indexedVersion[id] == node.getImagesVersion() ) {
+                continue;
+            }
+            if ( indexedNode[id] != null && indexedNode[id] != node ) {
+                // the id of a removed node was reused
+                unindex( indexedNode[id] );
+            }
+            unindex( node );
+            final Map<String, Long> images = node.getImages();
+            for ( Map.Entry<String, Long> image : images.entrySet() ) {
+                final Set<NodeWithAlloc> holders = new LinkedHashSet<>( nodesByImage.getOrDefault( image.getKey(), Set.of() ) );
+                holders.add( node );
+                nodesByImage.put( image.getKey(), Collections.unmodifiableSet( holders ) );
+                sizeByImage.merge( image.getKey(), image.getValue(), Math::max );
+            }
+            indexedImages.put( node, images );
+            indexedVersion[id] = node.getImagesVersion();
+            indexedNode[id] = node;
+        }
+    }
+
+    /**
+     * Evicts a removed node, so it is neither returned as a holder nor kept in memory
+     */
+    public synchronized void remove( NodeWithAlloc node ) {
+        unindex( node );
+        final int id = node.getId();
+        if ( id < indexedNode.length && indexedNode[id] == node ) {
+            indexedNode[id] = null;
+            indexedVersion[id] = -1;
+        }
+    }
+
+    private void unindex( NodeWithAlloc node ) {
+        final Map<String, Long> previous = indexedImages.remove( node );
+        if ( previous == null ) {
+            return;
+        }
+        for ( String image : previous.keySet() ) {
+            final Set<NodeWithAlloc> holders = nodesByImage.get( image );
+            if ( holders != null && holders.contains( node ) ) {
+                if ( holders.size() == 1 ) {
+                    nodesByImage.remove( image );
+                    sizeByImage.remove( image );
+                } else {
+                    final Set<NodeWithAlloc> remaining = new LinkedHashSet<>( holders );
+                    remaining.remove( node );
+                    nodesByImage.put( image, Collections.unmodifiableSet( remaining ) );
+                }
+            }
+        }
+    }
+
+    /**
+     * @param image normalized image name
+     * @return the nodes holding the image
+     */
+    public Set<NodeWithAlloc> getNodes( String image ) {
+        return nodesByImage.getOrDefault( image, Set.of() );
+    }
+
+    /**
+     * @param image normalized image name
+     * @return the size of the image in bytes as reported by the nodes, 0 if no node holds it
+     */
+    public long getSize( String image ) {
+        return sizeByImage.getOrDefault( image, 0L );
+    }
+
+    /**
+     * @return the nodes holding at least one of the images
+     */
+    public Collection<NodeWithAlloc> getNodes( List<String> images ) {
+        if ( images.size() == 1 ) {
+            return getNodes( images.get( 0 ) );
+        }
+        final Set<NodeWithAlloc> result = new LinkedHashSet<>();
+        for ( String image : images ) {
+            result.addAll( getNodes( image ) );
+        }
+        return new ArrayList<>( result );
+    }
+
+}
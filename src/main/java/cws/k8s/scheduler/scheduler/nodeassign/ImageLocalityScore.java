@@ -0,0 +1,61 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import io.fabric8.kubernetes.api.model.Container;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Share of the bytes of a pod's container images that are already present on a node
+ */
+public class ImageLocalityScore implements NodeScore {
+
+    private final ImageIndex index = new ImageIndex();
+
+    @Override
+    public void startRound( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+        index.update( availableByNode.keySet() );
+    }
+
+    @Override
+    public void removedNode( NodeWithAlloc node ) {
+        index.remove( node );
+    }
+
+    @Override
+    public double score( Task task, NodeWithAlloc node ) {
+        long total = 0;
+        long present = 0;
+        final Map<String, Long> imagesOnNode = node.getImages();
+        for ( String image : imagesOf( task ) ) {
+            final long size = index.getSize( image );
+            total += size;
+            if ( imagesOnNode.containsKey( image ) ) {
+                present += size;
+            }
+        }
+        return total == 0 ? 0 : (double) present / total;
+    }
+
+    @Override
+    public Collection<NodeWithAlloc> getPreferredNodes( Task task ) {
+        return index.getNodes( imagesOf( task ) );
+    }
+
+    private List<String> imagesOf( Task task ) {
+        final List<Container> containers = task.getPod().getSpec().getContainers();
+        final List<String> images = new ArrayList<>( containers.size() );
+        for ( Container container : containers ) {
+            if ( container.getImage() != null ) {
+                images.add( NodeWithAlloc.normalizeImage( container.getImage() ) );
+            }
+        }
+        return images;
+    }
+
+}
@@ -0,0 +1,139 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.client.Informable;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.tracing.TraceRecord;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns each task to the fitting node with the highest sum of the node scores, ties are broken by the headroom left.
+ * Only the preferred nodes of the scores are rated. If none of them fits, the task is assigned to the node with the most headroom.
+ */
+@Slf4j
+public class LocalityAssign extends NodeAssign implements Informable {
+
+    private final List<NodeScore> scores;
+
+    public LocalityAssign( List<NodeScore> scores ) {
+        this.scores = scores;
+    }
+
+    @Override
+    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch ) {
+        LinkedList<NodeTaskAlignment> alignment = new LinkedList<>();
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode, capacityEpoch );
+        for ( NodeScore score : scores ) {
+            score.startRound( unscheduledTasks, availableByNode );
+        }
+        for ( final Task task : unscheduledTasks ) {
+            log.debug("Pod: " + task.getPod().getName() + " Requested Resources: " + task.getPlanedRequirements() );
+            final TaskClasses.Candidates candidates = round.getCandidates( task );
+            final TraceRecord traceRecord = task.getTraceRecord();
+            if ( candidates == null ) {
+                traceRecord.setSchedulerNodesTried( 0 );
+                continue;
+            }
+            final Requirements request = task.getPlanedRequirements();
+            NodeWithAlloc bestNode = null;
+            double bestScore = 0;
+            double bestHeadroom = Double.NEGATIVE_INFINITY;
+            int nodesTried = 0;
+            for ( NodeWithAlloc node : preferredNodes( task ) ) {
+                final Requirements available = availableByNode.get( node );
+                if ( !candidates.contains( node ) || !round.fits( available, task, node ) ) {
+                    continue;
+                }
+                nodesTried++;
+                double score = 0;
+                for ( NodeScore nodeScore : scores ) {
+                    score += nodeScore.score( task, node );
+                }
+                if ( score <= 0 ) {
+                    continue;
+                }
+                final double headroom = SamplingNodeAssign.Headroom.BALANCED.score( available, request, node );
+                if ( score > bestScore || ( score == bestScore && headroom > bestHeadroom ) ) {
+                    bestScore = score;
+                    bestHeadroom = headroom;
+                    bestNode = node;
+                }
+            }
+            if ( bestNode == null ) {
+                for ( NodeWithAlloc node : candidates.getNodes() ) {
+                    final Requirements available = availableByNode.get( node );
+                    if ( !round.fits( available, task, node ) ) {
+                        continue;
+                    }
+                    nodesTried++;
+                    final double headroom = SamplingNodeAssign.Headroom.BALANCED.score( available, request, node );
+                    if ( headroom > bestHeadroom ) {
+                        bestHeadroom = headroom;
+                        bestNode = node;
+                    }
+                }
+            }
+            traceRecord.setSchedulerNodesTried( nodesTried );
+            if ( bestNode != null ) {
+                traceRecord.foundAlignment();
+                traceRecord.setSchedulerBestCost( bestScore );
+                alignment.add( new NodeTaskAlignment( bestNode, task ) );
+                availableByNode.get( bestNode ).subFromThis( request );
+                log.debug( "--> " + bestNode.getName() );
+            } else {
+                round.park( task );
+            }
+        }
+        return alignment;
+    }
+
+    @Override
+    public void registerScheduler( Scheduler scheduler ) {
+        super.registerScheduler( scheduler );
+        for ( NodeScore score : scores ) {
+            score.registerScheduler( scheduler );
+        }
+    }
+
+    @Override
+    public void taskSchedulable( Task task ) {
+        for ( NodeScore score : scores ) {
+            score.taskSchedulable( task );
+        }
+    }
+
+    @Override
+    public void informResourceChange() {}
+
+    @Override
+    public void newNode( NodeWithAlloc node ) {}
+
+    @Override
+    public void removedNode( NodeWithAlloc node ) {
+        for ( NodeScore score : scores ) {
+            score.removedNode( node );
+        }
+    }
+
+    private Collection<NodeWithAlloc> preferredNodes( Task task ) {
+        if ( scores.size() == 1 ) {
+            return scores.get( 0 ).getPreferredNodes( task );
+        }
+        final Set<NodeWithAlloc> nodes = new LinkedHashSet<>();
+        for ( NodeScore score : scores ) {
+            nodes.addAll( score.getPreferredNodes( task ) );
+        }
+        return nodes;
+    }
+
+}
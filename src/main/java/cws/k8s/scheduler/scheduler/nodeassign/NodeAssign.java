@@ -13,7 +13,17 @@ public abstract class NodeAssign {
 
     Scheduler scheduler;
 
-    public abstract List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode );
+    final TaskClasses taskClasses = new TaskClasses();
+
+    /**
+     * @param capacityEpoch the capacity epoch of {@link NodeWithAlloc}, read before availableByNode was determined
+     */
+    public abstract List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch );
+
+    /**
+     * Called when the pod of a task arrived, before the task is scheduled
+     */
+    public void taskSchedulable( Task task ) {}
 
     public void registerScheduler(Scheduler scheduler) {
         this.scheduler = scheduler;
@@ -0,0 +1,45 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.Scheduler;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rates how well a node suits a task, independent of the node's available resources
+ */
+public interface NodeScore {
+
+    default void registerScheduler( Scheduler scheduler ) {}
+
+    /**
+     * Called once per scheduling round before any score is requested
+     */
+    default void startRound( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {}
+
+    /**
+     * Called when the pod of a task arrived, before the task is scheduled.
+     * Work per task that does not change between rounds, e.g., file system access, belongs here.
+     */
+    default void taskSchedulable( Task task ) {}
+
+    /**
+     * Called when a node was removed from the cluster, state kept for the node can be dropped
+     */
+    default void removedNode( NodeWithAlloc node ) {}
+
+    /**
+     * @return a score in [0, 1], larger is better
+     */
+    double score( Task task, NodeWithAlloc node );
+
+    /**
+     * @return all nodes with a score above 0 for the task, these are the only nodes a scorer has to look at
+     */
+    Collection<NodeWithAlloc> getPreferredNodes( Task task );
+
+}
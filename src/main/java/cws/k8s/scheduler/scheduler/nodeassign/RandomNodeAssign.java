@@ -12,17 +12,22 @@ import java.util.*;
 public class RandomNodeAssign extends NodeAssign {
 
     @Override
-    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch ) {
         LinkedList<NodeTaskAlignment> alignment = new LinkedList<>();
-        final ArrayList<Map.Entry<NodeWithAlloc, Requirements>> entries = new ArrayList<>( availableByNode.entrySet() );
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode, capacityEpoch );
         for ( final Task task : unscheduledTasks ) {
             log.debug("Pod: " + task.getPod().getName() + " Requested Resources: " + task.getPlanedRequirements() );
-            Collections.shuffle( entries );
+            final TaskClasses.Candidates candidates = round.getCandidates( task );
+            if ( candidates == null ) {
+                task.getTraceRecord().setSchedulerNodesTried( 0 );
+                continue;
+            }
+            final List<NodeWithAlloc> nodes = candidates.getNodes();
+            Collections.shuffle( nodes );
             boolean assigned = false;
             int nodesTried = 0;
-            for ( Map.Entry<NodeWithAlloc, Requirements> e : entries ) {
-                final NodeWithAlloc node = e.getKey();
-                if ( scheduler.canScheduleTaskOnNode( availableByNode.get( node ), task, node ) ) {
+            for ( NodeWithAlloc node : nodes ) {
+                if ( round.fits( availableByNode.get( node ), task, node ) ) {
                     nodesTried++;
                     alignment.add(new NodeTaskAlignment( node, task));
                     availableByNode.get( node ).subFromThis(task.getPlanedRequirements());
@@ -35,6 +40,7 @@ public class RandomNodeAssign extends NodeAssign {
             task.getTraceRecord().setSchedulerNodesTried( nodesTried );
             if ( !assigned ) {
                 log.trace( "No node with enough resources for {}", task.getPod().getName() );
+                round.park( task );
             }
         }
         return alignment;
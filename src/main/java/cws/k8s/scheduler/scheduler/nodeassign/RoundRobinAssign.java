@@ -19,7 +19,7 @@ public class RoundRobinAssign extends NodeAssign implements Informable {
     private int nextNode = 0;
 
     @Override
-    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch ) {
         synchronized ( this ) {
             if ( nodes == null ) {
                 nodes = new ArrayList<>( availableByNode.keySet() );
@@ -27,9 +27,16 @@ public class RoundRobinAssign extends NodeAssign implements Informable {
         }
 
         LinkedList<NodeTaskAlignment> alignment = new LinkedList<>();
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode, capacityEpoch );
         for ( final Task task : unscheduledTasks ) {
             log.debug("Pod: " + task.getPod().getName() + " Requested Resources: " + task.getPlanedRequirements() );
             int nodesTried = 0;
+            final TaskClasses.Candidates candidates = round.getCandidates( task );
+            if ( candidates == null ) {
+                task.getTraceRecord().setSchedulerNodesTried( nodesTried );
+                continue;
+            }
+            boolean assigned = false;
             synchronized ( this ) {
                 int firstTrial = nextNode;
                 nodesTried++;
@@ -37,15 +44,19 @@ public class RoundRobinAssign extends NodeAssign implements Informable {
                     final NodeWithAlloc node = nodes.get( nextNode );
                     log.debug( "Next node: " + node.getName() + "--( " + nextNode + " )" );
                     nextNode = ( nextNode + 1 ) % nodes.size();
-                    if ( scheduler.canScheduleTaskOnNode( availableByNode.get( node ), task, node ) ) {
+                    if ( candidates.contains( node ) && round.fits( availableByNode.get( node ), task, node ) ) {
                         alignment.add( new NodeTaskAlignment( node, task ) );
                         availableByNode.get( node ).subFromThis( task.getPlanedRequirements() );
                         log.debug( "--> " + node.getName() );
                         task.getTraceRecord().foundAlignment();
+                        assigned = true;
                         break;
                     }
                 } while ( nextNode != firstTrial );
             }
+            if ( !assigned ) {
+                round.park( task );
+            }
             task.getTraceRecord().setSchedulerNodesTried( nodesTried );
         }
         return alignment;
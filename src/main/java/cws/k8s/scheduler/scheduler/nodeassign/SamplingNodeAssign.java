@@ -0,0 +1,124 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.tracing.TraceRecord;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Probes a few random candidate nodes per task and assigns the task to the one with the most headroom left,
+ * with two samples this is the power of two choices.
+ * Only if no sampled node fits, all candidates are scanned, so a task is only left unassigned if it fits nowhere.
+ */
+@Slf4j
+public class SamplingNodeAssign extends NodeAssign {
+
+    /**
+     * Share of a node's resources that is still available after assigning the task, larger is better
+     */
+    public enum Headroom {
+        CPU, RAM,
+        /**
+         * The smaller of the cpu and ram headroom
+         */
+        BALANCED;
+
+        double score( Requirements available, Requirements request, NodeWithAlloc node ) {
+            final Requirements max = node.getMaxResources();
+            final double cpu = ( available.getCpu().doubleValue() - request.getCpu().doubleValue() ) / max.getCpu().doubleValue();
+            final double ram = ( available.getRam().doubleValue() - request.getRam().doubleValue() ) / max.getRam().doubleValue();
+            switch ( this ) {
+                case CPU: return cpu;
+                case RAM: return ram;
+                default: return Math.min( cpu, ram );
+            }
+        }
+    }
+
+    /**
+     * Random probes per sample before all candidates are scanned
+     */
+    private static final int PROBES_PER_SAMPLE = 4;
+
+    @Getter
+    private final int samples;
+    @Getter
+    private final Headroom headroom;
+
+    public SamplingNodeAssign( int samples, Headroom headroom ) {
+        if ( samples < 1 ) {
+            throw new IllegalArgumentException( "At least one node has to be sampled" );
+        }
+        this.samples = samples;
+        this.headroom = headroom;
+    }
+
+    @Override
+    public List<NodeTaskAlignment> getTaskNodeAlignment( List<Task> unscheduledTasks, Map<NodeWithAlloc, Requirements> availableByNode, long capacityEpoch ) {
+        LinkedList<NodeTaskAlignment> alignment = new LinkedList<>();
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode, capacityEpoch );
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        for ( final Task task : unscheduledTasks ) {
+            log.debug("Pod: " + task.getPod().getName() + " Requested Resources: " + task.getPlanedRequirements() );
+            final TaskClasses.Candidates candidates = round.getCandidates( task );
+            final TraceRecord traceRecord = task.getTraceRecord();
+            if ( candidates == null || candidates.getNodes().isEmpty() ) {
+                traceRecord.setSchedulerNodesTried( 0 );
+                continue;
+            }
+            final List<NodeWithAlloc> nodes = candidates.getNodes();
+            final Requirements request = task.getPlanedRequirements();
+            NodeWithAlloc bestNode = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            int found = 0;
+            int probes = 0;
+            while ( found < samples && probes < samples * PROBES_PER_SAMPLE ) {
+                probes++;
+                final NodeWithAlloc node = nodes.get( random.nextInt( nodes.size() ) );
+                final Requirements available = availableByNode.get( node );
+                if ( round.fits( available, task, node ) ) {
+                    found++;
+                    final double score = headroom.score( available, request, node );
+                    if ( score > bestScore ) {
+                        bestScore = score;
+                        bestNode = node;
+                    }
+                }
+            }
+            if ( bestNode == null ) {
+                // the nodes with room left are rare, look at all of them
+                for ( NodeWithAlloc node : nodes ) {
+                    probes++;
+                    final Requirements available = availableByNode.get( node );
+                    if ( round.fits( available, task, node ) ) {
+                        final double score = headroom.score( available, request, node );
+                        if ( score > bestScore ) {
+                            bestScore = score;
+                            bestNode = node;
+                        }
+                    }
+                }
+            }
+            traceRecord.setSchedulerNodesTried( probes );
+            if ( bestNode != null ) {
+                traceRecord.foundAlignment();
+                traceRecord.setSchedulerBestCost( bestScore );
+                alignment.add( new NodeTaskAlignment( bestNode, task ) );
+                availableByNode.get( bestNode ).subFromThis( request );
+                log.debug( "--> " + bestNode.getName() );
+            } else {
+                round.park( task );
+            }
+        }
+        return alignment;
+    }
+
+}
@@ -0,0 +1,133 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups tasks into classes of equal planned requirements and node selector, all tasks of a class fit on the same nodes.
+ * The nodes matching a class are determined once per scheduling round.
+ * If a task of a class does not fit on any node, the class is parked: within a round, the available resources only shrink,
+ * and across rounds, they only grow if the capacity epoch of {@link NodeWithAlloc} changed.
+ */
+public class TaskClasses {
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class TaskClass {
+        private final BigDecimal cpu;
+        private final BigDecimal ram;
+        private final Map<String, String> nodeSelector;
+    }
+
+    /**
+     * The nodes a class of tasks can be scheduled on, if they have enough resources left
+     */
+    public static final class Candidates {
+
+        private final List<NodeWithAlloc> nodes = new ArrayList<>();
+        private final NodeWithAlloc[] byId = new NodeWithAlloc[NodeWithAlloc.getNumberOfIds()];
+
+        /**
+         * @return the candidate nodes, an assigner may reorder this list
+         */
+        public List<NodeWithAlloc> getNodes() {
+            return nodes;
+        }
+
+        public boolean contains( NodeWithAlloc node ) {
+            return node.getId() < byId.length && node.equals( byId[node.getId()] );
+        }
+
+        private void add( NodeWithAlloc node ) {
+            nodes.add( node );
+            byId[node.getId()] = node;
+        }
+
+    }
+
+    /**
+     * Capacity epoch at which a class did not fit
+     */
+    private final Map<TaskClass, Long> parked = new ConcurrentHashMap<>();
+
+    /**
+     * @param epoch the capacity epoch read before availableByNode was determined,
+     *              if it was read later, resources released in between would not wake up a parked class
+     */
+    public Round startRound( Scheduler scheduler, Map<NodeWithAlloc, Requirements> availableByNode, long epoch ) {
+        // concurrent rounds may have started at a later epoch
+        parked.values().removeIf( parkedAt -> parkedAt < epoch );
+        return new Round( scheduler, availableByNode, epoch );
+    }
+
+    public class Round {
+
+        private final Scheduler scheduler;
+        private final List<NodeWithAlloc> schedulableNodes = new ArrayList<>();
+        private final long epoch;
+        private final Map<TaskClass, Candidates> candidates = new HashMap<>();
+
+        private Round( Scheduler scheduler, Map<NodeWithAlloc, Requirements> availableByNode, long epoch ) {
+            this.scheduler = scheduler;
+            this.epoch = epoch;
+            for ( NodeWithAlloc node : availableByNode.keySet() ) {
+                if ( node.canScheduleNewPod() ) {
+                    schedulableNodes.add( node );
+                }
+            }
+        }
+
+        /**
+         * @return the nodes matching the class of the task, or null if the class is parked
+         */
+        public Candidates getCandidates( Task task ) {
+            final TaskClass taskClass = classOf( task );
+            final Long parkedAt = parked.get( taskClass );
+            if ( parkedAt != null && parkedAt == epoch ) {
+                return null;
+            }
+            return candidates.computeIfAbsent( taskClass, c -> {
+                final Candidates result = new Candidates();
+                for ( NodeWithAlloc node : schedulableNodes ) {
+                    if ( scheduler.affinitiesMatch( task.getPod(), node ) ) {
+                        result.add( node );
+                    }
+                }
+                return result;
+            } );
+        }
+
+        /**
+         * Whether a task fits on a candidate node of its class, checked by {@link Scheduler#canScheduleTaskOnNode},
+         * so schedulers that override it are respected
+         */
+        public boolean fits( Requirements available, Task task, NodeWithAlloc node ) {
+            return scheduler.canScheduleTaskOnNode( available, task, node );
+        }
+
+        /**
+         * Call if a task did not fit on any candidate node, skips the class until the capacity grows
+         */
+        public void park( Task task ) {
+            parked.put( classOf( task ), epoch );
+        }
+
+        private TaskClass classOf( Task task ) {
+            final Requirements requirements = task.getPlanedRequirements();
+            return new TaskClass( requirements.getCpu(), requirements.getRam(), task.getPod().getSpec().getNodeSelector() );
+        }
+
+    }
+
+}
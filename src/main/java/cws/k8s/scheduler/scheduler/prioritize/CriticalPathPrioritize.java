@@ -0,0 +1,72 @@
+package cws.k8s.scheduler.scheduler.prioritize;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.prediction.RuntimePredictionScaler;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Prefers tasks with a longer predicted remaining critical path, similar to the upward rank of HEFT.
+ * The critical path of a task is its predicted runtime plus the largest upward rank of the succeeding processes,
+ * where a process is weighted by the mean runtime of its finished tasks.
+ * Processes without finished tasks are weighted by the mean over the processes of the sorted tasks that have one, or 1 if none has,
+ * then the order equals {@link RankPrioritize}.
+ */
+public class CriticalPathPrioritize implements Prioritize {
+
+    private DAG dag;
+    private RuntimePredictionScaler runtimes;
+
+    /**
+     * Has to be called before tasks are sorted
+     */
+    public void register( DAG dag, RuntimePredictionScaler runtimes ) {
+        this.dag = dag;
+        this.runtimes = runtimes;
+    }
+
+    @Override
+    public void sortTasks( List<Task> tasks ) {
+        if ( tasks.isEmpty() ) {
+            return;
+        }
+        final Map<Process, Double> weights = new HashMap<>();
+        double sum = 0;
+        int known = 0;
+        for ( Task task : tasks ) {
+            final Process process = task.getProcess();
+            if ( !weights.containsKey( process ) ) {
+                final double mean = runtimes.getMeanRuntime( process.getLabel() );
+                weights.put( process, mean );
+                if ( !Double.isNaN( mean ) ) {
+                    sum += mean;
+                    known++;
+                }
+            }
+        }
+        final double defaultWeight = known == 0 ? 1 : sum / known;
+        final Map<Process, Double> ranks = dag.upwardRanks( process -> {
+            final Double weight = weights.computeIfAbsent( process, p -> runtimes.getMeanRuntime( p.getLabel() ) );
+            return Double.isNaN( weight ) ? defaultWeight : weight;
+        } );
+        final Map<Task, Double> criticalPath = new HashMap<>();
+        for ( Task task : tasks ) {
+            final Process process = task.getProcess();
+            final double weight = weights.get( process );
+            final double processWeight = Double.isNaN( weight ) ? defaultWeight : weight;
+            final double successors = ranks.getOrDefault( process, processWeight ) - processWeight;
+            final double runtime = task.getPredictedRuntime() >= 0 ? task.getPredictedRuntime() : processWeight;
+            criticalPath.put( task, runtime + successors );
+        }
+        tasks.sort( ( o1, o2 ) -> {
+            //Prefer longer critical paths
+            final int compare = Double.compare( criticalPath.get( o2 ), criticalPath.get( o1 ) );
+            return compare != 0 ? compare : Integer.signum( o1.getId() - o2.getId() );
+        } );
+    }
+
+}
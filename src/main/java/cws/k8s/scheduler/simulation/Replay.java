@@ -0,0 +1,561 @@
+package cws.k8s.scheduler.simulation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.FileHolder;
+import cws.k8s.scheduler.model.InputParam;
+import cws.k8s.scheduler.model.PodWithAge;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.model.TaskMetrics;
+import cws.k8s.scheduler.model.tracing.WorkflowLogReader;
+import cws.k8s.scheduler.model.tracing.WorkflowLogReader.PodRecord;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.Watcher;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays a log of {@link cws.k8s.scheduler.model.tracing.WorkflowRecorder} against another strategy on a
+ * {@link SimulatedKubernetesClient}.
+ * The inputs of the workflow engine (DAG, tasks, batches, and pods) are replayed in their recorded order.
+ * Tasks and pods that read outputs of other replayed tasks are released closed-loop: once the last of these tasks has finished
+ * in the replay, after the delay that was recorded between its end and the release. All other inputs are replayed
+ * at their recorded times divided by the speedup.
+ * Pods run as long as they did in the recorded run, task metrics are reported once a pod has finished.
+ * Pods that never finished in the recorded run are not replayed.
+ */
+@Slf4j
+public class Replay {
+
+    private static final double GIB_HOUR = 1024d * 1024 * 1024 * 3_600_000;
+
+    /**
+     * Like the REST endpoint, the inputs of a task are created with their constructor parameters
+     */
+    private final ObjectMapper mapper = new ObjectMapper().registerModule( new ParameterNamesModule() );
+    private final SimulatedKubernetesClient client;
+    private final Scheduler scheduler;
+
+    private final Map<String, RecordedPod> recordedPods = new HashMap<>();
+    private final Map<Integer, TaskMetrics> metricsById = new HashMap<>();
+    private final Map<String, Integer> idByPod = new HashMap<>();
+    private final Map<Integer, String> podById = new HashMap<>();
+    private final Map<String, String> podByWorkDir = new HashMap<>();
+    private final Map<String, List<String>> inputsByPod = new HashMap<>();
+    private final Map<String, Long> boundAt = new ConcurrentHashMap<>();
+    private final Map<String, BigDecimal> memoryAtBind = new ConcurrentHashMap<>();
+    private final Map<String, Long> createdAt = new ConcurrentHashMap<>();
+    private CountDownLatch finished;
+
+    private interface Input {
+        void apply();
+    }
+
+    /**
+     * Inputs that are fed together, a batch with its tasks is a single release
+     */
+    private static class Release {
+        /**
+         * Recorded time in microseconds since the start of the log
+         */
+        final long time;
+        final List<Input> inputs = new ArrayList<>();
+        /**
+         * Pods whose predecessors decide when the release is due
+         */
+        final List<String> pods = new ArrayList<>();
+        /**
+         * Replayed pods that have to finish first
+         */
+        final Set<String> predecessors = new HashSet<>();
+        /**
+         * Recorded time between the end of the last predecessor and the release in microseconds
+         */
+        long delay;
+        int unfinished;
+
+        Release( long time, Input input ) {
+            this.time = time;
+            this.inputs.add( input );
+        }
+    }
+
+    private static class RecordedNode {
+        final String name;
+        final BigDecimal cpus;
+        final BigDecimal memory;
+        final Map<String, String> labels;
+
+        RecordedNode( String name, BigDecimal cpus, BigDecimal memory, Map<String, String> labels ) {
+            this.name = name;
+            this.cpus = cpus;
+            this.memory = memory;
+            this.labels = labels;
+        }
+    }
+
+    private static class RecordedPod {
+        PodRecord added;
+        long addedAt = -1;
+        long boundAt = -1;
+        long finishedAt = -1;
+        BigDecimal boundMemory;
+    }
+
+    /**
+     * Inputs in recorded order
+     */
+    private final List<Release> releases = new ArrayList<>();
+    private final Map<String, List<Release>> releasedByPod = new HashMap<>();
+    private final ScheduledExecutorService inputThread = Executors.newSingleThreadScheduledExecutor();
+    /**
+     * Only used by the input thread
+     */
+    private final Set<String> addedTasks = new HashSet<>();
+    private final Set<String> podsWithoutTask = new HashSet<>();
+
+    /**
+     * @param strategy strategy to replay with, null to use the recorded one
+     * @param memoryPredictor memory predictor to replay with, null to use the recorded one
+     * @param nodes if not null, the recorded nodes are replaced by this number of nodes with cpus and memory
+     */
+    public Replay( File log, double speedup, String strategy, String memoryPredictor,
+                   Integer nodes, BigDecimal cpus, BigDecimal memory ) throws IOException {
+        final Map<String, JsonNode> config = new HashMap<>();
+        final List<RecordedNode> recordedNodes = new ArrayList<>();
+        WorkflowLogReader.read( log, new WorkflowLogReader.Listener() {
+
+            private Release batch = null;
+
+            @Override
+            public void config( long time, JsonNode json ) {
+                config.put( "config", json );
+            }
+
+            @Override
+            public void node( long time, String name, BigDecimal nodeCpus, BigDecimal nodeMemory, Map<String, String> labels ) {
+                recordedNodes.add( new RecordedNode( name, nodeCpus, nodeMemory, labels ) );
+            }
+
+            @Override
+            public void verticesAdded( long time, List<Vertex> vertices ) {
+                releases.add( new Release( time, () -> scheduler.addVertices( vertices ) ) );
+            }
+
+            @Override
+            public void verticesRemoved( long time, int[] uids ) {
+                releases.add( new Release( time, () -> scheduler.removeVertices( uids ) ) );
+            }
+
+            @Override
+            public void edgesAdded( long time, List<InputEdge> edges ) {
+                releases.add( new Release( time, () -> scheduler.addEdges( edges ) ) );
+            }
+
+            @Override
+            public void edgesRemoved( long time, int[] uids ) {
+                releases.add( new Release( time, () -> scheduler.removeEdges( uids ) ) );
+            }
+
+            @Override
+            public void taskAdded( long time, int id, JsonNode taskConfig ) {
+                final String workDir = taskConfig.path( "workDir" ).asText( null );
+                // the work dir of the recorded run must not be touched
+                ( (ObjectNode) taskConfig ).putNull( "workDir" );
+                final TaskConfig converted = mapper.convertValue( taskConfig, TaskConfig.class );
+                final String runName = converted.getRunName();
+                idByPod.put( runName, id );
+                podById.put( id, runName );
+                if ( workDir != null ) {
+                    podByWorkDir.put( stripTrailingSlash( workDir ), runName );
+                }
+                final List<String> inputs = new ArrayList<>();
+                if ( converted.getInputs() != null && converted.getInputs().fileInputs != null ) {
+                    for ( InputParam<FileHolder> input : converted.getInputs().fileInputs ) {
+                        if ( input.value != null && input.value.sourceObj != null ) {
+                            inputs.add( input.value.sourceObj );
+                        }
+                    }
+                }
+                inputsByPod.put( runName, inputs );
+                final Input add = () -> {
+                    scheduler.addTask( id, converted );
+                    addedTasks.add( runName );
+                    if ( podsWithoutTask.remove( runName ) ) {
+                        createPod( runName );
+                    }
+                };
+                final Release release;
+                if ( batch != null ) {
+                    release = batch;
+                    release.inputs.add( add );
+                } else {
+                    release = new Release( time, add );
+                    releases.add( release );
+                }
+                release.pods.add( runName );
+            }
+
+            @Override
+            public void taskRemoved( long time, int id ) {
+                final Release release = new Release( time, () -> scheduler.removeTask( id ) );
+                // a task is removed after its pod finished
+                if ( podById.containsKey( id ) ) {
+                    release.predecessors.add( podById.get( id ) );
+                }
+                releases.add( release );
+            }
+
+            @Override
+            public void batchStarted( long time ) {
+                batch = new Release( time, () -> scheduler.startBatch() );
+                releases.add( batch );
+            }
+
+            @Override
+            public void batchEnded( long time, int tasksInBatch ) {
+                final Input end = () -> scheduler.endBatch( tasksInBatch );
+                if ( batch != null ) {
+                    batch.inputs.add( end );
+                    batch = null;
+                } else {
+                    releases.add( new Release( time, end ) );
+                }
+            }
+
+            @Override
+            public void podEvent( long time, PodRecord pod ) {
+                final RecordedPod recorded = recordedPods.computeIfAbsent( pod.name, name -> new RecordedPod() );
+                if ( pod.action == Watcher.Action.ADDED && pod.nodeName == null && recorded.added == null ) {
+                    recorded.added = pod;
+                    recorded.addedAt = time;
+                    final Release release = new Release( time, () -> {
+                        // a closed-loop task can be added later than in the recording
+                        if ( addedTasks.contains( pod.name ) || !idByPod.containsKey( pod.name ) ) {
+                            createPod( pod.name );
+                        } else {
+                            podsWithoutTask.add( pod.name );
+                        }
+                    } );
+                    release.pods.add( pod.name );
+                    releases.add( release );
+                } else if ( pod.nodeName != null && recorded.boundAt == -1 ) {
+                    recorded.boundAt = time;
+                    recorded.boundMemory = pod.memory;
+                }
+                if ( pod.exitCode != -1 && recorded.finishedAt == -1 ) {
+                    recorded.finishedAt = time;
+                }
+            }
+
+            @Override
+            public void taskMetrics( long time, int id, TaskMetrics metrics ) {
+                metricsById.put( id, metrics );
+            }
+        } );
+
+        final JsonNode recordedConfig = config.get( "config" );
+        final String replayStrategy = strategy != null ? strategy : recordedConfig.get( "strategy" ).asText();
+        final String replayMemoryPredictor = memoryPredictor != null ? memoryPredictor
+                : recordedConfig.hasNonNull( "memoryPredictor" ) ? recordedConfig.get( "memoryPredictor" ).asText() : null;
+
+        client = new SimulatedKubernetesClient( speedup, replayMemoryPredictor != null );
+        if ( nodes != null ) {
+            for ( int i = 0; i < nodes; i++ ) {
+                client.addNode( "node-" + i, cpus, memory );
+            }
+        } else {
+            for ( RecordedNode node : recordedNodes ) {
+                client.addNode( node.name, node.cpus, node.memory, node.labels );
+            }
+        }
+        scheduler = Simulation.createScheduler( client, replayStrategy, replayMemoryPredictor );
+        client.setPodBoundListener( this::podBound );
+        client.setPodFinishedListener( this::podFinished );
+        linkReleases();
+    }
+
+    /**
+     * A release waits for the replayed tasks that produced the inputs of its tasks.
+     * Only tasks that finished before the release in the recorded run count, so releases cannot wait for each other.
+     */
+    private void linkReleases() {
+        for ( Release release : releases ) {
+            for ( String pod : release.pods ) {
+                for ( String input : inputsByPod.getOrDefault( pod, List.of() ) ) {
+                    final String producer = producerOf( input );
+                    if ( producer != null && !producer.equals( pod ) ) {
+                        release.predecessors.add( producer );
+                    }
+                }
+            }
+            long lastFinished = -1;
+            for ( Iterator<String> iterator = release.predecessors.iterator(); iterator.hasNext(); ) {
+                final String predecessor = iterator.next();
+                final RecordedPod recorded = recordedPods.get( predecessor );
+                if ( recorded == null || recorded.added == null || runtimeOf( predecessor ) == -1
+                        || recorded.finishedAt == -1 || recorded.finishedAt > release.time ) {
+                    iterator.remove();
+                } else {
+                    lastFinished = Math.max( lastFinished, recorded.finishedAt );
+                    releasedByPod.computeIfAbsent( predecessor, k -> new ArrayList<>() ).add( release );
+                }
+            }
+            release.unfinished = release.predecessors.size();
+            release.delay = release.time - lastFinished;
+        }
+    }
+
+    /**
+     * Looks up the parent directories of the path like {@link cws.k8s.scheduler.model.DataLocalityIndex}
+     * @return the pod whose work dir contains the file, or null
+     */
+    private String producerOf( String path ) {
+        String prefix = stripTrailingSlash( path );
+        while ( !prefix.isEmpty() ) {
+            final String pod = podByWorkDir.get( prefix );
+            if ( pod != null ) {
+                return pod;
+            }
+            final int slash = prefix.lastIndexOf( '/' );
+            if ( slash < 0 ) {
+                return null;
+            }
+            prefix = prefix.substring( 0, slash );
+        }
+        return null;
+    }
+
+    private static String stripTrailingSlash( String path ) {
+        return path.endsWith( "/" ) ? path.substring( 0, path.length() - 1 ) : path;
+    }
+
+    private void schedule( Release release, long delayInMicros ) {
+        inputThread.schedule( () -> {
+            try {
+                for ( Input input : release.inputs ) {
+                    input.apply();
+                }
+            } catch ( Exception e ) {
+                log.error( "Cannot replay input recorded at {}us", release.time, e );
+            }
+        }, (long) ( delayInMicros * 1000 / client.getSpeedup() ), TimeUnit.NANOSECONDS );
+    }
+
+    private long runtimeOf( String pod ) {
+        final RecordedPod recorded = recordedPods.get( pod );
+        if ( recorded.boundAt != -1 && recorded.finishedAt != -1 ) {
+            return Math.max( 1, ( recorded.finishedAt - recorded.boundAt ) / 1000 );
+        }
+        final Integer id = idByPod.get( pod );
+        final TaskMetrics metrics = id == null ? null : metricsById.get( id );
+        return metrics == null ? -1 : Math.max( 1, metrics.getRealtime() );
+    }
+
+    private void createPod( String name ) {
+        final long runtime = runtimeOf( name );
+        if ( runtime == -1 ) {
+            return;
+        }
+        final PodRecord pod = recordedPods.get( name ).added;
+        createdAt.put( name, System.nanoTime() );
+        client.createPod( Simulation.pendingPod( name, scheduler.getName(), pod.cpus.toPlainString(),
+                pod.memory.toPlainString(), pod.nodeSelector.isEmpty() ? null : pod.nodeSelector ), runtime );
+    }
+
+    private void podBound( Pod pod, String node ) {
+        boundAt.put( pod.getMetadata().getName(), System.nanoTime() );
+        memoryAtBind.put( pod.getMetadata().getName(), new PodWithAge( pod ).getRequest().getRam() );
+    }
+
+    private void podFinished( Pod pod ) {
+        final String name = pod.getMetadata().getName();
+        final Integer id = idByPod.get( name );
+        if ( id != null && metricsById.containsKey( id ) ) {
+            scheduler.addTaskMetrics( id, metricsById.get( id ) );
+        }
+        for ( Release release : releasedByPod.getOrDefault( name, List.of() ) ) {
+            final boolean due;
+            synchronized ( release ) {
+                due = --release.unfinished == 0;
+            }
+            if ( due ) {
+                schedule( release, release.delay );
+            }
+        }
+        finished.countDown();
+    }
+
+    /**
+     * Feeds all inputs, open-loop or after their predecessors finished, and waits until all pods have finished
+     */
+    public Result run( long timeoutInSeconds ) throws InterruptedException {
+        int replayedPods = 0;
+        for ( Map.Entry<String, RecordedPod> entry : recordedPods.entrySet() ) {
+            if ( entry.getValue().added != null && runtimeOf( entry.getKey() ) != -1 ) {
+                replayedPods++;
+            }
+        }
+        finished = new CountDownLatch( replayedPods );
+
+        final com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        final long cpuStart = os.getProcessCpuTime();
+        final long start = System.nanoTime();
+        for ( Release release : releases ) {
+            if ( release.predecessors.isEmpty() ) {
+                schedule( release, release.time );
+            }
+        }
+        final boolean completed = finished.await( timeoutInSeconds, TimeUnit.SECONDS );
+        final long wallClock = System.nanoTime() - start;
+        final long cpuTime = os.getProcessCpuTime() - cpuStart;
+        inputThread.shutdownNow();
+        scheduler.close();
+        client.close();
+        return evaluate( completed, wallClock, cpuTime );
+    }
+
+    private Result evaluate( boolean completed, long wallClock, long cpuTime ) {
+        final double speedup = client.getSpeedup();
+        final List<Double> latencies = new ArrayList<>();
+        final List<Double> recordedLatencies = new ArrayList<>();
+        double waste = 0;
+        double recordedWaste = 0;
+        long recordedEnd = 0;
+        for ( Map.Entry<String, RecordedPod> entry : recordedPods.entrySet() ) {
+            final String name = entry.getKey();
+            final RecordedPod recorded = entry.getValue();
+            recordedEnd = Math.max( recordedEnd, recorded.finishedAt );
+            if ( recorded.added != null && recorded.boundAt != -1 ) {
+                recordedLatencies.add( ( recorded.boundAt - recorded.addedAt ) / 1000d );
+            }
+            if ( createdAt.containsKey( name ) && boundAt.containsKey( name ) ) {
+                latencies.add( ( boundAt.get( name ) - createdAt.get( name ) ) / 1_000_000d * speedup );
+            }
+            final Integer id = idByPod.get( name );
+            final TaskMetrics metrics = id == null ? null : metricsById.get( id );
+            final long runtime = runtimeOf( name );
+            if ( metrics != null && runtime != -1 ) {
+                if ( memoryAtBind.containsKey( name ) ) {
+                    waste += Math.max( 0, memoryAtBind.get( name ).doubleValue() - metrics.getPeakRss() ) * runtime;
+                }
+                if ( recorded.boundMemory != null ) {
+                    recordedWaste += Math.max( 0, recorded.boundMemory.doubleValue() - metrics.getPeakRss() ) * runtime;
+                }
+            }
+        }
+        return new Result( completed, latencies.size(), wallClock / 1_000_000d * speedup, recordedEnd / 1000d,
+                mean( latencies ), percentile( latencies, 0.95 ), mean( recordedLatencies ), percentile( recordedLatencies, 0.95 ),
+                waste / GIB_HOUR, recordedWaste / GIB_HOUR, cpuTime / 1_000_000d );
+    }
+
+    private static double mean( List<Double> values ) {
+        return values.stream().mapToDouble( Double::doubleValue ).average().orElse( Double.NaN );
+    }
+
+    private static double percentile( List<Double> values, double p ) {
+        if ( values.isEmpty() ) {
+            return Double.NaN;
+        }
+        final double[] sorted = values.stream().mapToDouble( Double::doubleValue ).sorted().toArray();
+        return sorted[(int) Math.min( sorted.length - 1, Math.ceil( p * sorted.length ) - 1 )];
+    }
+
+    /**
+     * All times in simulated milliseconds, the recorded values are from the original run
+     */
+    public static class Result {
+
+        public final boolean completed;
+        public final int scheduledPods;
+        public final double makespan;
+        public final double recordedMakespan;
+        public final double meanLatency;
+        public final double p95Latency;
+        public final double recordedMeanLatency;
+        public final double recordedP95Latency;
+        /**
+         * Requested but unused memory, integrated over the runtime of the tasks
+         */
+        public final double memoryWasteInGiBHours;
+        public final double recordedMemoryWasteInGiBHours;
+        public final double cpuTimeInMillis;
+
+        Result( boolean completed, int scheduledPods, double makespan, double recordedMakespan,
+                double meanLatency, double p95Latency, double recordedMeanLatency, double recordedP95Latency,
+                double memoryWasteInGiBHours, double recordedMemoryWasteInGiBHours, double cpuTimeInMillis ) {
+            this.completed = completed;
+            this.scheduledPods = scheduledPods;
+            this.makespan = makespan;
+            this.recordedMakespan = recordedMakespan;
+            this.meanLatency = meanLatency;
+            this.p95Latency = p95Latency;
+            this.recordedMeanLatency = recordedMeanLatency;
+            this.recordedP95Latency = recordedP95Latency;
+            this.memoryWasteInGiBHours = memoryWasteInGiBHours;
+            this.recordedMemoryWasteInGiBHours = recordedMemoryWasteInGiBHours;
+            this.cpuTimeInMillis = cpuTimeInMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "completed=" + completed +
+                    "\nscheduled_pods=" + scheduledPods +
+                    "\nmakespan_ms=" + Math.round( makespan ) + " (recorded: " + Math.round( recordedMakespan ) + ")" +
+                    "\nlatency_mean_ms=" + meanLatency + " (recorded: " + recordedMeanLatency + ")" +
+                    "\nlatency_p95_ms=" + p95Latency + " (recorded: " + recordedP95Latency + ")" +
+                    "\nmemory_waste_gib_h=" + memoryWasteInGiBHours + " (recorded: " + recordedMemoryWasteInGiBHours + ")" +
+                    "\ncpu_time_ms=" + Math.round( cpuTimeInMillis );
+        }
+
+    }
+
+    /**
+     * Options: --log (required), --strategy, --memoryPredictor, --speedup, --timeout (s),
+     * and --nodes, --cpus (per node), --memory (GiB per node) to replace the recorded cluster
+     */
+    public static void main( String[] args ) throws Exception {
+        final Map<String, String> options = Simulation.parseOptions( args );
+        if ( !options.containsKey( "log" ) ) {
+            throw new IllegalArgumentException( "Usage: Replay --log <file> [--strategy s] [--memoryPredictor p] [--speedup x] "
+                    + "[--nodes n --cpus c --memory GiB] [--timeout s], got: " + Arrays.toString( args ) );
+        }
+        final Integer nodes = options.containsKey( "nodes" ) ? Integer.valueOf( options.get( "nodes" ) ) : null;
+        final Replay replay = new Replay(
+                new File( options.get( "log" ) ),
+                Double.parseDouble( options.getOrDefault( "speedup", "100" ) ),
+                options.get( "strategy" ),
+                options.get( "memoryPredictor" ),
+                nodes,
+                new BigDecimal( options.getOrDefault( "cpus", "32" ) ),
+                new BigDecimal( options.getOrDefault( "memory", "128" ) ).multiply( BigDecimal.valueOf( 1L << 30 ) )
+        );
+        final Result result = replay.run( Long.parseLong( options.getOrDefault( "timeout", "3600" ) ) );
+        System.out.println( result );
+        System.exit( result.completed ? 0 : 1 );
+    }
+
+}
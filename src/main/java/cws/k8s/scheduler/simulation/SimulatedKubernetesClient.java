@@ -0,0 +1,167 @@
+package cws.k8s.scheduler.simulation;
+
+import cws.k8s.scheduler.client.CWSKubernetesClient;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.PodWithAge;
+import cws.k8s.scheduler.model.Task;
+import io.fabric8.kubernetes.api.model.ContainerStatusBuilder;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.client.Watch;
+import io.fabric8.kubernetes.client.Watcher;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A cluster that only exists in memory.
+ * Bound pods run for their simulated runtime divided by the speedup and succeed afterwards.
+ * All pod events are delivered by one thread in the order they happened, as a watch would.
+ */
+@Slf4j
+public class SimulatedKubernetesClient extends CWSKubernetesClient {
+
+    /**
+     * Simulated time passes this many times faster than the wall clock
+     */
+    @Getter
+    private final double speedup;
+    private final boolean inPlacePodVerticalScaling;
+    private final ScheduledExecutorService events = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, List<Watcher<Pod>>> podWatchers = new ConcurrentHashMap<>();
+    private final Map<String, Pod> pods = new ConcurrentHashMap<>();
+    private final Map<String, Long> runtimes = new ConcurrentHashMap<>();
+
+    /**
+     * Called on the event thread after a pod has finished
+     */
+    @Setter
+    private Consumer<Pod> podFinishedListener = pod -> {};
+
+    /**
+     * Called with the pod and the node when the scheduler binds a pod
+     */
+    @Setter
+    private BiConsumer<Pod, String> podBoundListener = ( pod, node ) -> {};
+
+    public SimulatedKubernetesClient( double speedup, boolean inPlacePodVerticalScaling ) {
+        super( null );
+        this.speedup = speedup;
+        this.inPlacePodVerticalScaling = inPlacePodVerticalScaling;
+    }
+
+    public void addNode( String name, BigDecimal cpus, BigDecimal memoryInBytes ) {
+        addNode( name, cpus, memoryInBytes, Map.of() );
+    }
+
+    public void addNode( String name, BigDecimal cpus, BigDecimal memoryInBytes, Map<String, String> labels ) {
+        final Node node = new NodeBuilder()
+                .withApiVersion( "v1" )
+                .withKind( "Node" )
+                .withNewMetadata().withName( name ).withUid( name ).withLabels( labels ).endMetadata()
+                .withNewSpec().endSpec()
+                .withNewStatus()
+                    .addToAllocatable( "cpu", new Quantity( cpus.toPlainString() ) )
+                    .addToAllocatable( "memory", new Quantity( memoryInBytes.toPlainString() ) )
+                    .addNewCondition().withType( "Ready" ).withStatus( "True" ).endCondition()
+                .endStatus()
+                .build();
+        nodeEventReceived( Watcher.Action.ADDED, node );
+    }
+
+    /**
+     * Creates a pod, as the workflow engine would
+     * @param pod pending pod without node
+     * @param runtimeInMillis simulated runtime of the pod after it was bound
+     */
+    public void createPod( Pod pod, long runtimeInMillis ) {
+        pods.put( pod.getMetadata().getName(), pod );
+        runtimes.put( pod.getMetadata().getName(), runtimeInMillis );
+        events.execute( () -> dispatch( Watcher.Action.ADDED, pod ) );
+    }
+
+    private void dispatch( Watcher.Action action, Pod pod ) {
+        try {
+            podEventReceived( action, pod );
+            for ( Watcher<Pod> watcher : podWatchers.getOrDefault( pod.getMetadata().getNamespace(), List.of() ) ) {
+                watcher.eventReceived( action, pod );
+            }
+        } catch ( Exception e ) {
+            log.error( "Error while dispatching {} of pod {}", action, pod.getMetadata().getName(), e );
+        }
+    }
+
+    @Override
+    public Watch watchPods( String namespace, Watcher<Pod> watcher ) {
+        final List<Watcher<Pod>> watchers = podWatchers.computeIfAbsent( namespace, ns -> new CopyOnWriteArrayList<>() );
+        watchers.add( watcher );
+        return () -> watchers.remove( watcher );
+    }
+
+    @Override
+    public void assignPodToNode( PodWithAge pod, String node ) {
+        final String name = pod.getMetadata().getName();
+        final Pod running = new PodBuilder( pods.get( name ) )
+                .editSpec().withNodeName( node ).endSpec()
+                .editOrNewStatus().withPhase( "Running" ).endStatus()
+                .build();
+        pods.put( name, running );
+        podBoundListener.accept( running, node );
+        events.execute( () -> dispatch( Watcher.Action.MODIFIED, running ) );
+        final long delay = (long) ( runtimes.remove( name ) * 1_000_000d / speedup );
+        events.schedule( () -> finish( running ), delay, TimeUnit.NANOSECONDS );
+    }
+
+    private void finish( Pod running ) {
+        final Pod finished = new PodBuilder( running )
+                .editStatus()
+                    .withPhase( "Succeeded" )
+                    .withContainerStatuses( new ContainerStatusBuilder()
+                            .withName( running.getSpec().getContainers().get( 0 ).getName() )
+                            .withNewState().withNewTerminated().withExitCode( 0 ).endTerminated().endState()
+                            .build() )
+                .endStatus()
+                .build();
+        pods.remove( finished.getMetadata().getName() );
+        dispatch( Watcher.Action.MODIFIED, finished );
+        podFinishedListener.accept( finished );
+    }
+
+    @Override
+    public boolean patchTaskMemory( Task t ) {
+        final String name = t.getPod().getName();
+        final Pod modifiedPod = withMemory( pods.get( name ), plannedMemoryOf( t ) );
+        pods.put( name, modifiedPod );
+        t.setPod( new PodWithAge( modifiedPod ) );
+        return true;
+    }
+
+    @Override
+    public boolean inPlacePodVerticalScalingActive() {
+        return inPlacePodVerticalScaling;
+    }
+
+    @Override
+    public BigDecimal getMemoryOfNode( NodeWithAlloc node ) {
+        return node.getRequestedResources().getRam();
+    }
+
+    public void close() {
+        events.shutdownNow();
+    }
+
+}
@@ -0,0 +1,271 @@
+package cws.k8s.scheduler.simulation;
+
+import ch.qos.logback.classic.Level;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.SchedulerConfig;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.model.TaskMetrics;
+import cws.k8s.scheduler.scheduler.PrioritizeAssignScheduler;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import cws.k8s.scheduler.scheduler.SchedulerFactory;
+import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.RoundRobinAssign;
+import cws.k8s.scheduler.scheduler.prioritize.Prioritize;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs a workload against a {@link PrioritizeAssignScheduler} on a {@link SimulatedKubernetesClient}.
+ * The scheduler is the same as in production, only the cluster and the workflow engine are simulated.
+ */
+public class Simulation {
+
+    static final String NAMESPACE = "simulation";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Workload workload;
+    private final SimulatedKubernetesClient client;
+    private final Scheduler scheduler;
+    private final AtomicIntegerArray openDependencies;
+    private final List<List<Integer>> dependents;
+    private final CountDownLatch finished;
+
+    /**
+     * @param strategy strategy string as used to register an execution, e.g. "rank_max-fair"
+     * @param memoryPredictor memory predictor config or null
+     */
+    public Simulation( Workload workload, SimulatedKubernetesClient client, String strategy, String memoryPredictor ) {
+        this.workload = workload;
+        this.client = client;
+        this.scheduler = createScheduler( client, strategy, memoryPredictor );
+
+        final List<Vertex> vertices = new ArrayList<>();
+        for ( int i = 0; i < workload.getProcesses().size(); i++ ) {
+            vertices.add( new Process( workload.getProcesses().get( i ), i ) );
+        }
+        scheduler.getDag().registerVertices( vertices );
+        final List<InputEdge> edges = new ArrayList<>();
+        for ( int[] edge : workload.getProcessEdges() ) {
+            edges.add( new InputEdge( edges.size(), edge[0], edge[1] ) );
+        }
+        scheduler.getDag().registerEdges( edges );
+
+        final List<Workload.SimulatedTask> tasks = workload.getTasks();
+        openDependencies = new AtomicIntegerArray( tasks.size() );
+        dependents = new ArrayList<>( tasks.size() );
+        for ( Workload.SimulatedTask task : tasks ) {
+            dependents.add( new ArrayList<>( 1 ) );
+            openDependencies.set( task.id, task.dependsOn.length );
+            for ( int dependency : task.dependsOn ) {
+                dependents.get( dependency ).add( task.id );
+            }
+        }
+        finished = new CountDownLatch( tasks.size() );
+        client.setPodFinishedListener( this::taskFinished );
+    }
+
+    private void submit( Workload.SimulatedTask task ) {
+        final String runName = "sim-" + task.id;
+        final Map<String, Object> config = new HashMap<>();
+        config.put( "task", task.process );
+        config.put( "name", task.process + " (" + task.id + ")" );
+        config.put( "runName", runName );
+        config.put( "cpus", task.cpus );
+        config.put( "memoryInBytes", task.memoryInBytes );
+        config.put( "inputSize", task.inputSize );
+        scheduler.addTask( task.id, mapper.convertValue( config, TaskConfig.class ) );
+
+        final Pod pod = pendingPod( runName, scheduler.getName(), String.valueOf( task.cpus ),
+                String.valueOf( task.memoryInBytes ), null );
+        client.createPod( pod, task.runtimeInMillis );
+    }
+
+    /**
+     * Creates a scheduler for a strategy string as used to register an execution
+     */
+    static Scheduler createScheduler( SimulatedKubernetesClient client, String strategy, String memoryPredictor ) {
+        final String[] split = strategy.split( "-" );
+        final Prioritize prioritize = SchedulerFactory.getPrioritize( split[0] );
+        final NodeAssign assign = split.length > 1 ? SchedulerFactory.getNodeAssign( split[1] ) : new RoundRobinAssign();
+        final boolean backfill = split.length == 3 && split[2].equalsIgnoreCase( "backfill" );
+        if ( prioritize == null || assign == null || ( split.length > 2 && !backfill ) ) {
+            throw new IllegalArgumentException( "No scheduler for strategy: " + strategy );
+        }
+        final Map<String, Object> config = new HashMap<>();
+        config.put( "dns", "http://localhost/" );
+        config.put( "namespace", NAMESPACE );
+        config.put( "strategy", strategy );
+        config.put( "memoryPredictor", memoryPredictor );
+        final String execution = "simulation-" + System.currentTimeMillis();
+        final Scheduler scheduler = new PrioritizeAssignScheduler( execution, client, NAMESPACE,
+                new ObjectMapper().convertValue( config, SchedulerConfig.class ), prioritize, assign, backfill );
+        client.addInformable( scheduler );
+        return scheduler;
+    }
+
+    /**
+     * A pending pod with one container, its uid is the name
+     */
+    static Pod pendingPod( String name, String schedulerName, String cpus, String memory, Map<String, String> nodeSelector ) {
+        return new PodBuilder()
+                .withApiVersion( "v1" )
+                .withKind( "Pod" )
+                .withNewMetadata()
+                    .withName( name )
+                    .withNamespace( NAMESPACE )
+                    .withUid( name )
+                .endMetadata()
+                .withNewSpec()
+                    .withSchedulerName( schedulerName )
+                    .withNodeSelector( nodeSelector )
+                    .addNewContainer()
+                        .withName( "main" )
+                        .withNewResources()
+                            .addToRequests( "cpu", new Quantity( cpus ) )
+                            .addToRequests( "memory", new Quantity( memory ) )
+                        .endResources()
+                    .endContainer()
+                .endSpec()
+                .withNewStatus().withPhase( "Pending" ).endStatus()
+                .build();
+    }
+
+    private void taskFinished( Pod pod ) {
+        final int id = Integer.parseInt( pod.getMetadata().getName().substring( "sim-".length() ) );
+        final Workload.SimulatedTask task = workload.getTasks().get( id );
+        scheduler.addTaskMetrics( id, new TaskMetrics( task.memoryInBytes, task.peakRss, task.peakRss, task.runtimeInMillis ) );
+        for ( int dependent : dependents.get( id ) ) {
+            if ( openDependencies.decrementAndGet( dependent ) == 0 ) {
+                submit( workload.getTasks().get( dependent ) );
+            }
+        }
+        finished.countDown();
+    }
+
+    /**
+     * Submits all tasks without dependencies and waits until all tasks have finished
+     * @param timeoutInSeconds wall clock timeout
+     */
+    public Result run( long timeoutInSeconds ) throws InterruptedException {
+        final com.sun.management.OperatingSystemMXBean os =
+                (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+        final long cpuStart = os.getProcessCpuTime();
+        final long start = System.nanoTime();
+        for ( Workload.SimulatedTask task : workload.getTasks() ) {
+            if ( task.dependsOn.length == 0 ) {
+                submit( task );
+            }
+        }
+        final boolean completed = finished.await( timeoutInSeconds, TimeUnit.SECONDS );
+        final long wallClock = System.nanoTime() - start;
+        final long cpuTime = os.getProcessCpuTime() - cpuStart;
+        scheduler.close();
+        client.close();
+
+        final double makespan = wallClock / 1_000_000d * client.getSpeedup();
+        double usedCpuMillis = 0;
+        for ( Workload.SimulatedTask task : workload.getTasks() ) {
+            usedCpuMillis += task.cpus * task.runtimeInMillis;
+        }
+        final double clusterCpus = client.getAllNodes().stream()
+                .mapToDouble( node -> node.getMaxResources().getCpu().doubleValue() )
+                .sum();
+        return new Result( completed, workload.getTasks().size() - (int) finished.getCount(),
+                makespan, usedCpuMillis / ( clusterCpus * makespan ), cpuTime / 1_000_000d );
+    }
+
+    public static class Result {
+
+        public final boolean completed;
+        public final int finishedTasks;
+        /**
+         * Simulated time from the first submission until the last task finished
+         */
+        public final double makespanInMillis;
+        /**
+         * Share of the cluster's CPUs used by the tasks during the makespan
+         */
+        public final double utilization;
+        /**
+         * CPU time of the whole process, this is dominated by the scheduler
+         */
+        public final double cpuTimeInMillis;
+
+        Result( boolean completed, int finishedTasks, double makespanInMillis, double utilization, double cpuTimeInMillis ) {
+            this.completed = completed;
+            this.finishedTasks = finishedTasks;
+            this.makespanInMillis = makespanInMillis;
+            this.utilization = utilization;
+            this.cpuTimeInMillis = cpuTimeInMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "completed=" + completed +
+                    "\nfinished_tasks=" + finishedTasks +
+                    "\nmakespan_ms=" + Math.round( makespanInMillis ) +
+                    "\nutilization=" + utilization +
+                    "\ncpu_time_ms=" + Math.round( cpuTimeInMillis );
+        }
+
+    }
+
+    /**
+     * Parses "--key value" pairs and reduces logging to warnings, as the scheduler logs every assignment
+     */
+    static Map<String, String> parseOptions( String[] args ) {
+        ( (ch.qos.logback.classic.Logger) LoggerFactory.getLogger( org.slf4j.Logger.ROOT_LOGGER_NAME ) ).setLevel( Level.WARN );
+        final Map<String, String> options = new HashMap<>();
+        for ( int i = 0; i + 1 < args.length; i += 2 ) {
+            options.put( args[i].replaceFirst( "^--", "" ), args[i + 1] );
+        }
+        return options;
+    }
+
+    /**
+     * Options: --nodes, --cpus (per node), --memory (GiB per node), --strategy, --memoryPredictor,
+     * --speedup, --processes, --tasks (per process), --runtime (mean in ms), --seed, --workload (tsv file), --timeout (s)
+     */
+    public static void main( String[] args ) throws Exception {
+        final Map<String, String> options = parseOptions( args );
+
+        final Workload workload = options.containsKey( "workload" )
+                ? Workload.fromTsv( options.get( "workload" ) )
+                : Workload.synthetic(
+                        Integer.parseInt( options.getOrDefault( "processes", "10" ) ),
+                        Integer.parseInt( options.getOrDefault( "tasks", "1000" ) ),
+                        Long.parseLong( options.getOrDefault( "runtime", "60000" ) ),
+                        Long.parseLong( options.getOrDefault( "seed", "42" ) ) );
+
+        final String memoryPredictor = options.get( "memoryPredictor" );
+        final SimulatedKubernetesClient client = new SimulatedKubernetesClient(
+                Double.parseDouble( options.getOrDefault( "speedup", "1000" ) ), memoryPredictor != null );
+        final int nodes = Integer.parseInt( options.getOrDefault( "nodes", "100" ) );
+        final BigDecimal cpus = new BigDecimal( options.getOrDefault( "cpus", "32" ) );
+        final BigDecimal memory = new BigDecimal( options.getOrDefault( "memory", "128" ) ).multiply( BigDecimal.valueOf( 1L << 30 ) );
+        for ( int i = 0; i < nodes; i++ ) {
+            client.addNode( "node-" + i, cpus, memory );
+        }
+
+        final Simulation simulation = new Simulation( workload, client, options.getOrDefault( "strategy", "rank_max-fair" ), memoryPredictor );
+        final Result result = simulation.run( Long.parseLong( options.getOrDefault( "timeout", "3600" ) ) );
+        System.out.println( result );
+        System.exit( result.completed ? 0 : 1 );
+    }
+
+}
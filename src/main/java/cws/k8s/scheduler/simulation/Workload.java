@@ -0,0 +1,139 @@
+package cws.k8s.scheduler.simulation;
+
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The tasks of a simulated workflow.
+ * A task is submitted once all tasks it depends on have finished.
+ */
+@Getter
+public class Workload {
+
+    public static class SimulatedTask {
+
+        public final int id;
+        public final String process;
+        public final float cpus;
+        public final long memoryInBytes;
+        /**
+         * Memory the task actually used, reported as peak RSS for the memory prediction
+         */
+        public final long peakRss;
+        public final long runtimeInMillis;
+        public final long inputSize;
+        public final int[] dependsOn;
+
+        public SimulatedTask( int id, String process, float cpus, long memoryInBytes, long peakRss,
+                              long runtimeInMillis, long inputSize, int[] dependsOn ) {
+            this.id = id;
+            this.process = process;
+            this.cpus = cpus;
+            this.memoryInBytes = memoryInBytes;
+            this.peakRss = peakRss;
+            this.runtimeInMillis = runtimeInMillis;
+            this.inputSize = inputSize;
+            this.dependsOn = dependsOn;
+        }
+
+    }
+
+    private final List<SimulatedTask> tasks;
+    /**
+     * Processes in order of their first appearance
+     */
+    private final List<String> processes;
+    /**
+     * Pairs of process indices [from, to]
+     */
+    private final List<int[]> processEdges;
+
+    public Workload( List<SimulatedTask> tasks ) {
+        this.tasks = tasks;
+        final Map<String, Integer> processIndex = new LinkedHashMap<>();
+        for ( SimulatedTask task : tasks ) {
+            processIndex.putIfAbsent( task.process, processIndex.size() );
+        }
+        this.processes = new ArrayList<>( processIndex.keySet() );
+        final Set<Long> edges = new HashSet<>();
+        this.processEdges = new ArrayList<>();
+        for ( SimulatedTask task : tasks ) {
+            final int to = processIndex.get( task.process );
+            for ( int dependency : task.dependsOn ) {
+                final int from = processIndex.get( tasks.get( dependency ).process );
+                if ( from != to && edges.add( ( (long) from << 32 ) | to ) ) {
+                    processEdges.add( new int[]{ from, to } );
+                }
+            }
+        }
+    }
+
+    /**
+     * A workflow of consecutive processes, every task depends on one random task of the previous process
+     * @param processes number of processes
+     * @param tasksPerProcess number of tasks of each process
+     * @param meanRuntimeInMillis runtimes are exponentially distributed with this mean
+     */
+    public static Workload synthetic( int processes, int tasksPerProcess, long meanRuntimeInMillis, long seed ) {
+        final Random random = new Random( seed );
+        final List<SimulatedTask> tasks = new ArrayList<>( processes * tasksPerProcess );
+        for ( int p = 0; p < processes; p++ ) {
+            final float cpus = 1 + random.nextInt( 4 );
+            final long memory = ( 1L + random.nextInt( 8 ) ) << 30;
+            for ( int i = 0; i < tasksPerProcess; i++ ) {
+                final int id = tasks.size();
+                final int[] dependsOn = p == 0
+                        ? new int[0]
+                        : new int[]{ ( p - 1 ) * tasksPerProcess + random.nextInt( tasksPerProcess ) };
+                final long inputSize = 1L + random.nextInt( 1 << 30 );
+                final long runtime = Math.max( 1, (long) ( -Math.log( 1 - random.nextDouble() ) * meanRuntimeInMillis ) );
+                final long peakRss = (long) ( memory * ( 0.2 + 0.6 * inputSize / ( 1 << 30 ) ) );
+                tasks.add( new SimulatedTask( id, "process_" + p, cpus, memory, peakRss, runtime, inputSize, dependsOn ) );
+            }
+        }
+        return new Workload( tasks );
+    }
+
+    /**
+     * Reads a tab separated file with one task per line:
+     * process, cpus, memory in bytes, peak RSS in bytes, runtime in ms, input size in bytes,
+     * and the comma separated line numbers (starting with 0) of the tasks it depends on or '-'.
+     * Tasks may only depend on tasks in previous lines, lines starting with '#' are ignored.
+     */
+    public static Workload fromTsv( String path ) throws IOException {
+        final List<SimulatedTask> tasks = new ArrayList<>();
+        try ( BufferedReader reader = new BufferedReader( new FileReader( path ) ) ) {
+            String line;
+            while ( ( line = reader.readLine() ) != null ) {
+                if ( line.isBlank() || line.startsWith( "#" ) ) {
+                    continue;
+                }
+                final String[] columns = line.split( "\t" );
+                final int id = tasks.size();
+                final int[] dependsOn = columns.length < 7 || columns[6].equals( "-" )
+                        ? new int[0]
+                        : Arrays.stream( columns[6].split( "," ) ).mapToInt( Integer::parseInt ).toArray();
+                for ( int dependency : dependsOn ) {
+                    if ( dependency >= id ) {
+                        throw new IllegalArgumentException( "Task " + id + " depends on a later task: " + dependency );
+                    }
+                }
+                tasks.add( new SimulatedTask( id, columns[0], Float.parseFloat( columns[1] ), Long.parseLong( columns[2] ),
+                        Long.parseLong( columns[3] ), Long.parseLong( columns[4] ), Long.parseLong( columns[5] ), dependsOn ) );
+            }
+        }
+        return new Workload( tasks );
+    }
+
+}
@@ -211,6 +211,62 @@ public class DAGTest {
 
     }
 
+    @Test
+    public void upwardRanks(){
+
+        final DAG dag = new DAG();
+
+        final Process a = new Process("a", 1);
+        final Operator filter = new Operator("filter", 2);
+        final Process b = new Process("b", 3);
+        final Process c = new Process("c", 4);
+
+        dag.registerVertices( List.of( a, filter, b, c ) );
+        dag.registerEdges( List.of( new InputEdge(1,1,2), new InputEdge(2,2,3), new InputEdge(3,1,4) ) );
+
+        final Map<String, Double> weights = Map.of( "a", 1.0, "b", 5.0, "c", 2.0 );
+        final Map<Process, Double> ranks = dag.upwardRanks( p -> weights.get( p.getLabel() ) );
+
+        assertEquals( 6.0, ranks.get( a ), 0.0 );
+        assertEquals( 5.0, ranks.get( b ), 0.0 );
+        assertEquals( 2.0, ranks.get( c ), 0.0 );
+        assertEquals( 3, ranks.size() );
+
+    }
+
+    @Test
+    public void upwardRanksOfADeepDAG() throws InterruptedException {
+
+        final DAG dag = new DAG();
+        final int length = 3_000;
+        final List<Vertex> vertices = new ArrayList<>();
+        final List<InputEdge> edges = new ArrayList<>();
+        for ( int i = 1; i <= length; i++ ) {
+            vertices.add( new Process( "p" + i, i ) );
+            if ( i > 1 ) {
+                edges.add( new InputEdge( i, i - 1, i ) );
+            }
+        }
+        // a shortcut from the first to the last process does not shorten the longest path
+        edges.add( new InputEdge( length + 1, 1, length ) );
+        dag.registerVertices( vertices );
+        dag.registerEdges( edges );
+
+        // a small stack, the ranks must not be computed recursively along the path
+        final Map<Process, Double>[] result = new Map[1];
+        final Thread thread = new Thread( null, () -> result[0] = dag.upwardRanks( p -> 1.0 ), "upwardRanks", 256 * 1024 );
+        thread.start();
+        thread.join();
+        final Map<Process, Double> ranks = result[0];
+
+        assertNotNull( ranks );
+
+        assertEquals( length, ranks.size() );
+        assertEquals( length, ranks.get( dag.getByProcess( "p1" ) ), 0.0 );
+        assertEquals( 1.0, ranks.get( dag.getByProcess( "p" + length ) ), 0.0 );
+
+    }
+
     /**
      *
      *               o
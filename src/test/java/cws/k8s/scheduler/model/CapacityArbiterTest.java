@@ -0,0 +1,122 @@
+package cws.k8s.scheduler.model;
+
+import cws.k8s.scheduler.scheduler.prioritize.TestTask;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CapacityArbiterTest {
+
+    private final NodeWithAlloc a = TestNode.create( "arbiter-a", "4", "4096", Map.of( "zone", "a" ) );
+    private final NodeWithAlloc b = TestNode.create( "arbiter-b", "4", "4096", Map.of( "zone", "b" ) );
+
+    private static Task task( String uid, int cpus, Map<String, String> nodeSelector ) {
+        final Task task = new TestTask();
+        task.setPod( TestNode.pod( uid, String.valueOf( cpus ), "1024", nodeSelector ) );
+        task.setPlanedCpuInCores( cpus, 0 );
+        task.setPlannedMemoryInBytes( 1024, 0 );
+        return task;
+    }
+
+    private static Task task( String uid, int cpus ) {
+        return task( uid, cpus, Map.of() );
+    }
+
+    private CapacityArbiter arbiter( double weightX, double weightY ) {
+        final CapacityArbiter arbiter = new CapacityArbiter();
+        arbiter.register( "x", weightX );
+        arbiter.register( "y", weightY );
+        arbiter.updateCapacity( List.of( a, b ) );
+        return arbiter;
+    }
+
+    @Test
+    void deniedWhileASmallerShareWaits() {
+        final CapacityArbiter arbiter = arbiter( 1, 1 );
+        assertTrue( arbiter.reserve( "x", a, task( "x1", 2 ) ) );
+        assertEquals( 0.25, arbiter.getDominantShare( "x" ), 1e-9 );
+
+        // nobody waits, the capacity is not left idle
+        assertTrue( arbiter.reserve( "x", a, task( "x2", 1 ) ) );
+
+        arbiter.setWaiting( "y", List.of( task( "y1", 1 ) ) );
+        assertFalse( arbiter.reserve( "x", a, task( "x3", 1 ) ) );
+        assertFalse( arbiter.reserve( "x", b, task( "x3", 1 ) ) );
+        assertEquals( 4, b.getAvailableResources().getCpu().intValue() );
+        assertTrue( arbiter.reserve( "y", b, task( "y1", 1 ) ) );
+
+        arbiter.setWaiting( "y", List.of() );
+        assertTrue( arbiter.reserve( "x", b, task( "x3", 1 ) ) );
+        assertEquals( 0.5, arbiter.getDominantShare( "x" ), 1e-9 );
+    }
+
+    @Test
+    void waitingTasksThatCannotUseTheNodeDoNotBlock() {
+        final CapacityArbiter arbiter = arbiter( 1, 1 );
+        assertTrue( arbiter.reserve( "x", a, task( "x1", 2 ) ) );
+
+        // larger than any node
+        arbiter.setWaiting( "y", List.of( task( "y1", 8 ) ) );
+        assertTrue( arbiter.reserve( "x", a, task( "x2", 1 ) ) );
+
+        // only fits the other node
+        arbiter.setWaiting( "y", List.of( task( "y1", 8 ), task( "y2", 1, Map.of( "zone", "b" ) ) ) );
+        assertTrue( arbiter.reserve( "x", a, task( "x3", 1 ) ) );
+        assertFalse( arbiter.reserve( "x", b, task( "x4", 1 ) ) );
+    }
+
+    @Test
+    void onlyFreeResourcesAreHeldBack() {
+        final CapacityArbiter arbiter = arbiter( 1, 1 );
+        assertTrue( arbiter.reserve( "x", a, task( "x1", 3 ) ) );
+        arbiter.setWaiting( "y", List.of( task( "y1", 2 ) ) );
+
+        // y's task fits node a, but not into the one cpu left there
+        assertTrue( arbiter.reserve( "x", a, task( "x2", 1 ) ) );
+
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        assertFalse( arbiter.reserve( "x", b, task( "x3", 1 ) ) );
+        // the assignment counted the denied task's resources as used
+        assertTrue( NodeWithAlloc.getCapacityEpoch() > epoch );
+    }
+
+    @Test
+    void weightsScaleTheShare() {
+        final CapacityArbiter arbiter = arbiter( 2, 1 );
+        assertTrue( arbiter.reserve( "x", a, task( "x1", 3 ) ) );
+        assertTrue( arbiter.reserve( "y", b, task( "y1", 2 ) ) );
+        assertEquals( 0.375 / 2, arbiter.getDominantShare( "x" ), 1e-9 );
+        assertEquals( 0.25, arbiter.getDominantShare( "y" ), 1e-9 );
+
+        arbiter.setWaiting( "y", List.of( task( "y2", 1 ) ) );
+        assertTrue( arbiter.reserve( "x", b, task( "x2", 1 ) ) );
+        // 0.5 / 2 = 0.25 is not smaller than the share of y
+        arbiter.setWaiting( "x", List.of( task( "x3", 1 ) ) );
+        assertTrue( arbiter.reserve( "y", b, task( "y2", 1 ) ) );
+        assertFalse( arbiter.reserve( "y", a, task( "y3", 1 ) ) );
+    }
+
+    @Test
+    void releaseLowersTheShare() {
+        final CapacityArbiter arbiter = arbiter( 1, 1 );
+        final Task x1 = task( "x1", 2 );
+        assertTrue( arbiter.reserve( "x", a, x1 ) );
+        assertTrue( arbiter.reserve( "y", b, task( "y1", 1 ) ) );
+        arbiter.setWaiting( "y", List.of( task( "y2", 1 ) ) );
+        assertFalse( arbiter.reserve( "x", b, task( "x2", 1 ) ) );
+
+        arbiter.release( "x", "x1" );
+        a.release( "x1" );
+        assertEquals( 0, arbiter.getDominantShare( "x" ), 1e-9 );
+        assertTrue( arbiter.reserve( "x", b, task( "x2", 1 ) ) );
+        // releasing twice or unknown pods does not change the share
+        arbiter.release( "x", "x1" );
+        arbiter.release( "z", "z1" );
+        assertEquals( 0.125, arbiter.getDominantShare( "x" ), 1e-9 );
+        assertTrue( Double.isNaN( arbiter.getDominantShare( "z" ) ) );
+    }
+
+}
@@ -0,0 +1,118 @@
+package cws.k8s.scheduler.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeMapTest {
+
+    @Test
+    void idsOfRemovedNodesAreReused() {
+        final NodeWithAlloc removed = TestNode.create( "nodemap-removed", "4", "8Gi" );
+        final NodeMap<Integer> map = new NodeMap<>();
+        map.put( removed, 1 );
+        NodeWithAlloc.releaseId( removed );
+        final int numberOfIds = NodeWithAlloc.getNumberOfIds();
+
+        final NodeWithAlloc added = TestNode.create( "nodemap-added", "4", "8Gi" );
+        assertTrue( added.getId() <= removed.getId() );
+        assertEquals( numberOfIds, NodeWithAlloc.getNumberOfIds() );
+        assertNotEquals( removed, added );
+
+        // the map still holds the removed node, lookups must not return its value
+        assertNull( map.get( added ) );
+        assertNull( map.put( added, 2 ) );
+        assertEquals( 2, map.get( added ) );
+        if ( added.getId() == removed.getId() ) {
+            assertNull( map.get( removed ) );
+            assertEquals( 1, map.size() );
+        }
+    }
+
+    @Test
+    void putGetRemove() {
+        final NodeWithAlloc a = TestNode.create( "nodemap-a", "4", "8Gi" );
+        final NodeWithAlloc b = TestNode.create( "nodemap-b", "4", "8Gi" );
+        final NodeMap<Integer> map = new NodeMap<>();
+        assertNull( map.put( a, 1 ) );
+        assertEquals( 1, map.put( a, 2 ) );
+        assertEquals( 1, map.size() );
+        assertEquals( 2, map.get( a ) );
+        assertNull( map.get( b ) );
+        assertNull( map.get( "nodemap-a" ) );
+        assertFalse( map.containsKey( b ) );
+
+        // a null value is still a mapping
+        map.put( b, null );
+        assertTrue( map.containsKey( b ) );
+        assertEquals( 2, map.size() );
+
+        assertEquals( 2, map.remove( a ) );
+        assertNull( map.remove( a ) );
+        assertFalse( map.containsKey( a ) );
+        assertEquals( 1, map.size() );
+
+        map.clear();
+        assertTrue( map.isEmpty() );
+        assertFalse( map.containsKey( b ) );
+    }
+
+    @Test
+    void growsForNodesCreatedLater() {
+        final NodeMap<String> map = new NodeMap<>();
+        final List<NodeWithAlloc> nodes = new ArrayList<>();
+        for ( int i = 0; i < 40; i++ ) {
+            nodes.add( TestNode.create( "nodemap-grow-" + i, "1", "1Gi" ) );
+        }
+        for ( NodeWithAlloc node : nodes ) {
+            map.put( node, node.getName() );
+        }
+        assertEquals( nodes.size(), map.size() );
+        for ( NodeWithAlloc node : nodes ) {
+            assertEquals( node.getName(), map.get( node ) );
+        }
+    }
+
+    @Test
+    void iteratesInIdOrder() {
+        final NodeWithAlloc a = TestNode.create( "nodemap-order-a", "1", "1Gi" );
+        final NodeWithAlloc b = TestNode.create( "nodemap-order-b", "1", "1Gi" );
+        final NodeWithAlloc c = TestNode.create( "nodemap-order-c", "1", "1Gi" );
+        final NodeMap<Integer> map = new NodeMap<>();
+        map.put( c, 3 );
+        map.put( a, 1 );
+        map.put( b, 2 );
+        assertEquals( List.of( a, b, c ), new ArrayList<>( map.keySet() ) );
+        assertEquals( List.of( 1, 2, 3 ), new ArrayList<>( map.values() ) );
+        assertEquals( new HashMap<>( Map.of( a, 1, b, 2, c, 3 ) ), map );
+    }
+
+    @Test
+    void entriesWriteThrough() {
+        final NodeWithAlloc a = TestNode.create( "nodemap-entry-a", "1", "1Gi" );
+        final NodeWithAlloc b = TestNode.create( "nodemap-entry-b", "1", "1Gi" );
+        final NodeMap<Integer> map = new NodeMap<>();
+        map.put( a, 1 );
+        map.put( b, 2 );
+        final Iterator<Map.Entry<NodeWithAlloc, Integer>> iterator = map.entrySet().iterator();
+        assertThrows( IllegalStateException.class, iterator::remove );
+        final Map.Entry<NodeWithAlloc, Integer> first = iterator.next();
+        assertEquals( a, first.getKey() );
+        assertEquals( 1, first.setValue( 10 ) );
+        assertEquals( 10, map.get( a ) );
+        iterator.next();
+        iterator.remove();
+        assertThrows( IllegalStateException.class, iterator::remove );
+        assertFalse( iterator.hasNext() );
+        assertEquals( 1, map.size() );
+        assertFalse( map.containsKey( b ) );
+        assertEquals( Map.of( a, 10 ), map );
+    }
+
+}
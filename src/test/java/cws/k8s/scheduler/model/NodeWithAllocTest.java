@@ -0,0 +1,175 @@
+package cws.k8s.scheduler.model;
+
+import io.fabric8.kubernetes.api.model.ContainerImage;
+import io.fabric8.kubernetes.api.model.Node;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeWithAllocTest {
+
+    private static Requirements requirements( double cpu, long ram ) {
+        return new Requirements( BigDecimal.valueOf( cpu ), BigDecimal.valueOf( ram ) );
+    }
+
+    @Test
+    void addPodRegistersRequest() {
+        final NodeWithAlloc node = TestNode.create( "addPod", "4", "4096" );
+        node.addPod( TestNode.pod( "a", "1", "1024" ) );
+        node.addPod( TestNode.pod( "b", "2", "1024" ) );
+        assertEquals( 2, node.getRunningPods() );
+        assertTrue( requirements( 1, 2048 ).higherOrEquals( node.getAvailableResources() ) );
+        assertTrue( node.getAvailableResources().higherOrEquals( requirements( 1, 2048 ) ) );
+    }
+
+    @Test
+    void addPodKeepsUnchangedRequest() {
+        final NodeWithAlloc node = TestNode.create( "addPodUnchanged", "4", "4096" );
+        node.addPod( TestNode.pod( "a", "1", "1024" ) );
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        node.addPod( TestNode.pod( "a", "1", "1024" ) );
+        assertEquals( epoch, NodeWithAlloc.getCapacityEpoch() );
+        assertEquals( 0, node.getRequestedResources().getCpu().compareTo( BigDecimal.ONE ) );
+    }
+
+    @Test
+    void addPodDoesNotParseKnownPods() {
+        final NodeWithAlloc node = TestNode.create( "addPodKnown", "4", "4096" );
+        assertTrue( node.reserve( "a", requirements( 1, 2048 ) ) );
+        // the watch reports the pod this scheduler reserved resources for
+        final PodWithAge added = Mockito.spy( TestNode.pod( "a", "1", "1024" ) );
+        node.addPod( added );
+        Mockito.verify( added, Mockito.never() ).getRequest();
+        assertEquals( 1, node.getRunningPods() );
+        assertEquals( 0, node.getRequestedResources().getRam().compareTo( BigDecimal.valueOf( 2048 ) ) );
+        assertTrue( node.removePod( added ) );
+        assertEquals( 0, node.getRequestedResources().getRam().signum() );
+        assertEquals( 0, node.getRequestedResources().getCpu().signum() );
+    }
+
+    @Test
+    void reserveFailsIfNotEnoughLeft() {
+        final NodeWithAlloc node = TestNode.create( "reserve", "4", "4096" );
+        assertTrue( node.reserve( "a", requirements( 3, 1024 ) ) );
+        assertFalse( node.reserve( "b", requirements( 2, 1024 ) ) );
+        assertTrue( node.reserve( "b", requirements( 1, 1024 ) ) );
+        assertEquals( 0, node.getAvailableResources().getCpu().signum() );
+    }
+
+    @Test
+    void reserveAgainReplacesOwnReservation() {
+        final NodeWithAlloc node = TestNode.create( "reserveAgain", "4", "4096" );
+        assertTrue( node.reserve( "a", requirements( 3, 1024 ) ) );
+        // the pod's own reservation is available to it
+        assertTrue( node.reserve( "a", requirements( 4, 1024 ) ) );
+        assertEquals( 1, node.getRunningPods() );
+        assertEquals( 0, node.getAvailableResources().getCpu().signum() );
+    }
+
+    @Test
+    void releaseFreesResources() {
+        final NodeWithAlloc node = TestNode.create( "release", "4", "4096" );
+        assertTrue( node.reserve( "a", requirements( 4, 1024 ) ) );
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        assertTrue( node.release( "a" ) );
+        assertTrue( NodeWithAlloc.getCapacityEpoch() > epoch );
+        assertFalse( node.release( "a" ) );
+        assertTrue( node.reserve( "b", requirements( 4, 4096 ) ) );
+    }
+
+    @Test
+    void concurrentRoundsDoNotOverbook() throws Exception {
+        final NodeWithAlloc node = TestNode.create( "concurrent", "100", "102400" );
+        final int threads = 8;
+        final int podsPerThread = 50;
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        final CountDownLatch start = new CountDownLatch( 1 );
+        final List<Future<Integer>> results = new ArrayList<>();
+        for ( int t = 0; t < threads; t++ ) {
+            final int thread = t;
+            results.add( executor.submit( () -> {
+                start.await();
+                int reserved = 0;
+                for ( int i = 0; i < podsPerThread; i++ ) {
+                    final String uid = thread + "-" + i;
+                    if ( node.reserve( uid, requirements( 1, 1024 ) ) ) {
+                        reserved++;
+                        // every second pod is released again, e.g., because binding failed
+                        if ( i % 2 == 0 && node.release( uid ) ) {
+                            reserved--;
+                        }
+                    }
+                }
+                return reserved;
+            } ) );
+        }
+        start.countDown();
+        int reserved = 0;
+        for ( Future<Integer> result : results ) {
+            reserved += result.get();
+        }
+        executor.shutdown();
+        assertTrue( executor.awaitTermination( 10, TimeUnit.SECONDS ) );
+        assertTrue( reserved <= 100 );
+        assertEquals( reserved, node.getRunningPods() );
+        assertEquals( 100 - reserved, node.getAvailableResources().getCpu().intValueExact() );
+        assertEquals( 1024L * ( 100 - reserved ), node.getAvailableResources().getRam().longValueExact() );
+    }
+
+    @Test
+    void updateSkipsUnchangedNode() {
+        final NodeWithAlloc node = TestNode.create( "update", "4", "4096" );
+        final Requirements maxResources = node.getMaxResources();
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        assertFalse( node.update( TestNode.node( "update", "2", "4", "4096", Map.of(), true ) ) );
+        assertSame( maxResources, node.getMaxResources() );
+        assertEquals( "2", node.getMetadata().getResourceVersion() );
+        assertEquals( epoch, NodeWithAlloc.getCapacityEpoch() );
+    }
+
+    @Test
+    void updateDetectsChanges() {
+        final NodeWithAlloc node = TestNode.create( "updateChanged", "4", "4096" );
+        assertTrue( node.update( TestNode.node( "updateChanged", "2", "8", "4096", Map.of(), true ) ) );
+        assertEquals( 0, node.getMaxResources().getCpu().compareTo( BigDecimal.valueOf( 8 ) ) );
+        assertTrue( node.update( TestNode.node( "updateChanged", "3", "8", "4096", Map.of(), false ) ) );
+        assertFalse( node.isReady() );
+        assertTrue( node.update( TestNode.node( "updateChanged", "4", "8", "4096", Map.of( "zone", "a" ), false ) ) );
+        assertEquals( "a", node.getMetadata().getLabels().get( "zone" ) );
+    }
+
+    @Test
+    void updateRebuildsImagesOnlyIfReportedImagesChanged() {
+        final NodeWithAlloc node = TestNode.create( "updateImages", "4", "4096" );
+        final Node withImage = TestNode.node( "updateImages", "2", "4", "4096", Map.of(), true );
+        withImage.getStatus().setImages( List.of( new ContainerImage( List.of( "ubuntu" ), 100L ) ) );
+        assertTrue( node.update( withImage ) );
+        assertEquals( Map.of( "ubuntu:latest", 100L ), node.getImages() );
+        final int imagesVersion = node.getImagesVersion();
+        final Map<String, Long> images = node.getImages();
+
+        final Node sameImage = TestNode.node( "updateImages", "3", "4", "4096", Map.of(), true );
+        sameImage.getStatus().setImages( List.of( new ContainerImage( List.of( "ubuntu" ), 100L ) ) );
+        assertFalse( node.update( sameImage ) );
+        assertSame( images, node.getImages() );
+        assertEquals( imagesVersion, node.getImagesVersion() );
+
+        final Node otherImage = TestNode.node( "updateImages", "4", "4", "4096", Map.of(), true );
+        otherImage.getStatus().setImages( List.of( new ContainerImage( List.of( "alpine:3" ), 10L ) ) );
+        assertTrue( node.update( otherImage ) );
+        assertEquals( Map.of( "alpine:3", 10L ), node.getImages() );
+        assertEquals( imagesVersion + 1, node.getImagesVersion() );
+    }
+
+}
@@ -0,0 +1,61 @@
+package cws.k8s.scheduler.model;
+
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.NodeBuilder;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+
+import java.util.Map;
+
+/**
+ * Creates nodes and pods as received from the cluster
+ */
+public class TestNode {
+
+    private TestNode() {
+    }
+
+    public static NodeWithAlloc create( String name, String cpu, String memory ) {
+        return create( name, cpu, memory, Map.of() );
+    }
+
+    public static NodeWithAlloc create( String name, String cpu, String memory, Map<String, String> labels ) {
+        return new NodeWithAlloc( node( name, "1", cpu, memory, labels, true ), null );
+    }
+
+    public static Node node( String name, String resourceVersion, String cpu, String memory, Map<String, String> labels, boolean ready ) {
+        return new NodeBuilder()
+                .withNewMetadata()
+                    .withName( name )
+                    .withUid( name )
+                    .withResourceVersion( resourceVersion )
+                    .withLabels( labels )
+                .endMetadata()
+                .withNewSpec().endSpec()
+                .withNewStatus()
+                    .withAllocatable( Map.of( "cpu", new Quantity( cpu ), "memory", new Quantity( memory ) ) )
+                    .addNewCondition().withType( "Ready" ).withStatus( ready ? "True" : "False" ).endCondition()
+                .endStatus()
+                .build();
+    }
+
+    public static PodWithAge pod( String uid, String cpu, String memory ) {
+        return pod( uid, cpu, memory, Map.of() );
+    }
+
+    public static PodWithAge pod( String uid, String cpu, String memory, Map<String, String> nodeSelector ) {
+        return new PodWithAge( new PodBuilder()
+                .withNewMetadata().withName( uid ).withUid( uid ).endMetadata()
+                .withNewSpec()
+                    .withNodeSelector( nodeSelector )
+                    .addNewContainer()
+                        .withName( "main" )
+                        .withNewResources()
+                            .withRequests( Map.of( "cpu", new Quantity( cpu ), "memory", new Quantity( memory ) ) )
+                        .endResources()
+                    .endContainer()
+                .endSpec()
+                .build() );
+    }
+
+}
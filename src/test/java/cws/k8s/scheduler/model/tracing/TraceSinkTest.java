@@ -0,0 +1,118 @@
+package cws.k8s.scheduler.model.tracing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TraceSinkTest {
+
+    @TempDir
+    File dir;
+
+    private static List<String> read( File file ) throws IOException {
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader(
+                new GZIPInputStream( new FileInputStream( file ) ), StandardCharsets.UTF_8 ) ) ) {
+            return reader.lines().collect( Collectors.toList() );
+        }
+    }
+
+    private static TraceRecord record( long timeInQueue ) {
+        final TraceRecord record = new TraceRecord();
+        record.setSchedulerTimeInQueue( timeInQueue );
+        record.setSchedulerBestCost( 0.5 );
+        record.setSchedulerNodesCost( List.of( 1.0, 2.0 ) );
+        return record;
+    }
+
+    private static String[] columns( String line ) {
+        return line.split( "\t", -1 );
+    }
+
+    @Test
+    void flushesAppendToOneFile() throws IOException {
+        final File file = new File( dir, "trace.tsv.gz" );
+        final TraceSink sink = new TraceSink( file );
+        sink.add( "a", "/work/a", record( 10 ) );
+        sink.add( "b", "/work/b", new TraceRecord() );
+        sink.flush();
+        sink.add( "c", "/work/c", record( 30 ) );
+        sink.close();
+
+        final List<String> lines = read( file );
+        assertEquals( 4, lines.size() );
+        final String[] header = columns( lines.get( 0 ) );
+        assertEquals( "name", header[0] );
+        assertEquals( "work_dir", header[1] );
+        assertEquals( "scheduler_time_in_queue", header[3] );
+        assertEquals( "scheduler_nodes_cost", header[header.length - 1] );
+
+        final String[] a = columns( lines.get( 1 ) );
+        assertEquals( header.length, a.length );
+        assertEquals( "a", a[0] );
+        assertEquals( "/work/a", a[1] );
+        assertEquals( "10", a[3] );
+        assertEquals( "0.5", a[a.length - 2] );
+        assertEquals( "1.0;2.0", a[a.length - 1] );
+
+        // missing values are empty
+        final String[] b = columns( lines.get( 2 ) );
+        assertEquals( header.length, b.length );
+        assertEquals( "", b[3] );
+        assertEquals( "", b[b.length - 1] );
+
+        assertEquals( "c", columns( lines.get( 3 ) )[0] );
+    }
+
+    @Test
+    void failedWriteKeepsTheRecords() throws IOException {
+        final File missing = new File( dir, "missing" );
+        final File file = new File( missing, "trace.tsv.gz" );
+        final TraceSink sink = new TraceSink( file );
+        sink.add( "a", "/work/a", record( 10 ) );
+        sink.flush();
+        assertFalse( file.exists() );
+
+        assertTrue( missing.mkdir() );
+        sink.add( "b", "/work/b", record( 20 ) );
+        sink.flush();
+        final List<String> lines = read( file );
+        assertEquals( 3, lines.size() );
+        assertEquals( "a", columns( lines.get( 1 ) )[0] );
+        assertEquals( "b", columns( lines.get( 2 ) )[0] );
+        sink.close();
+    }
+
+    @Test
+    void fullBufferIsWrittenInTheBackground() throws InterruptedException {
+        final File file = new File( dir, "trace.tsv.gz" );
+        final TraceSink sink = new TraceSink( file );
+        for ( int i = 0; i < TraceSink.FLUSH_THRESHOLD; i++ ) {
+            sink.add( "t" + i, "/work/" + i, record( i ) );
+        }
+        List<String> lines = List.of();
+        for ( int i = 0; i < 500 && lines.size() <= TraceSink.FLUSH_THRESHOLD; i++ ) {
+            Thread.sleep( 10 );
+            try {
+                lines = read( file );
+            } catch ( IOException | UncheckedIOException e ) {
+                // not written yet or still writing
+            }
+        }
+        assertEquals( TraceSink.FLUSH_THRESHOLD + 1, lines.size() );
+        assertEquals( "t" + ( TraceSink.FLUSH_THRESHOLD - 1 ), columns( lines.get( TraceSink.FLUSH_THRESHOLD ) )[0] );
+        sink.close();
+    }
+
+}
@@ -53,7 +53,7 @@ public class MemoryScalerTest {
     }
 
     @Test
-    public void predictAfterSingleTask() {
+    public void predictAfterSingleTask() throws InterruptedException {
 
         final MemoryScaler memoryScaler = new MemoryScaler( getSchedulerConfig( 1024 * MB, 2048 * MB, "linear" ) );
         final TestTask task = new TestTask( 1, 1 );
@@ -61,13 +61,31 @@ public class MemoryScalerTest {
         memoryScaler.afterTaskFinished( task );
         final TestTask task2 = new TestTask( 2, 2 );
         assertEquals( 2 * MB, task2.getNewMemoryRequest() );
+        memoryScaler.awaitTraining();
         memoryScaler.beforeTasksScheduled( List.of(task2) );
         assertEquals( 2 * MB, task2.getNewMemoryRequest() );
 
     }
 
     @Test
-    public void predictAfterTwoTasks() {
+    public void finishedTasksAfterCloseAreIgnored() throws InterruptedException {
+        final MemoryScaler memoryScaler = new MemoryScaler( getSchedulerConfig( 1024 * MB, 2048 * MB, "linear" ) );
+        memoryScaler.close();
+        final TestTask task = new TestTask( 1, 1 );
+        task.setTaskMetrics( getTaskMetric( 1, MB ) );
+        assertDoesNotThrow( () -> memoryScaler.afterTaskFinished( task ) );
+        memoryScaler.awaitTraining();
+        // a task that finishes while the scaler is closed reaches the stopped trainer
+        memoryScaler.active = true;
+        assertDoesNotThrow( () -> memoryScaler.afterTaskFinished( task ) );
+        memoryScaler.awaitTraining();
+        final TestTask task2 = new TestTask( 2, 2 );
+        memoryScaler.beforeTasksScheduled( List.of( task2 ) );
+        assertEquals( 2 * MB, task2.getNewMemoryRequest() );
+    }
+
+    @Test
+    public void predictAfterTwoTasks() throws InterruptedException {
 
         final MemoryScaler memoryScaler = new MemoryScaler( getSchedulerConfig( 0, 2048*MB, "linear" ) );
         final TestTask task = new TestTask( 4, 1 );
@@ -80,13 +98,14 @@ public class MemoryScalerTest {
 
         final TestTask taskToPredict = new TestTask( 4, 3 );
         assertEquals( 4 * MB, taskToPredict.getNewMemoryRequest() );
+        memoryScaler.awaitTraining();
         memoryScaler.beforeTasksScheduled( List.of(taskToPredict) );
         assertEquals( 3 * MB, taskToPredict.getNewMemoryRequest() );
 
     }
 
     @Test
-    public void considerMin() {
+    public void considerMin() throws InterruptedException {
 
         final MemoryScaler memoryScaler = new MemoryScaler( getSchedulerConfig( 1024 * MB, 2048 * MB, "linear" ) );
         final TestTask task = new TestTask( 4, 1 );
@@ -99,13 +118,14 @@ public class MemoryScalerTest {
 
         final TestTask taskToPredict = new TestTask( 4, 3 );
         assertEquals( 4 * MB, taskToPredict.getNewMemoryRequest() );
+        memoryScaler.awaitTraining();
         memoryScaler.beforeTasksScheduled( List.of(taskToPredict) );
         assertEquals( 1024 * MB, taskToPredict.getNewMemoryRequest() );
 
     }
 
     @Test
-    public void considerMax() {
+    public void considerMax() throws InterruptedException {
 
         final MemoryScaler memoryScaler = new MemoryScaler( getSchedulerConfig( 0, 2 * MB, "linear" ) );
         final TestTask task = new TestTask( 4, 1 );
@@ -118,6 +138,7 @@ public class MemoryScalerTest {
 
         final TestTask taskToPredict = new TestTask( 4, 3 );
         assertEquals( 4 * MB, taskToPredict.getNewMemoryRequest() );
+        memoryScaler.awaitTraining();
         memoryScaler.beforeTasksScheduled( List.of(taskToPredict) );
         assertEquals( 2 * MB, taskToPredict.getNewMemoryRequest() );
 
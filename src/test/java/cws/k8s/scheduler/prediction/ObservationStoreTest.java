@@ -0,0 +1,62 @@
+package cws.k8s.scheduler.prediction;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObservationStoreTest {
+
+    @Test
+    void windowKeepsLatest() {
+        final ObservationStore store = new ObservationStore( 3, ObservationStore.Sampling.WINDOW );
+        final List<Double> removed = new ArrayList<>();
+        store.setRemovalListener( ( index, x, y ) -> {
+            assertEquals( x, store.getX( index ) );
+            removed.add( x );
+        } );
+        for ( int i = 0; i < 5; i++ ) {
+            assertTrue( store.add( i, 2 * i ) >= 0 );
+        }
+        assertEquals( 3, store.size() );
+        assertEquals( 5, store.getSeen() );
+        assertEquals( List.of( 0d, 1d ), removed );
+        double sum = 0;
+        for ( int i = 0; i < store.size(); i++ ) {
+            assertEquals( 2 * store.getX( i ), store.getY( i ) );
+            sum += store.getX( i );
+        }
+        assertEquals( 2 + 3 + 4, sum );
+    }
+
+    @Test
+    void reservoirIsBounded() {
+        final ObservationStore store = new ObservationStore( 100, ObservationStore.Sampling.RESERVOIR );
+        int stored = 0;
+        for ( int i = 0; i < 10_000; i++ ) {
+            if ( store.add( i, i ) >= 0 ) {
+                stored++;
+            }
+        }
+        assertEquals( 100, store.size() );
+        assertTrue( stored < 10_000 );
+        double mean = 0;
+        for ( int i = 0; i < store.size(); i++ ) {
+            mean += store.getX( i ) / store.size();
+        }
+        // a uniform sample of 0..9999
+        assertEquals( 5000, mean, 1000 );
+    }
+
+    @Test
+    void unbounded() {
+        final ObservationStore store = new ObservationStore( 0, ObservationStore.Sampling.WINDOW );
+        for ( int i = 0; i < 1000; i++ ) {
+            store.add( i, i );
+        }
+        assertEquals( 1000, store.size() );
+    }
+
+}
@@ -5,8 +5,6 @@ import cws.k8s.scheduler.prediction.predictor.ConstantNumberPredictor;
 import cws.k8s.scheduler.prediction.predictor.TestTask;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class MaxOffsetTest {
@@ -22,7 +20,10 @@ class MaxOffsetTest {
                 new TestTask( 1d,1d )
         };
 
-        assertEquals( 3, maxOffset.getOffset( List.of( tasks ) ) );
+        for ( Task task : tasks ) {
+            maxOffset.addTask( task );
+        }
+        assertEquals( 3, maxOffset.determineOffset() );
 
     }
 }
\ No newline at end of file
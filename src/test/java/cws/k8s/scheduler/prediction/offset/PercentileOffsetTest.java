@@ -5,8 +5,6 @@ import cws.k8s.scheduler.prediction.predictor.ConstantNumberPredictor;
 import cws.k8s.scheduler.prediction.predictor.TestTask;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class PercentileOffsetTest {
@@ -22,10 +20,20 @@ class PercentileOffsetTest {
         }
     }
 
+    /**
+     * Adds the tasks to a new {@link PercentileOffset}, so the residuals are added in the order of the tasks
+     */
+    private double offset( double percentileValue, Task[] tasks ) {
+        final PercentileOffset percentileOffset = new PercentileOffset( new ConstantNumberPredictor( t -> ((TestTask) t).y , 0 ), percentileValue );
+        for ( Task task : tasks ) {
+            percentileOffset.addTask( task );
+        }
+        return percentileOffset.determineOffset();
+    }
+
     @Test
     void getOffset50Percentile4Values() {
 
-        final PercentileOffset percentileOffset = new PercentileOffset( new ConstantNumberPredictor( t -> ((TestTask) t).y , 0 ), 50);
         Task[] tasks = {
                 new TestTask( 1d,1d ),
                 new TestTask( 1d,2d ),
@@ -35,7 +43,7 @@ class PercentileOffsetTest {
 
         for ( int i = 0; i < 100; i++ ) {
             shuffleArray( tasks );
-            assertEquals( 2.5, percentileOffset.getOffset( List.of( tasks ) ) );
+            assertEquals( 2.5, offset( 50, tasks ), 0.00001 );
         }
 
     }
@@ -43,7 +51,6 @@ class PercentileOffsetTest {
     @Test
     void getOffset75Percentile4Values() {
 
-        final PercentileOffset percentileOffset = new PercentileOffset( new ConstantNumberPredictor( t -> ((TestTask) t).y , 0 ), 75);
         Task[] tasks = {
                 new TestTask( 1d,1d ),
                 new TestTask( 1d,2d ),
@@ -53,7 +60,8 @@ class PercentileOffsetTest {
 
         for ( int i = 0; i < 100; i++ ) {
             shuffleArray( tasks );
-            assertEquals( 3.75, percentileOffset.getOffset( List.of( tasks ) ) );
+            // the sketch interpolates between the values as centres of their ranks
+            assertEquals( 3.5, offset( 75, tasks ), 0.00001 );
         }
 
     }
@@ -61,7 +69,6 @@ class PercentileOffsetTest {
     @Test
     void getOffset50Percentile5Values() {
 
-        final PercentileOffset percentileOffset = new PercentileOffset( new ConstantNumberPredictor( t -> ((TestTask) t).y , 0 ), 50);
         Task[] tasks = {
                 new TestTask( 1d,1d ),
                 new TestTask( 1d,2d ),
@@ -72,7 +79,7 @@ class PercentileOffsetTest {
 
         for ( int i = 0; i < 100; i++ ) {
             shuffleArray( tasks );
-            assertEquals( 2, percentileOffset.getOffset( List.of( tasks ) ) );
+            assertEquals( 2, offset( 50, tasks ), 0.00001 );
         }
 
     }
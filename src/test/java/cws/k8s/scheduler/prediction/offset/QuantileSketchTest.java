@@ -0,0 +1,46 @@
+package cws.k8s.scheduler.prediction.offset;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    @Test
+    void emptySketch() {
+        assertTrue( Double.isNaN( new QuantileSketch().quantile( 0.5 ) ) );
+    }
+
+    @Test
+    void fewValues() {
+        final QuantileSketch sketch = new QuantileSketch();
+        for ( double value : new double[]{ 1, 2, 4, 3 } ) {
+            sketch.add( value );
+        }
+        assertEquals( 2.5, sketch.quantile( 0.5 ), 0.00001 );
+        assertEquals( 1, sketch.quantile( 0 ) );
+        assertEquals( 4, sketch.quantile( 1 ) );
+    }
+
+    @Test
+    void manyValues() {
+        final Random random = new Random( 42 );
+        final QuantileSketch sketch = new QuantileSketch();
+        final QuantileSketch other = new QuantileSketch();
+        final double[] values = new double[100_000];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = random.nextGaussian();
+            ( i % 2 == 0 ? sketch : other ).add( values[i] );
+        }
+        sketch.merge( other );
+        Arrays.sort( values );
+        assertEquals( values.length, sketch.size() );
+        for ( double q : new double[]{ 0.01, 0.1, 0.5, 0.9, 0.95, 0.99 } ) {
+            assertEquals( values[(int) ( q * values.length )], sketch.quantile( q ), 0.01 );
+        }
+    }
+
+}
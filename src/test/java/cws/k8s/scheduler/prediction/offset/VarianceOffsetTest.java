@@ -1,20 +1,35 @@
 package cws.k8s.scheduler.prediction.offset;
 
+import cws.k8s.scheduler.prediction.predictor.ConstantNumberPredictor;
+import cws.k8s.scheduler.prediction.predictor.TestTask;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class VarianceOffsetTest {
 
-    @Test
-    void calculateVariance() {
-        final VarianceOffset varianceOffset = new VarianceOffset( null );
-        double[] values = { 1, 1, 3, 2 };
-        assertEquals( 0.91666667, varianceOffset.calculateVariance( values, 4 ), 0.00001 );
+    private static VarianceOffset varianceOffset( double... residuals ) {
+        final VarianceOffset varianceOffset = new VarianceOffset( new ConstantNumberPredictor( t -> ((TestTask) t).y, 0 ) );
+        for ( double residual : residuals ) {
+            varianceOffset.addTask( new TestTask( 1d, residual ) );
+        }
+        return varianceOffset;
+    }
 
-        values = new double[]{ 1, 1, 3, 1 };
-        assertEquals( 1, varianceOffset.calculateVariance( values, 4 ), 0.00001 );
+    @Test
+    void streamingVariance() {
+        assertEquals( 0.91666667, varianceOffset( 1, 1, 3, 2 ).determineOffset(), 0.00001 );
+        assertEquals( 1, varianceOffset( 1, 1, 3, 1 ).determineOffset(), 0.00001 );
+        assertEquals( 1 + 1/3.0, varianceOffset( 1, 1, 3 ).determineOffset(), 0.00001 );
+        assertEquals( 0, varianceOffset( 1 ).determineOffset() );
+    }
 
-        assertEquals( 1 + 1/3.0, varianceOffset.calculateVariance( values, 3 ), 0.00001 );
+    @Test
+    void standardDeviationIsScaled() {
+        final StandardDeviationOffset offset = new StandardDeviationOffset( 2, new ConstantNumberPredictor( t -> ((TestTask) t).y, 0 ) );
+        for ( double residual : new double[]{ 1, 1, 3, 1 } ) {
+            offset.addTask( new TestTask( 1d, residual ) );
+        }
+        assertEquals( 2, offset.determineOffset(), 0.00001 );
     }
-}
\ No newline at end of file
+}
@@ -5,8 +5,6 @@ import cws.k8s.scheduler.prediction.predictor.ConstantNumberPredictor;
 import cws.k8s.scheduler.prediction.predictor.TestTask;
 import org.junit.jupiter.api.Test;
 
-import java.util.List;
-
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class ZeroOffsetTest {
@@ -22,7 +20,10 @@ class ZeroOffsetTest {
                 new TestTask( 1d,1d )
         };
 
-        assertEquals( 0, zeroOffset.getOffset( List.of( tasks ) ) );
+        for ( Task task : tasks ) {
+            zeroOffset.addTask( task );
+        }
+        assertEquals( 0, zeroOffset.determineOffset() );
 
     }
 }
\ No newline at end of file
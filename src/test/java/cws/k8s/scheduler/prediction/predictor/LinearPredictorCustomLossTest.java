@@ -0,0 +1,106 @@
+package cws.k8s.scheduler.prediction.predictor;
+
+import cws.k8s.scheduler.prediction.ObservationStore;
+import cws.k8s.scheduler.prediction.predictor.loss.UnequalLossFunction;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LinearPredictorCustomLossTest {
+
+    private static final double GB = 1024 * 1024 * 1024;
+
+    @Test
+    public void testOneTask() {
+        LinearPredictorCustomLoss lp = getLinearPredictor();
+        lp.addTask( new TestTask( GB, GB ) );
+        assertNull( lp.queryPrediction( new TestTask( 4 * GB, 4 * GB ) ) );
+    }
+
+    @Test
+    public void testSameInput() {
+        LinearPredictorCustomLoss lp = getLinearPredictor();
+        lp.addTask( new TestTask( GB, GB ) );
+        lp.addTask( new TestTask( GB, 2 * GB ) );
+        assertNull( lp.queryPrediction( new TestTask( 4 * GB, 4 * GB ) ) );
+    }
+
+    @Test
+    public void testPredictLine() {
+        LinearPredictorCustomLoss lp = getLinearPredictor();
+        lp.addTask( new TestTask( GB, GB ) );
+        lp.addTask( new TestTask( 2 * GB, 2 * GB ) );
+        lp.addTask( new TestTask( 3 * GB, 3 * GB ) );
+        assertEquals( 4 * GB, lp.queryPrediction( new TestTask( 4 * GB, 4 * GB ) ), 1 );
+    }
+
+    @Test
+    public void testPredictsAboveSquaredLoss() {
+        final Random random = new Random( 42 );
+        LinearPredictorCustomLoss custom = getLinearPredictor();
+        LinearPredictorSquaredLoss squared = new LinearPredictorSquaredLoss( t -> ((TestTask) t).x, t -> ((TestTask) t).y );
+        for ( int i = 0; i < 1000; i++ ) {
+            final double x = random.nextDouble() * 10 * GB;
+            final TestTask task = new TestTask( x, x / 2 + random.nextGaussian() * GB );
+            custom.addTask( task );
+            squared.addTask( task );
+        }
+        final TestTask query = new TestTask( 5 * GB, 0 );
+        assertTrue( custom.queryPrediction( query ) > squared.queryPrediction( query ) + GB );
+    }
+
+    @Test
+    public void testMinimizesLoss() {
+        final Random random = new Random( 42 );
+        final UnequalLossFunction lossFunction = new UnequalLossFunction( 0.02 );
+        for ( int i = 0; i < 5000; i++ ) {
+            final double x = random.nextDouble() * 10;
+            lossFunction.addPoint( x, 2 + x / 2 + random.nextGaussian() );
+            // query after every point to also use the sums between full fits
+            lossFunction.getParameters();
+        }
+        final double[] parameters = lossFunction.getParameters();
+        final double loss = lossFunction.value( parameters );
+        for ( double intercept = -0.01; intercept <= 0.01; intercept += 0.005 ) {
+            for ( double slope = -0.001; slope <= 0.001; slope += 0.0005 ) {
+                final double[] neighbour = { parameters[0] + intercept, parameters[1] + slope };
+                assertTrue( loss <= lossFunction.value( neighbour ) * ( 1 + 1e-6 ) );
+            }
+        }
+    }
+
+    @Test
+    public void testEvictsFromTheSideThePointWasAddedTo() {
+        final double lambda = 0.5;
+        final UnequalLossFunction lossFunction = new UnequalLossFunction( lambda, new ObservationStore( 3, ObservationStore.Sampling.WINDOW ) );
+        lossFunction.addPoint( 0, 0 );
+        lossFunction.addPoint( 1, 1 );
+        lossFunction.addPoint( 2, 2 );
+        // all points are on the line y = x, they are added below it
+        assertArrayEquals( new double[]{ 0, 1 }, lossFunction.getParameters(), 1e-9 );
+
+        lossFunction.addPoint( 3, 13 );
+        final double[] steep = lossFunction.getParameters();
+        // (1, 1) is above the new line, but was added below the old one
+        assertTrue( 1 > steep[0] + steep[1] );
+
+        lossFunction.addPoint( 4, 4 );
+        // (2, 2) and (4, 4) below, (3, 13) above the line
+        final double w = 2 * lambda + 1;
+        final double wx = lambda * ( 2 + 4 ) + 3;
+        final double wxx = lambda * ( 4 + 16 ) + 9;
+        final double wy = lambda * ( 2 + 4 ) + 13;
+        final double wxy = lambda * ( 4 + 16 ) + 39;
+        final double slope = ( w * wxy - wx * wy ) / ( w * wxx - wx * wx );
+        assertArrayEquals( new double[]{ ( wy - slope * wx ) / w, slope }, lossFunction.getParameters(), 1e-9 );
+    }
+
+    @NotNull
+    private static LinearPredictorCustomLoss getLinearPredictor() {
+        return new LinearPredictorCustomLoss( t -> ((TestTask) t).x, t -> ((TestTask) t).y );
+    }
+
+}
@@ -1,10 +1,13 @@
 package cws.k8s.scheduler.prediction.predictor;
 
+import cws.k8s.scheduler.prediction.ObservationStore;
 import cws.k8s.scheduler.prediction.Predictor;
 import lombok.extern.slf4j.Slf4j;
 import org.jetbrains.annotations.NotNull;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
@@ -111,6 +114,50 @@ public class PolynomialPredictorTest {
         }
     }
 
+    @Test
+    public void fitAfterWindowEviction() {
+        final PolynomialPredictor lp = new PolynomialPredictor( t -> ((TestTask) t).x, t -> ((TestTask) t).y, 1,
+                new ObservationStore( 10, ObservationStore.Sampling.WINDOW ) );
+        for ( int i = 0; i < 10; i++ ) {
+            lp.addTask( new TestTask( 1000d + i, 2 * ( 1000d + i ) ) );
+        }
+        assertEquals( 1009d, lp.getScale(), 0 );
+        for ( int i = 0; i < 10; i++ ) {
+            lp.addTask( new TestTask( i, 3d * i + 1 ) );
+        }
+        // all large inputs were evicted, the sums were rebuilt with a smaller scale
+        assertEquals( 9d, lp.getScale(), 0 );
+        assertEquals( 31d, lp.queryPrediction( new TestTask( 10d, 0d ) ), 0.0001 );
+        assertEquals( 1d, lp.queryPrediction( new TestTask( 0d, 0d ) ), 0.0001 );
+    }
+
+    @Test
+    public void fitAcrossManyEvictions() {
+        final PolynomialPredictor lp = new PolynomialPredictor( t -> ((TestTask) t).x, t -> ((TestTask) t).y, 2,
+                new ObservationStore( 50, ObservationStore.Sampling.WINDOW ) );
+        final Random random = new Random( 1 );
+        for ( int i = 0; i < 10_000; i++ ) {
+            final double x = random.nextDouble() * ( i < 5_000 ? 1e6 : 100 );
+            lp.addTask( new TestTask( x, getY( x ) ) );
+        }
+        assertEquals( 100d, lp.getScale(), 1 );
+        for ( int x = 0; x < 100; x++ ) {
+            assertEquals( getY( x ), lp.queryPrediction( new TestTask( x, 0d ) ), 0.001 );
+        }
+    }
+
+    @Test
+    public void rescaleToLargerInputs() {
+        final PolynomialPredictor lp = (PolynomialPredictor) getPolyPredictor( 2 );
+        for ( double x : new double[]{ 1, 2, 3, 100, 200, 1000 } ) {
+            lp.addTask( new TestTask( x, getY( x ) ) );
+        }
+        assertEquals( 1000d, lp.getScale(), 0 );
+        for ( double x : new double[]{ 2, 150, 500 } ) {
+            assertEquals( 1, lp.queryPrediction( new TestTask( x, 0d ) ) / getY( x ), 1e-6 );
+        }
+    }
+
     private double getY( double x ){
         return 5 + 1.5 * x + 2 * x * x;
     }
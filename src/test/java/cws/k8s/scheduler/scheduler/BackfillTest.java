@@ -0,0 +1,157 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.model.NodeMap;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.State;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.scheduler.prioritize.TestTask;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackfillTest {
+
+    private final NodeWithAlloc n1 = TestNode.create( "backfill-1", "8", "8192" );
+    private final NodeWithAlloc n2 = TestNode.create( "backfill-2", "8", "8192" );
+    private final Backfill backfill;
+
+    BackfillTest() {
+        final Scheduler scheduler = Mockito.mock( Scheduler.class );
+        Mockito.when( scheduler.affinitiesMatch( Mockito.any(), Mockito.any() ) ).thenReturn( true );
+        backfill = new Backfill( scheduler );
+    }
+
+    /**
+     * @param runtime the predicted runtime in ms, negative if unknown
+     */
+    private static Task task( String uid, int cpus, long runtime ) {
+        final Task task = new TestTask();
+        task.setPod( TestNode.pod( uid, String.valueOf( cpus ), "1024" ) );
+        task.setPlanedCpuInCores( cpus, 0 );
+        task.setPlannedMemoryInBytes( 1024, 0 );
+        task.setPredictedRuntime( runtime, 1 );
+        return task;
+    }
+
+    /**
+     * @return the resources left after the node assignment
+     */
+    private Map<NodeWithAlloc, Requirements> available( int cpusN1, int cpusN2 ) {
+        final Map<NodeWithAlloc, Requirements> available = new NodeMap<>();
+        available.put( n1, new Requirements( BigDecimal.valueOf( cpusN1 ), BigDecimal.valueOf( 4096 ) ) );
+        available.put( n2, new Requirements( BigDecimal.valueOf( cpusN2 ), BigDecimal.valueOf( 4096 ) ) );
+        return available;
+    }
+
+    /**
+     * Lets the backfill place the task and binds it
+     */
+    private void run( Task task, NodeWithAlloc node ) {
+        backfill.apply( 0, List.of( task ), List.of( new NodeTaskAlignment( node, task ) ), available( 4, 4 ) );
+        task.setNode( node );
+        task.getState().setState( State.SCHEDULED );
+    }
+
+    private static List<String> placements( List<NodeTaskAlignment> alignment ) {
+        final List<String> placements = new ArrayList<>();
+        for ( NodeTaskAlignment nodeTaskAlignment : alignment ) {
+            placements.add( nodeTaskAlignment.task.getPod().getMetadata().getUid() + "@" + nodeTaskAlignment.node.getName() );
+        }
+        return placements;
+    }
+
+    @Test
+    void reservesTheNodeThatIsFreeSoonest() {
+        run( task( "running-1", 5, 10_000 ), n1 );
+        run( task( "running-2", 5, 100_000 ), n2 );
+        final Task high = task( "high", 1, -1 );
+        final Task blocked = task( "blocked", 6, 1000 );
+        final Task shortTask = task( "short", 1, 1000 );
+        final Task longTask = task( "long", 1, 100_000 );
+        final Task unknown = task( "unknown", 1, -1 );
+
+        final List<NodeTaskAlignment> result = backfill.apply( 0, List.of( high, blocked, shortTask, longTask, unknown ),
+                List.of( new NodeTaskAlignment( n1, high ), new NodeTaskAlignment( n1, shortTask ),
+                        new NodeTaskAlignment( n1, longTask ), new NodeTaskAlignment( n2, unknown ) ),
+                available( 0, 2 ) );
+
+        // tasks of higher priority keep the reserved node, lower ones only if they finish before the reservation starts
+        assertEquals( List.of( "high@backfill-1", "short@backfill-1", "unknown@backfill-2" ), placements( result ) );
+        assertTrue( backfill.isReserved( n1 ) );
+        assertFalse( backfill.isReserved( n2 ) );
+    }
+
+    @Test
+    void blockedTaskReplacesOnlyAsManyLowerTasksAsNeeded() {
+        final Task high = task( "high", 1, 1000 );
+        final Task other = task( "other", 7, 1000 );
+        final Task blocked = task( "blocked", 2, 1000 );
+        final Task lower1 = task( "lower1", 1, 1000 );
+        final Task lower2 = task( "lower2", 3, 1000 );
+        final Task lower3 = task( "lower3", 3, 1000 );
+
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        final List<NodeTaskAlignment> result = backfill.apply( 0, List.of( high, other, blocked, lower1, lower2, lower3 ),
+                List.of( new NodeTaskAlignment( n1, high ), new NodeTaskAlignment( n2, other ), new NodeTaskAlignment( n1, lower1 ),
+                        new NodeTaskAlignment( n1, lower2 ), new NodeTaskAlignment( n1, lower3 ) ),
+                available( 0, 1 ) );
+
+        assertEquals( List.of( "blocked@backfill-1", "high@backfill-1", "other@backfill-2", "lower1@backfill-1", "lower2@backfill-1" ),
+                placements( result ) );
+        assertFalse( backfill.isReserved( n1 ) );
+        // classes parked because of lower3 are checked again
+        assertTrue( NodeWithAlloc.getCapacityEpoch() > epoch );
+    }
+
+    @Test
+    void blockedTaskIsPlacedIfItFitsNow() {
+        final Task blocked = task( "blocked", 4, 1000 );
+        final Task other = task( "other", 1, 1000 );
+
+        final List<NodeTaskAlignment> result = backfill.apply( 0, List.of( blocked, other ),
+                List.of( new NodeTaskAlignment( n2, other ) ), available( 4, 7 ) );
+
+        assertEquals( List.of( "blocked@backfill-1", "other@backfill-2" ), placements( result ) );
+        assertFalse( backfill.isReserved( n1 ) );
+    }
+
+    @Test
+    void overrunningTaskIsNoFreeResource() throws InterruptedException {
+        run( task( "overrunning", 7, 1 ), n1 );
+        Thread.sleep( 20 );
+        final Task blocked = task( "blocked", 8, 1000 );
+        final Task lower = task( "lower", 1, 1000 );
+
+        final List<NodeTaskAlignment> result = backfill.apply( 0, List.of( blocked, lower ),
+                List.of( new NodeTaskAlignment( n1, lower ) ), available( 0, 0 ) );
+
+        // the blocked task does not fit yet, it waits for the overrunning task instead of being placed
+        assertTrue( placements( result ).isEmpty() );
+        assertTrue( backfill.isReserved( n1 ) );
+    }
+
+    @Test
+    void eachShardKeepsItsReservation() {
+        run( task( "running", 8, 10_000 ), n1 );
+        final Task blocked = task( "blocked", 8, 1000 );
+        backfill.apply( 0, List.of( blocked ), List.of(), available( 0, 0 ) );
+        assertTrue( backfill.isReserved( n1 ) );
+
+        final Task other = task( "other", 1, 1000 );
+        backfill.apply( 1, List.of( other ), List.of( new NodeTaskAlignment( n2, other ) ), available( 0, 7 ) );
+        assertTrue( backfill.isReserved( n1 ) );
+
+        backfill.apply( 0, List.of( blocked ), List.of( new NodeTaskAlignment( n2, blocked ) ), available( 0, 0 ) );
+        assertFalse( backfill.isReserved( n1 ) );
+    }
+
+}
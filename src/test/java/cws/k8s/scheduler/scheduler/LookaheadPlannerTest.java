@@ -0,0 +1,147 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.scheduler.prioritize.TestTask;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookaheadPlannerTest {
+
+    private final Scheduler scheduler = Mockito.mock( Scheduler.class );
+
+    private LookaheadPlanner planner( int limit, NodeWithAlloc... nodes ) {
+        Mockito.when( scheduler.getNodeList() ).thenReturn( List.of( nodes ) );
+        Mockito.when( scheduler.affinitiesMatch( Mockito.any(), Mockito.any() ) ).thenReturn( true );
+        return new LookaheadPlanner( scheduler, limit );
+    }
+
+    private static Task task( String uid, int cpus ) {
+        final Task task = new TestTask();
+        task.setPod( TestNode.pod( uid, String.valueOf( cpus ), "1024" ) );
+        task.setPlanedCpuInCores( cpus, 0 );
+        task.setPlannedMemoryInBytes( 1024, 0 );
+        return task;
+    }
+
+    /**
+     * Reserves and releases resources on the node, so the capacity epoch changes
+     */
+    private static void releaseSomething( NodeWithAlloc node ) {
+        assertTrue( node.reserve( "other", new Requirements( BigDecimal.ONE, BigDecimal.valueOf( 1024 ) ) ) );
+        assertTrue( node.release( "other" ) );
+    }
+
+    @Test
+    void replanInRegistrationOrderUpToTheLimit() {
+        final NodeWithAlloc node = TestNode.create( "lookahead-replan", "4", "4096" );
+        final LookaheadPlanner planner = planner( 2, node );
+        final Task t1 = task( "t1", 3 );
+        final Task t2 = task( "t2", 2 );
+        final Task t3 = task( "t3", 1 );
+        final Task t4 = task( "t4", 1 );
+
+        planner.replan( () -> new ArrayList<>( List.of( t4, t3, t2, t1 ) ) );
+        // t2 does not fit next to t1, t4 exceeds the limit
+        assertNull( planner.take( t2, true ) );
+        assertNull( planner.take( t4, true ) );
+        assertEquals( node, planner.take( t1, true ) );
+        assertNull( planner.take( t1, true ) );
+
+        // the resources of t1's plan are free again
+        planner.plan( t2 );
+        planner.plan( t4 );
+        assertEquals( node, planner.take( t2, true ) );
+        assertNull( planner.take( t4, true ) );
+        assertEquals( node, planner.take( t3, true ) );
+
+        planner.replan( () -> new ArrayList<>( List.of( t4 ) ) );
+        planner.discard( t4 );
+        assertNull( planner.take( t4, true ) );
+    }
+
+    @Test
+    void planUsesTheResourcesLeftByOtherPlans() {
+        final NodeWithAlloc small = TestNode.create( "lookahead-small", "2", "4096" );
+        final NodeWithAlloc large = TestNode.create( "lookahead-large", "4", "4096" );
+        final LookaheadPlanner planner = planner( 10, small, large );
+        final Task t1 = task( "t1", 3 );
+        final Task t2 = task( "t2", 2 );
+        final Task t3 = task( "t3", 1 );
+
+        planner.plan( t1 );
+        planner.plan( t2 );
+        planner.plan( t3 );
+        assertEquals( large, planner.take( t1, true ) );
+        assertEquals( small, planner.take( t2, true ) );
+        assertEquals( large, planner.take( t3, true ) );
+    }
+
+    @Test
+    void releasedResourcesGoToWaitingTasksFirst() {
+        final NodeWithAlloc node = TestNode.create( "lookahead-epoch", "4", "4096" );
+        final LookaheadPlanner planner = planner( 10, node );
+        final Task t1 = task( "t1", 1 );
+        final Task t2 = task( "t2", 1 );
+        final Task t3 = task( "t3", 1 );
+
+        planner.replan( () -> new ArrayList<>( List.of( t1, t2, t3 ) ) );
+        assertEquals( node, planner.take( t1, false ) );
+        releaseSomething( node );
+        assertNull( planner.take( t2, false ) );
+        assertEquals( node, planner.take( t3, true ) );
+    }
+
+    @Test
+    void replanIsBounded() {
+        final NodeWithAlloc node = TestNode.create( "lookahead-bounded", "4", "4096" );
+        final LookaheadPlanner planner = planner( 1, node );
+        final List<Task> upcoming = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ ) {
+            upcoming.add( task( "large" + i, 8 ) );
+        }
+        final Task small = task( "small", 1 );
+        upcoming.add( small );
+
+        // only a few tasks are tried for the single plan
+        planner.replan( () -> new ArrayList<>( upcoming ) );
+        assertNull( planner.take( small, true ) );
+
+        // nothing changed, the upcoming tasks are not even requested
+        planner.replan( () -> fail( "replanned without a capacity change" ) );
+
+        NodeWithAlloc.advanceCapacityEpoch();
+        planner.replan( () -> new ArrayList<>( List.of( small ) ) );
+        assertEquals( node, planner.take( small, true ) );
+    }
+
+    @Test
+    void invalidPlansAreNotTaken() {
+        final NodeWithAlloc node = TestNode.create( "lookahead-invalid", "4", "4096" );
+        final LookaheadPlanner planner = planner( 10, node );
+        final Task t1 = task( "t1", 1 );
+        final Task t2 = task( "t2", 1 );
+
+        planner.replan( () -> new ArrayList<>( List.of( t1, t2 ) ) );
+        Mockito.when( scheduler.affinitiesMatch( Mockito.eq( t1.getPod() ), Mockito.any() ) ).thenReturn( false );
+        assertNull( planner.take( t1, true ) );
+        Mockito.when( scheduler.isHeldBack( node ) ).thenReturn( true );
+        assertNull( planner.take( t2, true ) );
+
+        // held back nodes are not planned
+        NodeWithAlloc.advanceCapacityEpoch();
+        planner.replan( () -> new ArrayList<>( List.of( t2 ) ) );
+        Mockito.when( scheduler.isHeldBack( node ) ).thenReturn( false );
+        assertNull( planner.take( t2, true ) );
+    }
+
+}
@@ -0,0 +1,37 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.scheduler.nodeassign.FairAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.nodeassign.SamplingNodeAssign;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerFactoryTest {
+
+    private static void assertSampling( String name, int samples, SamplingNodeAssign.Headroom headroom ) {
+        final NodeAssign nodeAssign = SchedulerFactory.getNodeAssign( name );
+        final SamplingNodeAssign sampling = assertInstanceOf( SamplingNodeAssign.class, nodeAssign, name );
+        assertEquals( samples, sampling.getSamples(), name );
+        assertEquals( headroom, sampling.getHeadroom(), name );
+    }
+
+    @Test
+    void parsesSamplingNodeAssign() {
+        assertSampling( "p2c", 2, SamplingNodeAssign.Headroom.BALANCED );
+        assertSampling( "P2C_CPU", 2, SamplingNodeAssign.Headroom.CPU );
+        assertSampling( "p2c_ram", 2, SamplingNodeAssign.Headroom.RAM );
+        assertSampling( "sample1", 1, SamplingNodeAssign.Headroom.BALANCED );
+        assertSampling( "sample16_cpu", 16, SamplingNodeAssign.Headroom.CPU );
+        assertSampling( "sample3_ram", 3, SamplingNodeAssign.Headroom.RAM );
+    }
+
+    @Test
+    void rejectsUnknownNodeAssign() {
+        for ( String name : new String[]{ "sample", "sample0", "sample01", "sample-2", "p3c", "p2c_gpu", "_cpu", "p2c_cpu_ram" } ) {
+            assertNull( SchedulerFactory.getNodeAssign( name ), name );
+        }
+        assertInstanceOf( FairAssign.class, SchedulerFactory.getNodeAssign( "fair" ) );
+    }
+
+}
@@ -0,0 +1,114 @@
+package cws.k8s.scheduler.scheduler;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.scheduler.nodeassign.FairAssign;
+import cws.k8s.scheduler.scheduler.prioritize.RankMaxPrioritize;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerTest {
+
+    private static final long GB = 1L << 30;
+
+    private final TestCluster cluster = new TestCluster( 4, 8, 32 * GB );
+
+    @AfterEach
+    void close() {
+        cluster.close();
+    }
+
+    private static Task task( Scheduler scheduler, int id ) {
+        synchronized ( scheduler.tasksById ) {
+            return scheduler.tasksById.get( id );
+        }
+    }
+
+    @Test
+    void tasksOfAProcessShareAShard() {
+        final Scheduler scheduler = cluster.scheduler( "shards", new RankMaxPrioritize(), new FairAssign(),
+                Map.of( "schedulingShards", 3 ), "a", "b", "c", "d" );
+        final String[] processes = { "a", "b", "c", "d" };
+        for ( int id = 0; id < 20; id++ ) {
+            cluster.addTask( scheduler, id, processes[id % processes.length], 1, GB );
+        }
+        final Set<Integer> shardsOfFirstThree = new HashSet<>();
+        for ( int id = 0; id < 20; id++ ) {
+            final int shard = scheduler.getShardIndex( task( scheduler, id ) );
+            assertTrue( shard >= 0 && shard < 3 );
+            assertEquals( scheduler.getShardIndex( task( scheduler, id % processes.length ) ), shard );
+            if ( id < 3 ) {
+                shardsOfFirstThree.add( shard );
+            }
+        }
+        // the processes have the uids 0, 1, 2
+        assertEquals( 3, shardsOfFirstThree.size() );
+    }
+
+    @Test
+    void shardsScheduleAllTasks() throws InterruptedException {
+        final Scheduler scheduler = cluster.scheduler( "shardsRun", new RankMaxPrioritize(), new FairAssign(),
+                Map.of( "schedulingShards", 3 ), "a", "b", "c", "d" );
+        final int tasks = 40;
+        final CountDownLatch allBound = new CountDownLatch( tasks );
+        final Map<String, String> nodeByPod = new ConcurrentHashMap<>();
+        cluster.client.setPodBoundListener( ( pod, node ) -> {
+            assertNull( nodeByPod.put( pod.getMetadata().getName(), node ) );
+            allBound.countDown();
+        } );
+        final String[] processes = { "a", "b", "c", "d" };
+        for ( int id = 0; id < tasks; id++ ) {
+            cluster.submit( scheduler, id, processes[id % processes.length], 1, GB, 1000 );
+        }
+        assertTrue( allBound.await( 60, TimeUnit.SECONDS ) );
+        assertEquals( tasks, nodeByPod.size() );
+    }
+
+    @Test
+    void releasedResourcesStartARoundOnlyIfATaskCanUseThem() throws InterruptedException {
+        final AtomicInteger rounds = new AtomicInteger();
+        final RankMaxPrioritize prioritize = new RankMaxPrioritize();
+        final Scheduler scheduler = cluster.scheduler( "released", tasks -> {
+            rounds.incrementAndGet();
+            prioritize.sortTasks( tasks );
+        }, new FairAssign(), Map.of(), "a" );
+        final Requirements all = new Requirements( BigDecimal.valueOf( 8 ), BigDecimal.valueOf( 32 * GB ) );
+        for ( NodeWithAlloc node : scheduler.getNodeList() ) {
+            assertTrue( node.reserve( "blocker-" + node.getName(), all ) );
+        }
+        final CountDownLatch bound = new CountDownLatch( 1 );
+        cluster.client.setPodBoundListener( ( pod, node ) -> bound.countDown() );
+        cluster.submit( scheduler, 0, "a", 1, GB, 1000 );
+        while ( rounds.get() == 0 ) {
+            Thread.sleep( 10 );
+        }
+        Thread.sleep( 100 );
+
+        // no node can take the task, the rounds are skipped
+        final NodeWithAlloc node = scheduler.getNodeList().get( 0 );
+        final int before = rounds.get();
+        for ( int i = 0; i < 20; i++ ) {
+            scheduler.informResourceChange( node );
+            Thread.sleep( 10 );
+        }
+        assertTrue( rounds.get() - before <= 1 );
+        assertEquals( 1, bound.getCount() );
+
+        assertTrue( node.release( "blocker-" + node.getName() ) );
+        scheduler.informResourceChange( node );
+        assertTrue( bound.await( 2, TimeUnit.SECONDS ) );
+    }
+
+}
@@ -0,0 +1,114 @@
+package cws.k8s.scheduler.scheduler;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.SchedulerConfig;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.scheduler.nodeassign.NodeAssign;
+import cws.k8s.scheduler.scheduler.prioritize.Prioritize;
+import cws.k8s.scheduler.simulation.SimulatedKubernetesClient;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Schedulers on a simulated cluster, pods and tasks are created as the workflow engine would
+ */
+class TestCluster {
+
+    static final String NAMESPACE = "test";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    final SimulatedKubernetesClient client;
+    private final List<Scheduler> schedulers = new ArrayList<>();
+
+    TestCluster( int nodes, int cpus, long memoryInBytes ) {
+        client = new SimulatedKubernetesClient( 1000, false );
+        for ( int i = 0; i < nodes; i++ ) {
+            client.addNode( "node-" + i, BigDecimal.valueOf( cpus ), BigDecimal.valueOf( memoryInBytes ) );
+        }
+    }
+
+    /**
+     * @param config additional scheduler config
+     * @param processes processes of the workflow, with the uids 0, 1, ...
+     */
+    PrioritizeAssignScheduler scheduler( String execution, Prioritize prioritize, NodeAssign assign,
+                                         Map<String, Object> config, String... processes ) {
+        final Map<String, Object> schedulerConfig = new HashMap<>( config );
+        schedulerConfig.put( "dns", "http://localhost/" );
+        schedulerConfig.put( "namespace", NAMESPACE );
+        final PrioritizeAssignScheduler scheduler = new PrioritizeAssignScheduler( execution, client, NAMESPACE,
+                mapper.convertValue( schedulerConfig, SchedulerConfig.class ), prioritize, assign );
+        final List<Vertex> vertices = new ArrayList<>();
+        for ( int i = 0; i < processes.length; i++ ) {
+            vertices.add( new Process( processes[i], i ) );
+        }
+        scheduler.getDag().registerVertices( vertices );
+        client.addInformable( scheduler );
+        schedulers.add( scheduler );
+        return scheduler;
+    }
+
+    /**
+     * Registers a task at the scheduler
+     * @return the name of the task's pod
+     */
+    String addTask( Scheduler scheduler, int id, String process, float cpus, long memoryInBytes ) {
+        final String runName = scheduler.getExecution() + "-" + id;
+        final Map<String, Object> config = new HashMap<>();
+        config.put( "task", process );
+        config.put( "name", process + " (" + id + ")" );
+        config.put( "runName", runName );
+        config.put( "cpus", cpus );
+        config.put( "memoryInBytes", memoryInBytes );
+        scheduler.addTask( id, mapper.convertValue( config, TaskConfig.class ) );
+        return runName;
+    }
+
+    /**
+     * Creates the pod of a registered task, it runs for runtimeInMillis of simulated time once bound
+     */
+    void createPod( Scheduler scheduler, String runName, float cpus, long memoryInBytes, long runtimeInMillis ) {
+        final Pod pod = new PodBuilder()
+                .withApiVersion( "v1" )
+                .withKind( "Pod" )
+                .withNewMetadata()
+                    .withName( runName )
+                    .withNamespace( NAMESPACE )
+                    .withUid( runName )
+                .endMetadata()
+                .withNewSpec()
+                    .withSchedulerName( scheduler.getName() )
+                    .addNewContainer()
+                        .withName( "main" )
+                        .withNewResources()
+                            .addToRequests( "cpu", new Quantity( String.valueOf( cpus ) ) )
+                            .addToRequests( "memory", new Quantity( String.valueOf( memoryInBytes ) ) )
+                        .endResources()
+                    .endContainer()
+                .endSpec()
+                .withNewStatus().withPhase( "Pending" ).endStatus()
+                .build();
+        client.createPod( pod, runtimeInMillis );
+    }
+
+    String submit( Scheduler scheduler, int id, String process, float cpus, long memoryInBytes, long runtimeInMillis ) {
+        final String runName = addTask( scheduler, id, process, cpus, memoryInBytes );
+        createPod( scheduler, runName, cpus, memoryInBytes, runtimeInMillis );
+        return runName;
+    }
+
+    void close() {
+        schedulers.forEach( Scheduler::close );
+        client.close();
+    }
+
+}
@@ -0,0 +1,96 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.DataLocalityIndex;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.State;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataLocalityScoreTest {
+
+    @TempDir
+    Path workDirs;
+
+    private static Task task( String workDir, Path... inputs ) {
+        final StringBuilder fileInputs = new StringBuilder();
+        for ( Path input : inputs ) {
+            if ( fileInputs.length() > 0 ) {
+                fileInputs.append( ',' );
+            }
+            fileInputs.append( "{\"name\":\"in\",\"value\":{\"sourceObj\":\"" ).append( input ).append( "\"}}" );
+        }
+        final String json = "{\"task\":\"a\",\"workDir\":\"" + workDir + "\",\"inputs\":{\"fileInputs\":[" + fileInputs + "]}}";
+        final DAG dag = new DAG();
+        dag.registerVertices( List.<Vertex>of( new Process( "a", 1 ) ) );
+        try {
+            return new Task( new ObjectMapper().registerModule( new ParameterNamesModule() ).readValue( json, TaskConfig.class ), dag );
+        } catch ( IOException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private Path file( String path, int bytes ) throws IOException {
+        final Path file = workDirs.resolve( path );
+        Files.createDirectories( file.getParent() );
+        Files.write( file, new byte[bytes] );
+        return file;
+    }
+
+    @Test
+    void sharesAreDeterminedWhenThePodArrives() throws IOException {
+        final NodeWithAlloc producerNode = TestNode.create( "dataLocality-producer", "4", "4096" );
+        final NodeWithAlloc otherNode = TestNode.create( "dataLocality-other", "4", "4096" );
+        final Path produced = file( "ab/producer/out.txt", 100 );
+        final Path external = file( "input/in.txt", 300 );
+
+        final DataLocalityIndex index = new DataLocalityIndex();
+        final Task producer = task( workDirs.resolve( "ab/producer" ).toString() );
+        producer.setNode( producerNode );
+        index.taskFinished( producer );
+        final Scheduler scheduler = Mockito.mock( Scheduler.class );
+        Mockito.when( scheduler.getDataLocalityIndex() ).thenReturn( index );
+        final DataLocalityScore score = new DataLocalityScore();
+        score.registerScheduler( scheduler );
+
+        final Task consumer = task( workDirs.resolve( "cd/consumer" ).toString(), produced, external );
+        consumer.getState().setState( State.UNSCHEDULED );
+        assertEquals( 0, score.score( consumer, producerNode ) );
+        score.taskSchedulable( consumer );
+
+        // files are not accessed during a round
+        Files.delete( produced );
+        Files.delete( external );
+        score.startRound( List.of( consumer ), Map.of() );
+        assertEquals( Set.of( producerNode ), Set.copyOf( score.getPreferredNodes( consumer ) ) );
+        assertEquals( 0.25, score.score( consumer, producerNode ), 1e-9 );
+        assertEquals( 0, score.score( consumer, otherNode ) );
+
+        // another shard's round does not drop the shares of unscheduled tasks
+        score.startRound( List.of(), Map.of() );
+        assertEquals( 0.25, score.score( consumer, producerNode ), 1e-9 );
+
+        consumer.getState().setState( State.FINISHED );
+        score.startRound( List.of(), Map.of() );
+        assertTrue( score.getPreferredNodes( consumer ).isEmpty() );
+    }
+
+}
@@ -0,0 +1,125 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.TestNode;
+import io.fabric8.kubernetes.api.model.ContainerImage;
+import io.fabric8.kubernetes.api.model.Node;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImageIndexTest {
+
+    private static Node withImages( String name, int resourceVersion, String... images ) {
+        final Node node = TestNode.node( name, String.valueOf( resourceVersion ), "4", "4096", Map.of(), true );
+        final List<ContainerImage> containerImages = new ArrayList<>();
+        for ( String image : images ) {
+            containerImages.add( new ContainerImage( List.of( image ), 100L ) );
+        }
+        node.getStatus().setImages( containerImages );
+        return node;
+    }
+
+    @Test
+    void indexesChangedNodesOnly() {
+        final NodeWithAlloc a = new NodeWithAlloc( withImages( "imageIndex-a", 1, "ubuntu", "alpine:3" ), null );
+        final NodeWithAlloc b = new NodeWithAlloc( withImages( "imageIndex-b", 1, "ubuntu" ), null );
+        final ImageIndex index = new ImageIndex();
+        index.update( List.of( a, b ) );
+        assertEquals( Set.of( a, b ), index.getNodes( "ubuntu:latest" ) );
+        assertEquals( Set.of( a ), index.getNodes( "alpine:3" ) );
+        assertEquals( 100, index.getSize( "alpine:3" ) );
+
+        final Set<NodeWithAlloc> before = index.getNodes( "ubuntu:latest" );
+        a.update( withImages( "imageIndex-a", 2, "alpine:3" ) );
+        index.update( List.of( a, b ) );
+        assertEquals( Set.of( b ), index.getNodes( "ubuntu:latest" ) );
+        // sets handed out before are not modified
+        assertEquals( Set.of( a, b ), before );
+
+        b.update( withImages( "imageIndex-b", 2 ) );
+        index.update( List.of( a, b ) );
+        assertTrue( index.getNodes( "ubuntu:latest" ).isEmpty() );
+        assertEquals( 0, index.getSize( "ubuntu:latest" ) );
+        assertEquals( List.of( a ), new ArrayList<>( index.getNodes( List.of( "alpine:3", "ubuntu:latest" ) ) ) );
+    }
+
+    @Test
+    void removedNodesAreEvicted() {
+        final NodeWithAlloc a = new NodeWithAlloc( withImages( "imageIndex-removed-a", 1, "ubuntu", "alpine:3" ), null );
+        final NodeWithAlloc b = new NodeWithAlloc( withImages( "imageIndex-removed-b", 1, "ubuntu" ), null );
+        final ImageIndex index = new ImageIndex();
+        index.update( List.of( a, b ) );
+
+        index.remove( a );
+        assertEquals( Set.of( b ), index.getNodes( "ubuntu:latest" ) );
+        assertTrue( index.getNodes( "alpine:3" ).isEmpty() );
+        assertEquals( 0, index.getSize( "alpine:3" ) );
+
+        // a node that gets the id of the removed node is indexed
+        NodeWithAlloc.releaseId( a );
+        final NodeWithAlloc c = new NodeWithAlloc( withImages( "imageIndex-removed-c", 1, "alpine:3" ), null );
+        index.update( List.of( b, c ) );
+        assertEquals( Set.of( c ), index.getNodes( "alpine:3" ) );
+    }
+
+    @Test
+    void nodeWithAReusedIdReplacesTheRemovedNode() {
+        final NodeWithAlloc a = new NodeWithAlloc( withImages( "imageIndex-reused-a", 1, "alpine:3" ), null );
+        final ImageIndex index = new ImageIndex();
+        index.update( List.of( a ) );
+        // removed without the index being told
+        NodeWithAlloc.releaseId( a );
+        final NodeWithAlloc b = new NodeWithAlloc( withImages( "imageIndex-reused-b", 1, "ubuntu" ), null );
+        index.update( List.of( b ) );
+        assertEquals( Set.of( b ), index.getNodes( "ubuntu:latest" ) );
+        if ( a.getId() == b.getId() ) {
+            assertTrue( index.getNodes( "alpine:3" ).isEmpty() );
+        }
+    }
+
+    @Test
+    void concurrentRoundsReadWhileUpdating() throws Exception {
+        final List<NodeWithAlloc> nodes = new ArrayList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            nodes.add( new NodeWithAlloc( withImages( "imageIndex-concurrent-" + i, 1, "ubuntu" ), null ) );
+        }
+        final ImageIndex index = new ImageIndex();
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        final List<Future<?>> futures = new ArrayList<>();
+        for ( int thread = 0; thread < 4; thread++ ) {
+            final int offset = thread;
+            futures.add( executor.submit( () -> {
+                for ( int round = 1; round <= 200; round++ ) {
+                    final NodeWithAlloc node = nodes.get( ( round + offset ) % nodes.size() );
+                    synchronized ( node ) {
+                        node.update( withImages( node.getName(), round * 4 + offset + 1, round % 2 == 0 ? "ubuntu" : "alpine" ) );
+                    }
+                    index.update( nodes );
+                    for ( NodeWithAlloc holder : index.getNodes( List.of( "ubuntu:latest", "alpine:latest" ) ) ) {
+                        assertNotNull( holder );
+                    }
+                }
+            } ) );
+        }
+        for ( Future<?> future : futures ) {
+            future.get( 30, TimeUnit.SECONDS );
+        }
+        executor.shutdown();
+        index.update( nodes );
+        for ( NodeWithAlloc node : nodes ) {
+            final String image = node.getImages().keySet().iterator().next();
+            assertTrue( index.getNodes( image ).contains( node ) );
+        }
+    }
+
+}
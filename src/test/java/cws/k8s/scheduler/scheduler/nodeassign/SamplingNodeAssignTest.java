@@ -0,0 +1,105 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeMap;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import cws.k8s.scheduler.scheduler.prioritize.TestTask;
+import cws.k8s.scheduler.util.NodeTaskAlignment;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingNodeAssignTest {
+
+    private static SamplingNodeAssign assign( int samples, SamplingNodeAssign.Headroom headroom ) {
+        final Scheduler scheduler = Mockito.mock( Scheduler.class );
+        Mockito.when( scheduler.affinitiesMatch( Mockito.any(), Mockito.any() ) ).thenReturn( true );
+        Mockito.when( scheduler.canScheduleTaskOnNode( Mockito.any(), Mockito.any(), Mockito.any() ) ).thenCallRealMethod();
+        final SamplingNodeAssign assign = new SamplingNodeAssign( samples, headroom );
+        assign.registerScheduler( scheduler );
+        return assign;
+    }
+
+    private static Task task( String uid, double cpu, long ram ) {
+        final Task task = new TestTask();
+        task.setPod( TestNode.pod( uid, String.valueOf( cpu ), String.valueOf( ram ) ) );
+        task.setPlanedCpuInCores( cpu, 0 );
+        task.setPlannedMemoryInBytes( ram, 0 );
+        return task;
+    }
+
+    private static Requirements requirements( double cpu, long ram ) {
+        return new Requirements( BigDecimal.valueOf( cpu ), BigDecimal.valueOf( ram ) );
+    }
+
+    private static List<NodeTaskAlignment> align( SamplingNodeAssign assign, List<Task> tasks, Map<NodeWithAlloc, Requirements> availableByNode ) {
+        return assign.getTaskNodeAlignment( new ArrayList<>( tasks ), availableByNode, NodeWithAlloc.getCapacityEpoch() );
+    }
+
+    @Test
+    void rejectsNoSamples() {
+        assertThrows( IllegalArgumentException.class, () -> new SamplingNodeAssign( 0, SamplingNodeAssign.Headroom.BALANCED ) );
+    }
+
+    @Test
+    void scansAllNodesIfNoSampleFits() {
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        NodeWithAlloc free = null;
+        for ( int i = 0; i < 100; i++ ) {
+            final NodeWithAlloc node = TestNode.create( "sampling-scan-" + i, "4", "4096" );
+            availableByNode.put( node, i == 57 ? requirements( 4, 4096 ) : requirements( 0, 0 ) );
+            if ( i == 57 ) {
+                free = node;
+            }
+        }
+        final SamplingNodeAssign assign = assign( 2, SamplingNodeAssign.Headroom.BALANCED );
+        final Task fits = task( "fits", 1, 1024 );
+        final Task tooLarge = task( "tooLarge", 8, 1024 );
+        final List<NodeTaskAlignment> alignment = align( assign, List.of( fits, tooLarge ), availableByNode );
+
+        assertEquals( 1, alignment.size() );
+        assertSame( fits, alignment.get( 0 ).task );
+        assertSame( free, alignment.get( 0 ).node );
+        assertEquals( 0, availableByNode.get( free ).getCpu().compareTo( BigDecimal.valueOf( 3 ) ) );
+        // all random probes failed, then every node was scanned
+        assertEquals( 2 * 4 + 100, tooLarge.getTraceRecord().getSchedulerNodesTried() );
+    }
+
+    @Test
+    void picksTheNodeWithTheMostHeadroom() {
+        final NodeWithAlloc moreCpu = TestNode.create( "sampling-cpu", "8", "8192" );
+        final NodeWithAlloc moreRam = TestNode.create( "sampling-ram", "8", "8192" );
+        for ( SamplingNodeAssign.Headroom headroom : SamplingNodeAssign.Headroom.values() ) {
+            final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+            availableByNode.put( moreCpu, requirements( 8, 2048 ) );
+            availableByNode.put( moreRam, requirements( 3, 8192 ) );
+            // with this many samples, both nodes are probed
+            final List<NodeTaskAlignment> alignment = align( assign( 64, headroom ), List.of( task( "t", 1, 1024 ) ), availableByNode );
+            assertEquals( 1, alignment.size() );
+            // balanced: min(7/8, 1/8) < min(2/8, 7/8)
+            assertSame( headroom == SamplingNodeAssign.Headroom.CPU ? moreCpu : moreRam, alignment.get( 0 ).node, headroom.name() );
+        }
+    }
+
+    @Test
+    void assignedTasksUseUpTheNode() {
+        final NodeWithAlloc node = TestNode.create( "sampling-full", "2", "4096" );
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        availableByNode.put( node, requirements( 2, 4096 ) );
+        final List<Task> tasks = List.of( task( "a", 1, 1024 ), task( "b", 1, 1024 ), task( "c", 1, 1024 ) );
+        final List<NodeTaskAlignment> alignment = align( assign( 2, SamplingNodeAssign.Headroom.BALANCED ), tasks, availableByNode );
+        assertEquals( 2, alignment.size() );
+        assertEquals( 0, availableByNode.get( node ).getCpu().signum() );
+        assertEquals( 0, availableByNode.get( node ).getRam().compareTo( BigDecimal.valueOf( 2048 ) ) );
+    }
+
+}
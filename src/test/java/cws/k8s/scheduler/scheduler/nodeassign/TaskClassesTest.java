@@ -0,0 +1,128 @@
+package cws.k8s.scheduler.scheduler.nodeassign;
+
+import cws.k8s.scheduler.model.NodeMap;
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import cws.k8s.scheduler.model.Requirements;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.scheduler.Scheduler;
+import cws.k8s.scheduler.scheduler.prioritize.TestTask;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskClassesTest {
+
+    private static Scheduler scheduler() {
+        final Scheduler scheduler = Mockito.mock( Scheduler.class );
+        Mockito.when( scheduler.affinitiesMatch( Mockito.any(), Mockito.any() ) ).thenReturn( true );
+        Mockito.when( scheduler.canScheduleTaskOnNode( Mockito.any(), Mockito.any(), Mockito.any() ) ).thenCallRealMethod();
+        return scheduler;
+    }
+
+    private static Task task( String uid, Map<String, String> nodeSelector ) {
+        final Task task = new TestTask();
+        task.setPod( TestNode.pod( uid, "1", "1024", nodeSelector ) );
+        task.setPlanedCpuInCores( 1, 0 );
+        task.setPlannedMemoryInBytes( 1024, 0 );
+        return task;
+    }
+
+    private static Map<NodeWithAlloc, Requirements> availableByNode( NodeWithAlloc node ) {
+        final Map<NodeWithAlloc, Requirements> availableByNode = new NodeMap<>();
+        availableByNode.put( node, node.getAvailableResources() );
+        return availableByNode;
+    }
+
+    @Test
+    void parkedUntilTheCapacityChanges() {
+        final NodeWithAlloc node = TestNode.create( "taskClasses", "4", "4096" );
+        final Scheduler scheduler = scheduler();
+        final TaskClasses taskClasses = new TaskClasses();
+        assertTrue( node.reserve( "a", new Requirements( BigDecimal.valueOf( 4 ), BigDecimal.valueOf( 4096 ) ) ) );
+        final Task task = task( "t1", Map.of() );
+        final Task sameClass = task( "t2", Map.of() );
+        final Task otherClass = task( "t3", Map.of( "zone", "a" ) );
+
+        long epoch = NodeWithAlloc.getCapacityEpoch();
+        TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode( node ), epoch );
+        final TaskClasses.Candidates candidates = round.getCandidates( task );
+        assertEquals( List.of( node ), candidates.getNodes() );
+        assertTrue( candidates.contains( node ) );
+        assertFalse( round.fits( node.getAvailableResources(), task, node ) );
+        round.park( task );
+        assertNull( round.getCandidates( sameClass ) );
+        assertNotNull( round.getCandidates( otherClass ) );
+
+        round = taskClasses.startRound( scheduler, availableByNode( node ), epoch );
+        assertNull( round.getCandidates( task ) );
+
+        node.release( "a" );
+        epoch = NodeWithAlloc.getCapacityEpoch();
+        round = taskClasses.startRound( scheduler, availableByNode( node ), epoch );
+        assertNotNull( round.getCandidates( task ) );
+        assertTrue( round.fits( node.getAvailableResources(), task, node ) );
+    }
+
+    @Test
+    void releaseDuringARoundWakesUpTheClass() {
+        final NodeWithAlloc node = TestNode.create( "taskClassesWakeUp", "4", "4096" );
+        final Scheduler scheduler = scheduler();
+        final TaskClasses taskClasses = new TaskClasses();
+        assertTrue( node.reserve( "a", new Requirements( BigDecimal.valueOf( 4 ), BigDecimal.valueOf( 4096 ) ) ) );
+        final Task task = task( "t1", Map.of() );
+
+        // the epoch is read before the available resources are determined
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        final Map<NodeWithAlloc, Requirements> full = availableByNode( node );
+        // released after the available resources were determined, but before the class is parked
+        node.release( "a" );
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, full, epoch );
+        assertFalse( round.fits( full.get( node ), task, node ) );
+        round.park( task );
+
+        final TaskClasses.Round next = taskClasses.startRound( scheduler, availableByNode( node ), NodeWithAlloc.getCapacityEpoch() );
+        final TaskClasses.Candidates candidates = next.getCandidates( task );
+        assertNotNull( candidates );
+        assertTrue( next.fits( node.getAvailableResources(), task, node ) );
+    }
+
+    @Test
+    void withdrawnAlignmentWakesUpTheClass() {
+        final NodeWithAlloc node = TestNode.create( "taskClassesWithdrawn", "4", "4096" );
+        final Scheduler scheduler = scheduler();
+        final TaskClasses taskClasses = new TaskClasses();
+        final Task task = task( "t1", Map.of() );
+
+        final long epoch = NodeWithAlloc.getCapacityEpoch();
+        final TaskClasses.Round round = taskClasses.startRound( scheduler, availableByNode( node ), epoch );
+        // the resources were used up by other tasks of the round
+        assertFalse( round.fits( new Requirements(), task, node ) );
+        round.park( task );
+        assertNull( taskClasses.startRound( scheduler, availableByNode( node ), epoch ).getCandidates( task ) );
+
+        // their alignments were withdrawn, e.g., by the backfill or the capacity arbiter
+        NodeWithAlloc.advanceCapacityEpoch();
+        assertNotNull( taskClasses.startRound( scheduler, availableByNode( node ), NodeWithAlloc.getCapacityEpoch() ).getCandidates( task ) );
+    }
+
+    @Test
+    void fitsAsksTheScheduler() {
+        final NodeWithAlloc node = TestNode.create( "taskClassesOverride", "4", "4096" );
+        final Scheduler scheduler = scheduler();
+        // e.g., a scheduler that keeps the node for something else
+        Mockito.when( scheduler.canScheduleTaskOnNode( Mockito.any(), Mockito.any(), Mockito.eq( node ) ) ).thenReturn( false );
+        final Task task = task( "t1", Map.of() );
+        final TaskClasses.Round round = new TaskClasses().startRound( scheduler, availableByNode( node ), NodeWithAlloc.getCapacityEpoch() );
+        assertFalse( round.fits( node.getAvailableResources(), task, node ) );
+        final FairAssign assign = new FairAssign();
+        assign.registerScheduler( scheduler );
+        assertTrue( assign.getTaskNodeAlignment( List.of( task ), availableByNode( node ), NodeWithAlloc.getCapacityEpoch() ).isEmpty() );
+    }
+
+}
@@ -0,0 +1,88 @@
+package cws.k8s.scheduler.scheduler.prioritize;
+
+import cws.k8s.scheduler.dag.DAG;
+import cws.k8s.scheduler.dag.InputEdge;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.Task;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.prediction.RuntimePredictionScaler;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CriticalPathPrioritizeTest {
+
+    /**
+     * a -> b -> d, a -> c, e
+     */
+    private static DAG dag() {
+        final DAG dag = new DAG();
+        final List<Vertex> vertices = Arrays.asList( new Process( "a", 1 ), new Process( "b", 2 ), new Process( "c", 3 ),
+                new Process( "d", 4 ), new Process( "e", 5 ) );
+        dag.registerVertices( vertices );
+        dag.registerEdges( List.of( new InputEdge( 1, 1, 2 ), new InputEdge( 2, 2, 4 ), new InputEdge( 3, 1, 3 ) ) );
+        return dag;
+    }
+
+    private static CriticalPathPrioritize prioritize( DAG dag, Map<String, Double> meanRuntimes ) {
+        final RuntimePredictionScaler runtimes = Mockito.mock( RuntimePredictionScaler.class );
+        Mockito.when( runtimes.getMeanRuntime( Mockito.anyString() ) )
+                .thenAnswer( invocation -> meanRuntimes.getOrDefault( (String) invocation.getArgument( 0 ), Double.NaN ) );
+        final CriticalPathPrioritize prioritize = new CriticalPathPrioritize();
+        prioritize.register( dag, runtimes );
+        return prioritize;
+    }
+
+    private static List<Task> sort( CriticalPathPrioritize prioritize, Task... tasks ) {
+        final List<Task> sorted = new ArrayList<>( Arrays.asList( tasks ) );
+        prioritize.sortTasks( sorted );
+        return sorted;
+    }
+
+    @Test
+    void longerRemainingPathFirst() {
+        final DAG dag = dag();
+        final Task c = new Task( new TaskConfig( "c" ), dag );
+        final Task b = new Task( new TaskConfig( "b" ), dag );
+        final Task d = new Task( new TaskConfig( "d" ), dag );
+        // b: 2 + 5 = 7, d: 5, c: 3
+        final CriticalPathPrioritize prioritize = prioritize( dag, Map.of( "b", 2d, "c", 3d, "d", 5d ) );
+        assertEquals( List.of( b, d, c ), sort( prioritize, c, b, d ) );
+
+        // the predicted runtime of a task replaces the mean of its process
+        c.setPredictedRuntime( 10, 1 );
+        assertEquals( List.of( c, b, d ), sort( prioritize, b, d, c ) );
+    }
+
+    @Test
+    void unknownProcessesUseTheMeanOfTheKnownOnes() {
+        final DAG dag = dag();
+        final Task c = new Task( new TaskConfig( "c" ), dag );
+        final Task e = new Task( new TaskConfig( "e" ), dag );
+        final Task b = new Task( new TaskConfig( "b" ), dag );
+        // e and d are weighted with the mean of b and c: (6 + 2) / 2 = 4, b: 6 + 4
+        final CriticalPathPrioritize prioritize = prioritize( dag, Map.of( "b", 6d, "c", 2d ) );
+        assertEquals( List.of( b, e, c ), sort( prioritize, c, e, b ) );
+    }
+
+    @Test
+    void withoutRuntimesTheOrderEqualsTheRank() {
+        final DAG dag = dag();
+        final Task d1 = new Task( new TaskConfig( "d" ), dag );
+        final Task c1 = new Task( new TaskConfig( "c" ), dag );
+        final Task b1 = new Task( new TaskConfig( "b" ), dag );
+        final Task a1 = new Task( new TaskConfig( "a" ), dag );
+        final Task d2 = new Task( new TaskConfig( "d" ), dag );
+        final CriticalPathPrioritize prioritize = prioritize( dag, Map.of() );
+        // equal paths are ordered by id
+        assertEquals( List.of( a1, b1, d1, c1, d2 ), sort( prioritize, d2, c1, b1, a1, d1 ) );
+    }
+
+}
@@ -0,0 +1,102 @@
+package cws.k8s.scheduler.simulation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
+import cws.k8s.scheduler.dag.Process;
+import cws.k8s.scheduler.dag.Vertex;
+import cws.k8s.scheduler.model.SchedulerConfig;
+import cws.k8s.scheduler.model.TaskConfig;
+import cws.k8s.scheduler.model.TestNode;
+import cws.k8s.scheduler.model.tracing.WorkflowRecorder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import io.fabric8.kubernetes.api.model.Quantity;
+import io.fabric8.kubernetes.client.Watcher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayTest {
+
+    private final ObjectMapper mapper = new ObjectMapper().registerModule( new ParameterNamesModule() );
+
+    @TempDir
+    Path dir;
+
+    private TaskConfig task( String runName, String workDir, String... inputs ) throws Exception {
+        final StringBuilder fileInputs = new StringBuilder();
+        for ( String input : inputs ) {
+            if ( fileInputs.length() > 0 ) {
+                fileInputs.append( ',' );
+            }
+            fileInputs.append( "{\"name\":\"in\",\"value\":{\"sourceObj\":\"" ).append( input ).append( "\"}}" );
+        }
+        return mapper.readValue( "{\"task\":\"a\",\"name\":\"" + runName + "\",\"runName\":\"" + runName
+                + "\",\"cpus\":1,\"memoryInBytes\":1024,\"workDir\":\"" + workDir
+                + "\",\"inputs\":{\"fileInputs\":[" + fileInputs + "]}}", TaskConfig.class );
+    }
+
+    private static Pod pod( String name, String nodeName, boolean finished ) {
+        final PodBuilder builder = new PodBuilder()
+                .withNewMetadata().withName( name ).withUid( name ).endMetadata()
+                .withNewSpec()
+                    .withNodeName( nodeName )
+                    .addNewContainer()
+                        .withName( "main" )
+                        .withNewResources()
+                            .withRequests( Map.of( "cpu", new Quantity( "1" ), "memory", new Quantity( "1024" ) ) )
+                        .endResources()
+                    .endContainer()
+                .endSpec();
+        if ( finished ) {
+            builder.withNewStatus()
+                    .withPhase( "Succeeded" )
+                    .addNewContainerStatus().withNewState().withNewTerminated().withExitCode( 0 ).endTerminated().endState().endContainerStatus()
+                    .endStatus();
+        }
+        return builder.build();
+    }
+
+    /**
+     * In the recording, the producer waited two seconds for a node. The consumer reads its output,
+     * in the replay it has to follow the producer's end instead of its recorded time.
+     */
+    @Test
+    void dependentPodsFollowTheirPredecessors() throws Exception {
+        final File log = dir.resolve( "record.bin.gz" ).toFile();
+        final WorkflowRecorder recorder = new WorkflowRecorder( log );
+        recorder.config( new ObjectMapper().convertValue( Map.of( "strategy", "fifo-fair" ), SchedulerConfig.class ) );
+        recorder.nodes( List.of( TestNode.create( "replay-node", "4", "4Gi" ) ) );
+        recorder.verticesAdded( List.<Vertex>of( new Process( "a", 1 ) ) );
+        recorder.taskAdded( 1, task( "producer", "/work/ab/producer" ), 0 );
+        recorder.podEvent( Watcher.Action.ADDED, pod( "producer", null, false ) );
+        Thread.sleep( 2000 );
+        recorder.podEvent( Watcher.Action.MODIFIED, pod( "producer", "replay-node", false ) );
+        Thread.sleep( 300 );
+        recorder.podEvent( Watcher.Action.MODIFIED, pod( "producer", "replay-node", true ) );
+        Thread.sleep( 100 );
+        recorder.taskAdded( 2, task( "consumer", "/work/cd/consumer", "/work/ab/producer/out.txt" ), 0 );
+        recorder.podEvent( Watcher.Action.ADDED, pod( "consumer", null, false ) );
+        recorder.podEvent( Watcher.Action.MODIFIED, pod( "consumer", "replay-node", false ) );
+        Thread.sleep( 300 );
+        recorder.podEvent( Watcher.Action.MODIFIED, pod( "consumer", "replay-node", true ) );
+        recorder.taskRemoved( 1 );
+        recorder.taskRemoved( 2 );
+        recorder.close();
+
+        final Replay.Result result = new Replay( log, 1, null, null, null, BigDecimal.ONE, BigDecimal.ONE ).run( 30 );
+        assertTrue( result.completed );
+        assertEquals( 2, result.scheduledPods );
+        assertTrue( result.recordedMakespan > 2600, "recorded: " + result.recordedMakespan );
+        // open-loop, the consumer would only be created after 2.4 s
+        assertTrue( result.makespan < 2000, "replayed: " + result.makespan );
+    }
+
+}
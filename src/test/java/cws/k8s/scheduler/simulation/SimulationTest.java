@@ -0,0 +1,45 @@
+package cws.k8s.scheduler.simulation;
+
+import cws.k8s.scheduler.model.NodeWithAlloc;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationTest {
+
+    private static SimulatedKubernetesClient cluster( int nodes ) {
+        final SimulatedKubernetesClient client = new SimulatedKubernetesClient( 1000, false );
+        for ( int i = 0; i < nodes; i++ ) {
+            client.addNode( "node-" + i, BigDecimal.valueOf( 4 ), BigDecimal.valueOf( 16L << 30 ) );
+        }
+        return client;
+    }
+
+    /**
+     * Tasks are bound concurrently, no node may be overbooked at any time
+     */
+    @Test
+    void concurrentBindingDoesNotOverbook() throws InterruptedException {
+        final SimulatedKubernetesClient client = cluster( 3 );
+        final AtomicInteger overbooked = new AtomicInteger();
+        final AtomicInteger bound = new AtomicInteger();
+        client.setPodBoundListener( ( pod, nodeName ) -> {
+            bound.incrementAndGet();
+            for ( NodeWithAlloc node : client.getAllNodes() ) {
+                if ( node.getName().equals( nodeName ) && !node.getMaxResources().higherOrEquals( node.getRequestedResources() ) ) {
+                    overbooked.incrementAndGet();
+                }
+            }
+        } );
+        final Workload workload = Workload.synthetic( 3, 40, 200, 7 );
+        final Simulation.Result result = new Simulation( workload, client, "rank_max-fair", null ).run( 60 );
+        assertTrue( result.completed );
+        assertEquals( workload.getTasks().size(), result.finishedTasks );
+        assertEquals( workload.getTasks().size(), bound.get() );
+        assertEquals( 0, overbooked.get() );
+    }
+
+}